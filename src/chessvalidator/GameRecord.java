@@ -0,0 +1,31 @@
+package chessvalidator;
+
+import chessvalidator.reports.PgnErrorInfo;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read access to one parsed game, as needed by {@link GameValidator}.
+ * Implemented by the on-heap {@link PgnParser.ParsedGame} and by the flyweight views of
+ * {@link chessvalidator.store.OffHeapGameStore}.
+ */
+public interface GameRecord {
+
+    /** @return The 0-based position of the game in its file. */
+    int getGameIndex();
+
+    Map<String, String> getHeaders();
+
+    /** @return The FEN header value, or null if the game starts from the initial position. */
+    String getFenString();
+
+    List<CharSequence> getSanMoves();
+
+    List<PgnErrorInfo> getSyntaxErrors();
+
+    /** @return The variations (RAV) of the main line, ordered by the ply they branch from. */
+    default List<Variation> getVariations() {
+        return List.of();
+    }
+}
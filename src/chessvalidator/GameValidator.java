@@ -4,36 +4,263 @@ import chessvalidator.model.Color;
 import chessvalidator.model.GameState;
 import chessvalidator.model.Move;
 import chessvalidator.model.SanHelper;
+import chessvalidator.model.SanResolutionCache;
 import chessvalidator.reports.GameValidationResult;
 import chessvalidator.reports.PgnErrorInfo;
+import chessvalidator.store.ResultCache;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replays parsed games and reports the first illegal move of each, one game or batch at a time.
+ * <p>
+ * Not thread-safe: a validator replays every game into the same reset {@link GameState} and keeps the ply
+ * counts and budget of the game in progress, so each thread needs its own, e.g. one borrowed from a
+ * {@link ValidationEngine}. The caches it is given may be shared.
+ */
 public class GameValidator {
 
+    /**
+     * Version of the validation rules. Bump it with any change that can give the same game a different outcome;
+     * results cached under another version are then discarded.
+     */
+    public static final int RULES_VERSION = 1;
+
+    private final ResultCache resultCache;
+    private final SanResolutionCache sanCache;
+    private final ValidationTier tier;
+    private final ValidationBudget budget;
+    private int pliesReplayed; // Of the game being replayed, variations included
+    private long gameDeadline;
+    private final GameState reusableState = new GameState(); // Reset for each game, so a validator serves one thread at a time
+    private long plyCount;
+    private long replayedPlyCount;
+
+    public GameValidator() {
+        this(null, null);
+    }
+
+    /**
+     * @param resultCache If not null, games whose content was validated before take their logical errors
+     *                    from this cache instead of being replayed, and new outcomes are stored in it.
+     * @param sanCache If not null, SAN moves are resolved through this cache, which may be shared between validators.
+     */
+    public GameValidator(ResultCache resultCache, SanResolutionCache sanCache) {
+        this(resultCache, sanCache, ValidationTier.FULL);
+    }
+
+    /** @param tier Which games are replayed; the others only get the syntax errors found by the parser. */
+    public GameValidator(ResultCache resultCache, SanResolutionCache sanCache, ValidationTier tier) {
+        this(resultCache, sanCache, tier, ValidationBudget.UNLIMITED);
+    }
+
+    /**
+     * @param budget Plies and time each game may take. A game that runs out gets a budget error at the
+     *               move it reached and is not replayed further; such results are not stored in the result cache.
+     */
+    public GameValidator(ResultCache resultCache, SanResolutionCache sanCache, ValidationTier tier, ValidationBudget budget) {
+        this.resultCache = resultCache;
+        this.sanCache = sanCache;
+        this.tier = tier;
+        this.budget = budget;
+    }
+
     /**
      * Validates a single parsed game by replaying moves.
-     * Stops at the first logical error.
-     * Assumes syntax validation has already happened.
+     * Stops at the first logical error in the main line.
+     * Variations are replayed from the position they branch from and the main line continues afterwards;
+     * an error in a variation abandons only that variation.
+     * Assumes syntax validation has already happened. A game the tier does not replay only gets its syntax errors.
      *
-     * @param parsedGame The game data parsed by PgnParser.
+     * @param parsedGame The game data parsed by PgnParser, on the heap or in an off-heap store.
      * @return A GameValidationResult containing the outcome and any errors.
+     * @throws UncheckedIOException if the result cache cannot be read or written.
      */
-    public GameValidationResult validate(PgnParser.ParsedGame parsedGame) {
+    public GameValidationResult validate(GameRecord parsedGame) {
+        if (!tier.replays(parsedGame)) {
+            return syntaxOnly(parsedGame);
+        }
+        if (resultCache == null) {
+            return replay(parsedGame);
+        }
+        try {
+            byte[] key = ResultCache.contentHash(parsedGame);
+            GameValidationResult cached = cachedResult(parsedGame, key);
+            if (cached != null) {
+                return cached;
+            }
+            GameValidationResult result = replay(parsedGame);
+            if (!isCancelled(result)) {
+                resultCache.store(key, result.getErrors());
+            }
+            return result;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Result cache failed: " + e.getMessage(), e);
+        }
+    }
+
+    private static GameValidationResult syntaxOnly(GameRecord parsedGame) {
         GameValidationResult result = new GameValidationResult(parsedGame.getGameIndex(), parsedGame.getHeaders());
+        parsedGame.getSyntaxErrors().forEach(result::addError);
+        return result;
+    }
 
-        // 1. Add any pre-existing syntax errors from the parsing phase
+    // Null if the cache has no outcome for the key
+    private GameValidationResult cachedResult(GameRecord parsedGame, byte[] key) throws IOException {
+        List<PgnErrorInfo> cachedErrors = resultCache.lookup(key, parsedGame.getGameIndex());
+        if (cachedErrors == null) {
+            return null;
+        }
+        GameValidationResult result = new GameValidationResult(parsedGame.getGameIndex(), parsedGame.getHeaders());
         parsedGame.getSyntaxErrors().forEach(result::addError);
-        if (!parsedGame.getSyntaxErrors().isEmpty()) {
-            // If syntax errors exist, we often don't proceed to logical validation,
-            // but the requirement allows it. Let's try anyway unless it's too broken.
-            // For simplicity now, stop if syntax errors were found.
-            // Comment out below return to try logical validation even with syntax errors.
-            // return result; // Stop validation here if syntax is bad
+        cachedErrors.forEach(result::addError);
+        return result;
+    }
+
+    /**
+     * Validates a batch of games with the same results as calling {@link #validate} on each, but replays
+     * shared move prefixes once. The main lines of all games starting from the same position are merged
+     * into a trie, and the trie is replayed depth-first: each distinct prefix is one ply, however many
+     * games share it. An illegal move is reported, with its move number, for every game whose main line
+     * passes through it, and nothing below it is replayed.
+     * <p>
+     * Games with variations are replayed one by one, as their variations branch from positions inside the
+     * main line, and so are games longer than the ply budget. The time budget per game does not apply to
+     * the shared replay, where no ply belongs to a single game. The trie holds one node per distinct prefix, so memory grows with the batch; callers
+     * pass a file or a range of games rather than a whole database at once.
+     *
+     * @return One result per game, in the order of the batch.
+     * @throws UncheckedIOException if the result cache cannot be read or written.
+     */
+    public List<GameValidationResult> validateBatch(List<? extends GameRecord> parsedGames) {
+        GameValidationResult[] results = new GameValidationResult[parsedGames.size()];
+        byte[][] keys = new byte[parsedGames.size()][];
+        Map<String, MovePrefixTrie> tries = new LinkedHashMap<>(); // By start FEN, "" for the initial position
+        try {
+            for (int i = 0; i < results.length; i++) {
+                GameRecord parsedGame = parsedGames.get(i);
+                if (!tier.replays(parsedGame)) {
+                    results[i] = syntaxOnly(parsedGame);
+                    continue;
+                }
+                if (resultCache != null) {
+                    keys[i] = ResultCache.contentHash(parsedGame);
+                    results[i] = cachedResult(parsedGame, keys[i]);
+                    if (results[i] != null) {
+                        keys[i] = null; // Nothing new to store
+                        continue;
+                    }
+                }
+                if (!parsedGame.getVariations().isEmpty() || !budget.allowsPly(parsedGame.getSanMoves().size() - 1)) {
+                    results[i] = replay(parsedGame);
+                    continue;
+                }
+                String fen = parsedGame.getFenString();
+                if (fen == null || fen.isBlank()) {
+                    fen = "";
+                }
+                results[i] = new GameValidationResult(parsedGame.getGameIndex(), parsedGame.getHeaders());
+                parsedGame.getSyntaxErrors().forEach(results[i]::addError);
+                tries.computeIfAbsent(fen, f -> new MovePrefixTrie()).add(i, parsedGame.getSanMoves());
+            }
+            for (Map.Entry<String, MovePrefixTrie> entry : tries.entrySet()) {
+                replayTrie(entry.getKey(), entry.getValue(), results);
+            }
+            if (resultCache != null) {
+                for (int i = 0; i < results.length; i++) {
+                    if (keys[i] != null && !isCancelled(results[i])) {
+                        resultCache.store(keys[i], results[i].getErrors());
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Result cache failed: " + e.getMessage(), e);
+        }
+        return Arrays.asList(results);
+    }
+
+    // Replays every prefix in the trie once, adding the first logical error of each game to its result
+    private void replayTrie(String fen, MovePrefixTrie trie, GameValidationResult[] results) {
+        plyCount += trie.getPlyCount();
+        GameState gameState = reusableState;
+        gameState.reset();
+        try {
+            if (!fen.isEmpty()) {
+                gameState.loadFromFen(fen);
+            }
+        } catch (IllegalArgumentException e) {
+            MovePrefixTrie.forEachGame(trie.root(), game -> results[game].addError(new PgnErrorInfo(
+                    results[game].getGameIndex(), 0, "FEN Header",
+                    "Logical error: Invalid FEN string provided: " + e.getMessage(), false)));
+            return;
+        } catch (Exception e) {
+            MovePrefixTrie.forEachGame(trie.root(), game -> results[game].addError(new PgnErrorInfo(
+                    results[game].getGameIndex(), 0, "FEN Header",
+                    "Unexpected error loading FEN: " + e.getMessage(), false)));
+            e.printStackTrace();
+            return;
+        }
+
+        // Depth-first with an explicit stack; each pending node is paired with the position it is played from
+        Deque<MovePrefixTrie.Node> pending = new ArrayDeque<>();
+        Deque<GameState.Snapshot> positions = new ArrayDeque<>();
+        GameState.Snapshot start = gameState.snapshot();
+        MovePrefixTrie.forEachChild(trie.root(), child -> {
+            pending.push(child);
+            positions.push(start);
+        });
+        while (!pending.isEmpty()) {
+            MovePrefixTrie.Node node = pending.pop();
+            gameState.restore(positions.pop());
+            int fullMoveNum = gameState.getFullMoveNumber();
+            replayedPlyCount++;
+            String errorMessage;
+            try {
+                gameState.applyMove(resolve(node.san(), gameState));
+                GameState.Snapshot after = gameState.snapshot();
+                MovePrefixTrie.forEachChild(node, child -> {
+                    pending.push(child);
+                    positions.push(after);
+                });
+                continue;
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                errorMessage = "Logical error: " + e.getMessage();
+            } catch (Exception e) {
+                errorMessage = "Unexpected error during validation: " + e.getMessage();
+                e.printStackTrace();
+            }
+            // Every game through this node stops here, as it would when replayed on its own
+            String message = errorMessage;
+            MovePrefixTrie.forEachGame(node, game -> results[game].addError(new PgnErrorInfo(
+                    results[game].getGameIndex(), fullMoveNum, node.san(), message, false)));
         }
+    }
+
+    /** @return Total length of the main lines {@link #validateBatch} merged into tries, over all batches. */
+    public long getPlyCount() { return plyCount; }
+
+    /** @return Plies {@link #validateBatch} actually replayed; shared prefixes count once. */
+    public long getReplayedPlyCount() { return replayedPlyCount; }
+
+    private GameValidationResult replay(GameRecord parsedGame) {
+        GameValidationResult result = new GameValidationResult(parsedGame.getGameIndex(), parsedGame.getHeaders());
+
+        // 1. Add any pre-existing syntax errors from the parsing phase
+        // Games with syntax errors are still replayed here; the tier decides whether they get this far
+        parsedGame.getSyntaxErrors().forEach(result::addError);
 
         // 2. Initialize game state (Check for FEN first)
         GameState gameState;
         try {
-            gameState = new GameState(); // Create instance
+            gameState = reusableState;
+            gameState.reset(); // Reused, so only the board is allocated per game, copied from the set-up initial one
             String fen = parsedGame.getFenString();
             if (fen != null && !fen.isBlank()) {
                 System.out.println("Game " + (parsedGame.getGameIndex()+1) + ": Starting from FEN: " + fen); // Debugging output
@@ -65,57 +292,69 @@ public class GameValidator {
             return result;
         }
 
+        pliesReplayed = 0;
+        gameDeadline = budget.gameDeadline();
         int halfMoveCount = 0; // Track moves for error reporting (1. e4 e5 is 2 half-moves)
+        List<Variation> variations = parsedGame.getVariations();
+        int nextVariation = 0;
 
         // 3. Replay moves one by one
-        for (String sanMove : parsedGame.getSanMoves()) {
-            halfMoveCount++;
-            int fullMoveNum = gameState.getFullMoveNumber();
-
+        // A budget error cancels the game from any depth, keeping the errors found so far
+        try {
+            for (CharSequence sanMove : parsedGame.getSanMoves()) {
+                // Variations replacing this move start from the current position
+                nextVariation = replayVariations(parsedGame, variations, nextVariation, halfMoveCount, gameState, result);
+                halfMoveCount++;
+                int fullMoveNum = gameState.getFullMoveNumber();
+                spendPly(parsedGame, fullMoveNum, sanMove);
 
-            try {
-                // Attempt to parse SAN and find the corresponding legal move
-                Move legalMove = SanHelper.sanToMove(sanMove, gameState);
+                try {
+                    // Attempt to parse SAN and find the corresponding legal move
+                    Move legalMove = resolve(sanMove, gameState);
 
-                // Apply the validated legal move
-                gameState.applyMove(legalMove);
+                    // Apply the validated legal move
+                    gameState.applyMove(legalMove);
 
-                // Optional: Add checks for check/mate consistency with SAN '+' or '#'
-                // boolean sanIndicatesCheck = sanMove.contains("+");
-                // boolean sanIndicatesMate = sanMove.contains("#");
-                // boolean actualCheck = gameState.isInCheck(); // Check AFTER move is made, for the NEXT player
-                // boolean actualMate = gameState.isCheckmate(); // Check AFTER move is made
+                    // Optional: Add checks for check/mate consistency with SAN '+' or '#'
+                    // boolean sanIndicatesCheck = sanMove.contains("+");
+                    // boolean sanIndicatesMate = sanMove.contains("#");
+                    // boolean actualCheck = gameState.isInCheck(); // Check AFTER move is made, for the NEXT player
+                    // boolean actualMate = gameState.isCheckmate(); // Check AFTER move is made
 
-                // Report inconsistencies if desired (can be noisy)
+                    // Report inconsistencies if desired (can be noisy)
 
-            } catch (IllegalArgumentException | IllegalStateException e) {
-                // This catches:
-                // - Invalid SAN format
-                // - Ambiguous SAN
-                // - SAN corresponds to an illegal move
-                // - Internal errors (e.g., king not found)
-                String errorMessage = "Logical error: " + e.getMessage();
-                result.addError(new PgnErrorInfo(
-                        parsedGame.getGameIndex(),
-                        fullMoveNum, // Use full move number for location
-                        sanMove,
-                        errorMessage,
-                        false // Logical error
-                ));
-                // Stop processing this game on the first logical error
-                return result;
-            } catch (Exception e) {
-                // Catch unexpected errors during validation
-                result.addError(new PgnErrorInfo(
-                        parsedGame.getGameIndex(),
-                        fullMoveNum,
-                        sanMove,
-                        "Unexpected error during validation: " + e.getMessage(),
-                        false
-                ));
-                e.printStackTrace(); // Log unexpected errors
-                return result;
+                } catch (IllegalArgumentException | IllegalStateException e) {
+                    // This catches:
+                    // - Invalid SAN format
+                    // - Ambiguous SAN
+                    // - SAN corresponds to an illegal move
+                    // - Internal errors (e.g., king not found)
+                    String errorMessage = "Logical error: " + e.getMessage();
+                    result.addError(new PgnErrorInfo(
+                            parsedGame.getGameIndex(),
+                            fullMoveNum, // Use full move number for location
+                            sanMove.toString(),
+                            errorMessage,
+                            false // Logical error
+                    ));
+                    // Stop processing this game on the first logical error
+                    return result;
+                } catch (Exception e) {
+                    // Catch unexpected errors during validation
+                    result.addError(new PgnErrorInfo(
+                            parsedGame.getGameIndex(),
+                            fullMoveNum,
+                            sanMove.toString(),
+                            "Unexpected error during validation: " + e.getMessage(),
+                            false
+                    ));
+                    e.printStackTrace(); // Log unexpected errors
+                    return result;
+                }
             }
+        } catch (BudgetExceededException e) {
+            result.addError(e.error);
+            return result;
         }
 
         // 4. Optional: Check final game state against Result header
@@ -136,4 +375,82 @@ public class GameValidator {
         // The overall game validity (`result.isValid()`) depends on whether syntax errors were also present.
         return result;
     }
-}
\ No newline at end of file
+
+    // The budget is checked before each ply rather than once up front, so variations count too
+    private void spendPly(GameRecord parsedGame, int fullMoveNum, CharSequence sanMove) {
+        String exceeded = !budget.allowsPly(pliesReplayed++) ? budget.pliesExceeded()
+                : ValidationBudget.isPast(gameDeadline) ? budget.gameTimeExceeded() : null;
+        if (exceeded != null) {
+            throw new BudgetExceededException(new PgnErrorInfo(
+                    parsedGame.getGameIndex(), fullMoveNum, sanMove.toString(), exceeded, PgnErrorInfo.Kind.BUDGET));
+        }
+    }
+
+    private static boolean isCancelled(GameValidationResult result) {
+        return result.getErrors().stream().anyMatch(PgnErrorInfo::isBudgetExceeded);
+    }
+
+    // Unwinds a replay, variations included, once the game is over budget; no stack trace, as it is not a failure
+    private static final class BudgetExceededException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private final PgnErrorInfo error;
+
+        BudgetExceededException(PgnErrorInfo error) {
+            super(error.message(), null, false, false);
+            this.error = error;
+        }
+    }
+
+    private Move resolve(CharSequence sanMove, GameState gameState) {
+        return sanCache != null ? sanCache.resolve(sanMove, gameState) : SanHelper.sanToMove(sanMove, gameState);
+    }
+
+    // Replays the variations branching at the given ply, starting at index 'next' of the ply-ordered list.
+    // Returns the index of the first variation that branches later.
+    private int replayVariations(GameRecord parsedGame, List<Variation> variations, int next, int ply,
+                                 GameState gameState, GameValidationResult result) {
+        while (next < variations.size() && variations.get(next).ply() == ply) {
+            replayVariation(parsedGame, variations.get(next++), gameState, result);
+        }
+        return next;
+    }
+
+    // Each move is applied once; the snapshot keeps the board by reference, so branching costs no copy
+    private void replayVariation(GameRecord parsedGame, Variation variation, GameState gameState, GameValidationResult result) {
+        GameState.Snapshot branchPoint = gameState.snapshot();
+        try {
+            List<Variation> nested = variation.variations();
+            int nextNested = 0;
+            int ply = 0;
+            for (CharSequence sanMove : variation.moves()) {
+                nextNested = replayVariations(parsedGame, nested, nextNested, ply++, gameState, result);
+                int fullMoveNum = gameState.getFullMoveNumber();
+                spendPly(parsedGame, fullMoveNum, sanMove);
+                try {
+                    gameState.applyMove(resolve(sanMove, gameState));
+                } catch (IllegalArgumentException | IllegalStateException e) {
+                    result.addError(new PgnErrorInfo(
+                            parsedGame.getGameIndex(),
+                            fullMoveNum,
+                            sanMove.toString(),
+                            "Logical error in variation: " + e.getMessage(),
+                            false
+                    ));
+                    return; // Abandon this variation only
+                } catch (Exception e) {
+                    result.addError(new PgnErrorInfo(
+                            parsedGame.getGameIndex(),
+                            fullMoveNum,
+                            sanMove.toString(),
+                            "Unexpected error during validation of variation: " + e.getMessage(),
+                            false
+                    ));
+                    return;
+                }
+            }
+        } finally {
+            gameState.restore(branchPoint);
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package chessvalidator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Selects games by their header tags. The parser evaluates the filter as soon as a game's header
+ * block ends and skips the movetext of games that do not match, without tokenizing it.
+ * <p>
+ * Expression syntax:
+ * <pre>
+ *   Event = "Tbilisi FIDE Grand Prix" &amp;&amp; Date &gt;= 2015.02.20
+ *   Player ~ carlsen || (WhiteElo &gt; 2700 &amp;&amp; Result != "1/2-1/2")
+ * </pre>
+ * Operators: {@code =} and {@code !=} compare exactly; {@code ~} is a case-insensitive substring match;
+ * {@code < <= > >=} compare numerically when both sides are numbers, otherwise as strings
+ * (so PGN dates in {@code yyyy.mm.dd} form order correctly). {@code &&} binds tighter than {@code ||}.
+ * Values containing spaces or operator characters must be quoted.
+ * {@code Player} is a pseudo-tag that matches if either White or Black matches.
+ * A missing tag matches only {@code !=}.
+ */
+@FunctionalInterface
+public interface HeaderFilter {
+
+    HeaderFilter ACCEPT_ALL = headers -> true;
+
+    /** @return True if the game with these headers should be validated. */
+    boolean matches(Map<String, String> headers);
+
+    /**
+     * Parses a filter expression.
+     * @throws IllegalArgumentException if the expression is malformed.
+     */
+    static HeaderFilter parse(String expression) {
+        return new ExpressionParser(expression).parse();
+    }
+
+    enum Operator {
+        EQUALS("="), NOT_EQUALS("!="), CONTAINS("~"),
+        LESS("<"), LESS_OR_EQUAL("<="), GREATER(">"), GREATER_OR_EQUAL(">=");
+
+        private final String symbol;
+
+        Operator(String symbol) {
+            this.symbol = symbol;
+        }
+
+        boolean test(String actual, String expected) {
+            if (actual == null) {
+                return this == NOT_EQUALS;
+            }
+            return switch (this) {
+                case EQUALS -> actual.equals(expected);
+                case NOT_EQUALS -> !actual.equals(expected);
+                case CONTAINS -> actual.toLowerCase().contains(expected.toLowerCase());
+                case LESS -> compare(actual, expected) < 0;
+                case LESS_OR_EQUAL -> compare(actual, expected) <= 0;
+                case GREATER -> compare(actual, expected) > 0;
+                case GREATER_OR_EQUAL -> compare(actual, expected) >= 0;
+            };
+        }
+
+        private static int compare(String actual, String expected) {
+            try {
+                return Double.compare(Double.parseDouble(actual), Double.parseDouble(expected));
+            } catch (NumberFormatException e) {
+                return actual.compareTo(expected);
+            }
+        }
+    }
+
+    /** A single {@code Tag op value} test. */
+    record Condition(String tag, Operator operator, String value) implements HeaderFilter {
+        @Override
+        public boolean matches(Map<String, String> headers) {
+            if ("Player".equals(tag)) {
+                // Either side matching is enough, except for != where neither may match
+                boolean white = operator.test(headers.get("White"), value);
+                boolean black = operator.test(headers.get("Black"), value);
+                return operator == Operator.NOT_EQUALS ? white && black : white || black;
+            }
+            return operator.test(headers.get(tag), value);
+        }
+
+        @Override
+        public String toString() {
+            return tag + " " + operator.symbol + " \"" + value + "\"";
+        }
+    }
+
+    // Recursive descent: or := and ('||' and)*, and := primary ('&&' primary)*, primary := '(' or ')' | condition
+    final class ExpressionParser {
+        private final String text;
+        private int pos;
+
+        private ExpressionParser(String text) {
+            if (text == null || text.isBlank()) {
+                throw new IllegalArgumentException("Filter expression is empty.");
+            }
+            this.text = text;
+        }
+
+        private HeaderFilter parse() {
+            HeaderFilter filter = parseOr();
+            skipWhitespace();
+            if (pos < text.length()) {
+                throw error("Unexpected '" + text.charAt(pos) + "'");
+            }
+            return filter;
+        }
+
+        private HeaderFilter parseOr() {
+            List<HeaderFilter> terms = new ArrayList<>();
+            terms.add(parseAnd());
+            while (consume("||")) {
+                terms.add(parseAnd());
+            }
+            if (terms.size() == 1) {
+                return terms.get(0);
+            }
+            return headers -> {
+                for (HeaderFilter term : terms) {
+                    if (term.matches(headers)) return true;
+                }
+                return false;
+            };
+        }
+
+        private HeaderFilter parseAnd() {
+            List<HeaderFilter> terms = new ArrayList<>();
+            terms.add(parsePrimary());
+            while (consume("&&")) {
+                terms.add(parsePrimary());
+            }
+            if (terms.size() == 1) {
+                return terms.get(0);
+            }
+            return headers -> {
+                for (HeaderFilter term : terms) {
+                    if (!term.matches(headers)) return false;
+                }
+                return true;
+            };
+        }
+
+        private HeaderFilter parsePrimary() {
+            if (consume("(")) {
+                HeaderFilter inner = parseOr();
+                if (!consume(")")) {
+                    throw error("Missing ')'");
+                }
+                return inner;
+            }
+            String tag = parseTag();
+            Operator operator = parseOperator();
+            String value = parseValue();
+            return new Condition(tag, operator, value);
+        }
+
+        private String parseTag() {
+            skipWhitespace();
+            int start = pos;
+            while (pos < text.length() && (Character.isLetterOrDigit(text.charAt(pos)) || text.charAt(pos) == '_')) {
+                pos++;
+            }
+            if (start == pos) {
+                throw error("Expected a tag name");
+            }
+            return text.substring(start, pos);
+        }
+
+        private Operator parseOperator() {
+            // Two-character operators first so that "<=" is not read as "<"
+            for (String symbol : new String[] {"!=", "<=", ">=", "=", "~", "<", ">"}) {
+                if (consume(symbol)) {
+                    for (Operator operator : Operator.values()) {
+                        if (operator.symbol.equals(symbol)) return operator;
+                    }
+                }
+            }
+            throw error("Expected one of = != ~ < <= > >=");
+        }
+
+        private String parseValue() {
+            skipWhitespace();
+            if (pos < text.length() && text.charAt(pos) == '"') {
+                int end = text.indexOf('"', pos + 1);
+                if (end < 0) {
+                    throw error("Unterminated quoted value");
+                }
+                String value = text.substring(pos + 1, end);
+                pos = end + 1;
+                return value;
+            }
+            int start = pos;
+            while (pos < text.length() && !Character.isWhitespace(text.charAt(pos)) && "()&|".indexOf(text.charAt(pos)) < 0) {
+                pos++;
+            }
+            if (start == pos) {
+                throw error("Expected a value");
+            }
+            return text.substring(start, pos);
+        }
+
+        private boolean consume(String token) {
+            skipWhitespace();
+            if (text.startsWith(token, pos)) {
+                pos += token.length();
+                return true;
+            }
+            return false;
+        }
+
+        private void skipWhitespace() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at position " + pos + " in filter: " + text);
+        }
+    }
+}
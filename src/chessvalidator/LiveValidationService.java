@@ -0,0 +1,156 @@
+package chessvalidator;
+
+import chessvalidator.model.GameState;
+import chessvalidator.model.SanHelper;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Validates live games one move at a time, for board feeds that deliver moves as they are played.
+ * <p>
+ * Each open session keeps the current {@link GameState} of its game, so a submitted move is checked
+ * against that position and applied in one step, instead of replaying the whole game as
+ * {@link GameValidator#validate} does. A session holds only the position and a few counters, and no move history.
+ * <p>
+ * Sessions are independent: moves for different games may be submitted from different threads at the same time,
+ * while moves for one game are applied in the order their calls acquire the session.
+ * Sessions that receive no move for longer than the idle timeout are closed by a background sweep.
+ */
+public class LiveValidationService implements AutoCloseable {
+
+    /**
+     * The answer to one submitted move.
+     *
+     * @param accepted True if the move was legal and has been applied.
+     * @param ply Number of moves accepted in the session so far.
+     * @param message Why the move was rejected; null if it was accepted.
+     */
+    public record MoveVerdict(boolean accepted, int ply, String message) {}
+
+    // The retained state of one game. Guarded by its own monitor.
+    private static final class Session {
+        private final GameState gameState;
+        private int ply;
+        private volatile long lastActiveNanos;
+
+        Session(GameState gameState) {
+            this.gameState = gameState;
+            this.lastActiveNanos = System.nanoTime();
+        }
+    }
+
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final long idleTimeoutNanos;
+    private final ScheduledExecutorService sweeper;
+
+    /** @param idleTimeout Sessions idle for longer than this are evicted; zero keeps them until closed. */
+    public LiveValidationService(Duration idleTimeout) {
+        if (idleTimeout.isNegative()) {
+            throw new IllegalArgumentException("Idle timeout must not be negative");
+        }
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+        if (idleTimeoutNanos == 0) {
+            this.sweeper = null;
+            return;
+        }
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "live-session-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Sweep a few times per timeout, so a session outlives its timeout by at most a quarter of it
+        long periodMillis = Math.max(100, Math.min(60_000, idleTimeout.toMillis() / 4));
+        sweeper.scheduleAtFixedRate(this::evictIdle, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Opens a session for a game, replacing any session with the same id.
+     *
+     * @param sessionId The caller's id for the game, e.g. the board feed's game id.
+     * @param fen Starting position, or null/blank for the standard initial position.
+     * @throws IllegalArgumentException if the FEN string is invalid.
+     */
+    public void open(String sessionId, String fen) {
+        GameState gameState = new GameState();
+        if (fen != null && !fen.isBlank()) {
+            gameState.loadFromFen(fen);
+        }
+        sessions.put(sessionId, new Session(gameState));
+    }
+
+    /**
+     * Checks a move against the session's current position and applies it if it is legal.
+     * A rejected move leaves the position unchanged, so the feed can send a correction.
+     *
+     * @param san The move in Standard Algebraic Notation.
+     */
+    public MoveVerdict submit(String sessionId, CharSequence san) {
+        Session session = sessions.get(sessionId);
+        if (session == null) {
+            return new MoveVerdict(false, 0, "No open session '" + sessionId + "': never opened, closed, or evicted after being idle.");
+        }
+        synchronized (session) {
+            session.lastActiveNanos = System.nanoTime();
+            try {
+                session.gameState.applyMove(SanHelper.sanToMove(san, session.gameState));
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                return new MoveVerdict(false, session.ply, "Logical error: " + e.getMessage());
+            }
+            return new MoveVerdict(true, ++session.ply, null);
+        }
+    }
+
+    /** @return True if a session with this id was open. */
+    public boolean close(String sessionId) {
+        return sessions.remove(sessionId) != null;
+    }
+
+    /** @return The number of moves accepted in the session, or -1 if it is not open. */
+    public int getPly(String sessionId) {
+        Session session = sessions.get(sessionId);
+        if (session == null) {
+            return -1;
+        }
+        synchronized (session) {
+            return session.ply;
+        }
+    }
+
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    /**
+     * Closes every session that has been idle for longer than the timeout.
+     * Runs periodically in the background; public so callers can force a sweep.
+     * @return The number of sessions evicted.
+     */
+    public int evictIdle() {
+        if (idleTimeoutNanos == 0) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        int evicted = 0;
+        for (Map.Entry<String, Session> entry : sessions.entrySet()) {
+            // Only removed if it is still the same session, in case the id was reopened meanwhile
+            if (now - entry.getValue().lastActiveNanos > idleTimeoutNanos && sessions.remove(entry.getKey(), entry.getValue())) {
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    /** Stops the background sweep and drops all sessions. */
+    @Override
+    public void close() {
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+        }
+        sessions.clear();
+    }
+}
@@ -1,107 +1,225 @@
 package chessvalidator;
 
+import chessvalidator.concurrent.AdaptiveExecutor;
+import chessvalidator.concurrent.ValidationPipeline;
+import chessvalidator.concurrent.VirtualThreads;
+import chessvalidator.concurrent.WorkStealingScheduler;
+import chessvalidator.io.DirectoryWatcher;
+import chessvalidator.io.FilePrefetcher;
+import chessvalidator.io.PgnFileDiscovery;
+import chessvalidator.io.PgnSource;
+import chessvalidator.model.SanResolutionCache;
 import chessvalidator.reports.FileValidationResult;
-import chessvalidator.reports.GameValidationResult;
-import org.jetbrains.annotations.NotNull;
+import chessvalidator.store.DuplicateDetector;
+import chessvalidator.store.FileManifest;
+import chessvalidator.store.OffHeapGameStore;
+import chessvalidator.store.ResultCache;
+import chessvalidator.store.RunJournal;
 
-import java.io.FileReader;
 import java.io.IOException;
 import java.io.Reader;
-import java.nio.file.*;
-import java.nio.file.attribute.BasicFileAttributes;
+import java.io.StringReader;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 public class Main {
 
     private static final boolean USE_MULTITHREADING = true; // Set to true to enable parallel processing
 
     public static void main(String[] args) {
-        if (args.length != 1) {
-            System.err.println("Usage: java Main <Tbilisi2015.pgn>");
+        ValidationOptions options;
+        try {
+            options = ValidationOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.err.println(ValidationOptions.USAGE);
             System.exit(1);
+            return;
         }
 
-        String inputPath = args[0];
-        Path path = Paths.get(inputPath);
+        String inputPath = options.getInputPath();
+        Path path = options.isStdin() ? null : Paths.get(inputPath);
 
-        if (!Files.exists(path)) {
+        if (path != null && !Files.exists(path)) {
             System.err.println("Error: Input path not found: " + inputPath);
             System.exit(1);
         }
 
-        List<Path> pgnFiles = findPgnFiles(path);
-
-        if (pgnFiles.isEmpty()) {
-            System.out.println("No .pgn files found in the specified path.");
+        if (options.isFollow()) {
+            if (path == null || !Files.isRegularFile(path) || !path.toString().toLowerCase().endsWith(".pgn")) {
+                System.err.println("Error: --follow needs a single plain .pgn file, got: " + inputPath);
+                System.exit(1);
+            }
+            follow(path, options);
             return;
         }
 
-        System.out.println("Found " + pgnFiles.size() + " PGN file(s). Starting validation...");
-
-        List<FileValidationResult> allResults = new ArrayList<>();
-        long startTime = System.currentTimeMillis();
-
-        if (USE_MULTITHREADING && pgnFiles.size() > 1) {
-            int numThreads = Runtime.getRuntime().availableProcessors();
-            System.out.println("Using " + numThreads + " threads for validation.");
-            ExecutorService executor = Executors.newFixedThreadPool(numThreads);
-            List<java.util.concurrent.Future<FileValidationResult>> futures = new ArrayList<>();
+        SanResolutionCache sanCache = options.getSanCacheEntries() > 0 ? new SanResolutionCache(options.getSanCacheEntries()) : null;
+        MovePrefixTrie.Statistics trieStatistics = options.isPrefixTrie() ? new MovePrefixTrie.Statistics() : null;
+        TriagePolicy triagePolicy = new TriagePolicy(options.getTier(), options.isFailFast(), options.getMaxErrors());
+        ValidationBudget budget = options.getBudget();
+        ResultCache resultCache = null;
+        if (options.getCachePath() != null) {
+            try {
+                resultCache = ResultCache.open(Paths.get(options.getCachePath()), GameValidator.RULES_VERSION);
+            } catch (IOException e) {
+                System.err.println("Error: Cannot open result cache " + options.getCachePath() + ": " + e.getMessage());
+                System.exit(1);
+            }
+        }
 
-            for (Path pgnFile : pgnFiles) {
-                futures.add(executor.submit(() -> validateFile(pgnFile)));
+        DuplicateDetector duplicateDetector = null;
+        if (options.getDuplicateHandling() != null) {
+            try {
+                duplicateDetector = DuplicateDetector.create(options.getDuplicateCapacity(),
+                        options.getDuplicateHandling() == ValidationOptions.DuplicateHandling.SKIP);
+            } catch (IOException e) {
+                System.err.println("Error: Cannot create duplicate detector: " + e.getMessage());
+                System.exit(1);
             }
+        }
 
-            executor.shutdown(); // Disable new tasks from being submitted
+        if (options.isWatch()) {
+            if (path == null || !Files.isDirectory(path)) {
+                System.err.println("Error: --watch needs a directory, got: " + inputPath);
+                System.exit(1);
+            }
+            watch(path, options, new ValidationEngine(options.getHeaderFilter(), resultCache, sanCache, budget,
+                    new RunState(null, duplicateDetector, null, triagePolicy, trieStatistics)));
+            return;
+        }
 
-            try {
-                // Wait a while for existing tasks to terminate
-                if (!executor.awaitTermination(60, TimeUnit.MINUTES)) { // Adjust timeout as needed
-                    System.err.println("Executor did not terminate in the specified time.");
-                    List<Runnable> droppedTasks = executor.shutdownNow(); // Cancel currently executing tasks
-                    System.err.println("Executor was shut down forcefully. " + droppedTasks.size() + " tasks were aborted.");
+        List<FileValidationResult> allResults;
+        // Stays open until the report is printed: the results read their headers from it
+        OffHeapGameStore gameStore = null;
+        // Deleted once the report is printed; until then an interrupted run can be resumed from it
+        RunJournal journal = null;
+        long startTime = System.currentTimeMillis();
+        if (path == null || isStream(path)) {
+            if (options.getJournalPath() != null) {
+                System.err.println("Error: --journal needs files or a directory; streamed input cannot be resumed.");
+                System.exit(1);
+            }
+            PgnSource stream = path == null ? PgnSource.stdin() : PgnSource.stream(path);
+            if (options.isOffHeap()) {
+                System.out.println("Note: --offheap has no effect on streamed input; games are dropped once validated.");
+            }
+            if (options.getManifestPath() != null) {
+                System.out.println("Note: --manifest has no effect on streamed input, which has no size or modification time.");
+            }
+            if (options.isPrefixTrie()) {
+                System.out.println("Note: --prefix-trie has no effect on streamed input; games are validated one by one as they arrive.");
+            }
+            if (options.getFileTimeoutMillis() > 0) {
+                System.out.println("Note: --file-timeout has no effect on streamed input, which may never end; the per-game budget still applies.");
+            }
+            allResults = List.of(validateStream(stream, options, new ValidationEngine(options.getHeaderFilter(), resultCache, sanCache,
+                    budget.withoutFileLimit(), new RunState(null, duplicateDetector, null, triagePolicy, trieStatistics))));
+        } else {
+            // Validation starts while the directory walk is still running
+            System.out.println("Discovering PGN files (.pgn, .pgn.gz, .zip) under " + path + " and starting validation...");
+            gameStore = options.isOffHeap() ? new OffHeapGameStore() : null;
+            FileManifest manifest = options.getManifestPath() == null ? null
+                    : FileManifest.load(Paths.get(options.getManifestPath()), GameValidator.RULES_VERSION, options.getFilterExpression());
+            if (options.getJournalPath() != null) {
+                journal = openJournal(options);
+            }
+            try (PgnFileDiscovery discovery = new PgnFileDiscovery(path, options.getDiscoveryBuffer()).start()) {
+                Iterator<PgnSource> pgnFiles = manifest != null ? manifest.changedFiles(discovery) : discovery;
+                if (journal != null) {
+                    pgnFiles = journal.remainingFiles(pgnFiles);
                 }
-
-                // Collect results from completed futures
-                for (java.util.concurrent.Future<FileValidationResult> future : futures) {
+                allResults = runValidation(pgnFiles, Files.isDirectory(path), options,
+                        new ValidationEngine(options.getHeaderFilter(), resultCache, sanCache, budget,
+                                new RunState(gameStore, duplicateDetector, journal, triagePolicy, trieStatistics)));
+                System.out.println("Found " + discovery.getDiscoveredCount() + " PGN file(s).");
+            }
+            if (journal != null) {
+                allResults = journal.merge(allResults);
+                System.out.println(journal.format());
+            }
+            if (manifest != null) {
+                allResults = manifest.merge(allResults);
+                System.out.println(manifest.format());
+                if (!triagePolicy.isDefault()) {
+                    // A later full run must not take these partial results for complete ones
+                    System.out.println("Note: --manifest was not updated because --tier, --fail-fast or --max-errors left games unreplayed.");
+                } else {
                     try {
-                        allResults.add(future.get());
-                    } catch (Exception e) {
-                        System.err.println("Error retrieving result from thread: " + e.getMessage());
-                        // Optionally create a FileValidationResult indicating the failure for that file
+                        manifest.save();
+                    } catch (IOException e) {
+                        System.err.println("Error writing manifest " + options.getManifestPath() + ": " + e.getMessage());
                     }
                 }
-
-            } catch (InterruptedException ie) {
-                // (Re-)Cancel if current thread also interrupted
-                executor.shutdownNow();
-                Thread.currentThread().interrupt(); // Preserve interrupt status
-                System.err.println("Validation was interrupted.");
             }
-
-        } else {
-            // Single-threaded execution
-            System.out.println("Using single thread for validation.");
-            for (Path pgnFile : pgnFiles) {
-                allResults.add(validateFile(pgnFile));
+        }
+        if (gameStore != null) {
+            System.out.println(gameStore.format());
+        }
+        if (sanCache != null) {
+            System.out.println(sanCache.format());
+        }
+        if (trieStatistics != null && trieStatistics.getPlies() > 0) {
+            System.out.println(trieStatistics.format());
+        }
+        if (!triagePolicy.isDefault()) {
+            System.out.println(triagePolicy.format());
+        }
+        if (duplicateDetector != null) {
+            System.out.println(duplicateDetector.format());
+            try {
+                duplicateDetector.close();
+            } catch (IOException e) {
+                System.err.println("Error closing duplicate detector: " + e.getMessage());
+            }
+        }
+        if (resultCache != null) {
+            System.out.println(resultCache.format());
+            try {
+                resultCache.close();
+            } catch (IOException e) {
+                System.err.println("Error closing result cache: " + e.getMessage());
             }
         }
-
-
         long endTime = System.currentTimeMillis();
         long duration = endTime - startTime;
 
+        if (allResults.isEmpty()) {
+            System.out.println("No .pgn, .pgn.gz or .zip files found in the specified path.");
+            deleteJournal(journal);
+            return;
+        }
+
         // Print results
         System.out.println("\n--- Validation Summary ---");
         int totalFiles = allResults.size();
-        long totalGames = allResults.stream().mapToLong(r -> r.getGameResults().size()).sum();
-        long invalidGames = allResults.stream().flatMap(r -> r.getGameResults().stream()).filter(gr -> !gr.isValid()).count();
+        long totalGames = allResults.stream().mapToLong(FileValidationResult::getGameCount).sum();
+        long invalidGames = allResults.stream().mapToLong(FileValidationResult::getInvalidGameCount).sum();
         long filesWithErrors = allResults.stream().filter(FileValidationResult::hasErrors).count();
+        long skippedGames = allResults.stream().mapToLong(FileValidationResult::getSkippedGameCount).sum();
+        long unvalidatedGames = allResults.stream().mapToLong(FileValidationResult::getUnvalidatedGameCount).sum();
+        long cancelledGames = allResults.stream().mapToLong(FileValidationResult::getCancelledGameCount).sum();
 
         System.out.printf("Processed %d files containing %d games in %d ms.%n", totalFiles, totalGames, duration);
+        if (options.getFilterExpression() != null) {
+            System.out.printf("Games skipped by filter '%s': %d%n", options.getFilterExpression(), skippedGames);
+        }
+        if (unvalidatedGames > 0) {
+            System.out.printf("Games not validated after reaching an error limit: %d%n", unvalidatedGames);
+        }
+        if (cancelledGames > 0) {
+            System.out.printf("Games cancelled for exceeding a budget: %d%n", cancelledGames);
+        }
         System.out.printf("Files with errors: %d%n", filesWithErrors);
         System.out.printf("Total invalid games (syntax or logical): %d%n", invalidGames);
 
@@ -109,58 +227,405 @@ public class Main {
         System.out.println("\n--- Detailed Report ---");
         allResults.forEach(System.out::println); // Uses FileValidationResult.toString()
 
+        if (gameStore != null) {
+            gameStore.close();
+        }
+        deleteJournal(journal);
         System.out.println("Validation complete.");
+        if (triagePolicy.isStopped()) {
+            System.exit(1); // Lets scripts gate on the first invalid game
+        }
     }
 
-    private static List<Path> findPgnFiles(Path startPath) {
-        List<Path> pgnFiles = new ArrayList<>();
+    // Creates the journal, or reopens it with --resume; exits if that fails. A shutdown hook writes the
+    // games validated since the last checkpoint when the run is stopped, e.g. by SIGTERM.
+    private static RunJournal openJournal(ValidationOptions options) {
+        Path journalFile = Paths.get(options.getJournalPath());
+        RunJournal journal;
         try {
-            if (Files.isDirectory(startPath)) {
-                Files.walkFileTree(startPath, new SimpleFileVisitor<>() {
-                    @Override
-                    public @NotNull FileVisitResult visitFile(Path file, @NotNull BasicFileAttributes attrs) {
-                        if (file.toString().toLowerCase().endsWith(".pgn")) {
-                            pgnFiles.add(file);
-                        }
-                        return FileVisitResult.CONTINUE;
-                    }
-                    @Override
-                    public @NotNull FileVisitResult visitFileFailed(Path file, @NotNull IOException exc) {
-                        System.err.println("Warning: Cannot access file " + file + ": " + exc.getMessage());
-                        return FileVisitResult.CONTINUE; // Skip problematic files/dirs
-                    }
-                });
-            } else if (Files.isRegularFile(startPath) && startPath.toString().toLowerCase().endsWith(".pgn")) {
-                pgnFiles.add(startPath);
+            journal = options.isResume()
+                    ? RunJournal.resume(journalFile, GameValidator.RULES_VERSION, options.getFilterExpression(), options.getInputPath())
+                    : RunJournal.create(journalFile, GameValidator.RULES_VERSION, options.getFilterExpression(), options.getInputPath());
+        } catch (FileAlreadyExistsException e) {
+            System.err.println("Error: Journal " + journalFile + " exists from an unfinished run; pass --resume to continue it, or delete it to start over.");
+            System.exit(1);
+            return null;
+        } catch (IOException e) {
+            System.err.println("Error: Cannot open journal " + journalFile + ": " + e.getMessage());
+            System.exit(1);
+            return null;
+        }
+        RunJournal hooked = journal;
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                hooked.close(); // Does nothing if the run completed and the journal is gone
+            } catch (IOException e) {
+                System.err.println("Error writing final checkpoint to " + journalFile + ": " + e.getMessage());
             }
+        }, "journal-checkpoint"));
+        return journal;
+    }
+
+    private static void deleteJournal(RunJournal journal) {
+        if (journal != null) {
+            try {
+                journal.delete();
+            } catch (IOException e) {
+                System.err.println("Error deleting journal: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Validates the complete games in the file, then keeps validating games as they are appended
+     * until the program is stopped. Each update prints a report for the new games only.
+     */
+    private static void follow(Path path, ValidationOptions options) {
+        PgnFollower follower = new PgnFollower(path, options.getHeaderFilter());
+        System.out.println("Following " + path + "; new games are validated as they complete. Stop with Ctrl+C.");
+        try {
+            follower.follow(update -> {
+                System.out.print(update); // Uses FileValidationResult.toString()
+                System.out.printf("Follow: %d new game(s), %d invalid; %d games, %d bytes validated so far.%n",
+                        update.getGameCount(), update.getInvalidGameCount(), follower.getGameCount(), follower.getOffset());
+            });
         } catch (IOException e) {
-            System.err.println("Error walking file tree: " + e.getMessage());
+            System.err.println("Error following file " + path + ": " + e.getMessage());
+            System.exit(1);
         }
-        return pgnFiles;
     }
 
-    private static FileValidationResult validateFile(Path pgnFile) {
-        System.out.println("Validating: " + pgnFile + " on thread: " + Thread.currentThread().getName());
-        FileValidationResult fileResult = new FileValidationResult(pgnFile.toString());
-        PgnParser parser = new PgnParser();
-        GameValidator validator = new GameValidator();
+    /**
+     * Keeps running and validates each .pgn, .pgn.gz or .zip file under the directory that is created or
+     * modified, once it has had no further changes for the debounce interval. Files already there are not
+     * validated. Each file's report is printed as soon as its validation completes. Validations run on
+     * a pool of the configured number of threads, so a large upload does not hold up the ones after it.
+     */
+    private static void watch(Path directory, ValidationOptions options, ValidationEngine engine) {
+        int numThreads = options.getThreads();
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        try (DirectoryWatcher watcher = new DirectoryWatcher(directory, options.getDebounce())) {
+            System.out.println("Watching " + directory + " for new or changed PGN files with " + numThreads
+                    + " validation thread(s) and " + options.getDebounce().toMillis() + " ms debounce. Stop with Ctrl+C.");
+            watcher.watch(file -> {
+                List<PgnSource> sources;
+                try {
+                    sources = PgnSource.expand(file);
+                } catch (IOException e) {
+                    System.err.println("Error reading file " + file + ": " + e.getMessage());
+                    return;
+                }
+                for (PgnSource source : sources) {
+                    executor.execute(() -> {
+                        FileValidationResult result = validateFile(source, options, engine);
+                        // One print call per report, so reports from concurrent validations do not interleave
+                        System.out.print(result + String.format("Watch: %s: %d game(s), %d invalid.%n",
+                                source.name(), result.getGameCount(), result.getInvalidGameCount()));
+                    });
+                }
+            });
+        } catch (IOException e) {
+            System.err.println("Error watching directory " + directory + ": " + e.getMessage());
+            System.exit(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // Named pipes and other special files have no size and may never end
+    private static boolean isStream(Path path) {
+        return !Files.isRegularFile(path) && !Files.isDirectory(path);
+    }
+
+    /**
+     * Validates standard input or a named pipe. The stream is parsed on one thread as the text arrives
+     * while the configured number of validator threads replays the games, whatever the execution mode.
+     * Game results are printed as they complete and not kept, and the queue between parser and validators
+     * is bounded, so memory stays flat on endless streams.
+     */
+    private static FileValidationResult validateStream(PgnSource stream, ValidationOptions options, ValidationEngine engine) {
+        ValidationPipeline pipeline = new ValidationPipeline(1, options.getThreads(), options.getQueueCapacity());
+        pipeline.setHeaderFilter(options.getHeaderFilter());
+        pipeline.setResultListener(System.out::print); // Uses GameValidationResult.toString()
+        pipeline.setResultCache(engine.getResultCache());
+        pipeline.setSanCache(engine.getSanCache());
+        pipeline.setDuplicateDetector(engine.getRunState().duplicateDetector());
+        pipeline.setTriagePolicy(engine.getRunState().triagePolicy());
+        pipeline.setBudget(engine.getBudget());
+        System.out.println("Validating stream " + stream.name() + " with " + pipeline.getValidatorThreads() + " validator thread(s).");
+        try {
+            return pipeline.run(List.of(stream).iterator()).get(0);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            System.err.println("Validation was interrupted.");
+            FileValidationResult interrupted = new FileValidationResult(stream.name());
+            interrupted.addFileError("Validation was interrupted.");
+            return interrupted;
+        }
+    }
+
+    /**
+     * Validates the given files using the execution mode selected in the options.
+     * @return One result per file; files whose task failed are omitted.
+     */
+    static List<FileValidationResult> runValidation(List<PgnSource> pgnFiles, ValidationOptions options) {
+        return runValidation(pgnFiles.iterator(), pgnFiles.size() > 1, options,
+                new ValidationEngine(options.getHeaderFilter(), null, null, ValidationTier.FULL, ValidationBudget.UNLIMITED));
+    }
 
-        try (Reader reader = new FileReader(pgnFile.toFile())) {
-            List<PgnParser.ParsedGame> parsedGames = parser.parse(reader, fileResult);
+    /**
+     * Validates files as the iterator produces them, so a discovery walk can overlap with validation.
+     * The iterator may block; it is only advanced by one thread at a time.
+     *
+     * @param multipleFiles Whether more than one file is expected; selects the default mode.
+     * @param engine Validates each file with the caches, budget and run state shared by all files of the run.
+     * @return One result per file in iteration order; files whose task failed are omitted.
+     */
+    static List<FileValidationResult> runValidation(Iterator<PgnSource> pgnFiles, boolean multipleFiles, ValidationOptions options,
+                                                    ValidationEngine engine) {
+        ValidationOptions.ExecutionMode mode = options.getExecutionMode();
+        if (mode == null) {
+            mode = (USE_MULTITHREADING && multipleFiles) ? ValidationOptions.ExecutionMode.FIXED_POOL : ValidationOptions.ExecutionMode.SINGLE;
+        }
+        RunState run = engine.getRunState();
+        if (run.trieStatistics() != null
+                && (mode == ValidationOptions.ExecutionMode.PIPELINE || mode == ValidationOptions.ExecutionMode.WORK_STEALING)) {
+            System.out.println("Note: --prefix-trie is ignored in pipeline and work-stealing modes, which validate games one by one.");
+        } else if (run.trieStatistics() != null && run.triagePolicy().hasLimits()) {
+            System.out.println("Note: --prefix-trie is ignored with --fail-fast or --max-errors, which check each game before validating it.");
+        }
+        pgnFiles = run.triagePolicy().untilStopped(pgnFiles);
+        if (options.getPrefetchDepth() > 0) {
+            if (mode == ValidationOptions.ExecutionMode.WORK_STEALING) {
+                System.out.println("Note: --prefetch is ignored in work-stealing mode, which sizes every file before reading any.");
+            } else {
+                try (FilePrefetcher prefetcher = new FilePrefetcher(pgnFiles, options.getPrefetchDepth(), options.getIoThreads())) {
+                    List<FileValidationResult> results = runMode(mode, prefetcher, options, engine);
+                    System.out.println(prefetcher.format());
+                    return results;
+                }
+            }
+        }
+        return runMode(mode, pgnFiles, options, engine);
+    }
 
-            for (PgnParser.ParsedGame parsedGame : parsedGames) {
-                GameValidationResult gameResult = validator.validate(parsedGame);
-                fileResult.addGameResult(gameResult);
+    private static List<FileValidationResult> runMode(ValidationOptions.ExecutionMode mode, Iterator<PgnSource> pgnFiles,
+                                                      ValidationOptions options, ValidationEngine engine) {
+        return switch (mode) {
+            case SINGLE -> runSingleThreaded(pgnFiles, options, engine);
+            case FIXED_POOL -> runFixedPool(pgnFiles, options, engine);
+            case PIPELINE -> runPipeline(pgnFiles, options, engine);
+            case VIRTUAL_THREADS -> runVirtualThreads(pgnFiles, options, engine);
+            case WORK_STEALING -> {
+                // Largest-first ordering needs every file size up front
+                List<PgnSource> allFiles = new ArrayList<>();
+                pgnFiles.forEachRemaining(allFiles::add);
+                yield runWorkStealing(allFiles, options, engine);
             }
+        };
+    }
 
+    private static List<FileValidationResult> runSingleThreaded(Iterator<PgnSource> pgnFiles, ValidationOptions options, ValidationEngine engine) {
+        System.out.println("Using single thread for validation.");
+        List<FileValidationResult> allResults = new ArrayList<>();
+        while (pgnFiles.hasNext()) {
+            allResults.add(validateFile(pgnFiles.next(), options, engine));
+        }
+        return allResults;
+    }
+
+    private static List<FileValidationResult> runFixedPool(Iterator<PgnSource> pgnFiles, ValidationOptions options, ValidationEngine engine) {
+        if (options.isAdaptive()) {
+            return runAdaptivePool(pgnFiles, options, engine);
+        }
+        int numThreads = options.getThreads();
+        System.out.println("Using " + numThreads + " threads for validation.");
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        return submitAll(executor, pgnFiles, numThreads + options.getDiscoveryBuffer(), pgnFile -> validateFile(pgnFile, options, engine));
+    }
+
+    /** Like the fixed pool, but the pool size follows the measured ratio of CPU time to wall time. */
+    private static List<FileValidationResult> runAdaptivePool(Iterator<PgnSource> pgnFiles, ValidationOptions options, ValidationEngine engine) {
+        AdaptiveExecutor executor = new AdaptiveExecutor(options.getThreads(), options.getMinThreads(), options.getMaxThreads());
+        System.out.println("Using adaptive pool starting at " + executor.getCorePoolSize() + " threads, between "
+                + executor.getMinThreads() + " and " + executor.getMaxThreads() + ".");
+        List<FileValidationResult> results = submitAll(executor, pgnFiles, executor.getMaxThreads() + options.getDiscoveryBuffer(),
+                pgnFile -> validateFile(pgnFile, options, engine));
+        System.out.println(executor.format());
+        return results;
+    }
+
+    /**
+     * One virtual thread per file, so blocking reads never occupy a CPU slot.
+     * Parsing and replay are throttled to the configured thread count by a semaphore.
+     */
+    private static List<FileValidationResult> runVirtualThreads(Iterator<PgnSource> pgnFiles, ValidationOptions options, ValidationEngine engine) {
+        int cpuSlots = options.getThreads();
+        if (!VirtualThreads.isSupported()) {
+            System.out.println("Virtual threads are not available on this JVM, falling back to a cached thread pool.");
+        }
+        System.out.println("Using one virtual thread per file with " + cpuSlots + " concurrent validation slots.");
+        ExecutorService executor = VirtualThreads.newPerTaskExecutor();
+        Semaphore cpuPermits = new Semaphore(cpuSlots);
+        return submitAll(executor, pgnFiles, options.getDiscoveryBuffer(), pgnFile -> validateFileThrottled(pgnFile, cpuPermits, options, engine));
+    }
+
+    /**
+     * Submits one task per file, blocking once maxInFlight tasks are queued or running
+     * so that a fast discovery walk cannot flood the executor's queue.
+     */
+    private static List<FileValidationResult> submitAll(ExecutorService executor, Iterator<PgnSource> pgnFiles, int maxInFlight,
+                                                        Function<PgnSource, FileValidationResult> task) {
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        List<java.util.concurrent.Future<FileValidationResult>> futures = new ArrayList<>();
+        try {
+            while (pgnFiles.hasNext()) {
+                PgnSource pgnFile = pgnFiles.next();
+                inFlight.acquire();
+                futures.add(executor.submit(() -> {
+                    try {
+                        return task.apply(pgnFile);
+                    } finally {
+                        inFlight.release();
+                    }
+                }));
+            }
+        } catch (InterruptedException | IllegalStateException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+            System.err.println("Validation was interrupted.");
+        }
+        return awaitResults(executor, futures);
+    }
+
+    // Shuts the executor down and collects the futures in submission order
+    private static List<FileValidationResult> awaitResults(ExecutorService executor, List<java.util.concurrent.Future<FileValidationResult>> futures) {
+        List<FileValidationResult> allResults = new ArrayList<>();
+        executor.shutdown(); // Disable new tasks from being submitted
+
+        try {
+            // Wait a while for existing tasks to terminate
+            if (!executor.awaitTermination(60, TimeUnit.MINUTES)) { // Adjust timeout as needed
+                System.err.println("Executor did not terminate in the specified time.");
+                List<Runnable> droppedTasks = executor.shutdownNow(); // Cancel currently executing tasks
+                System.err.println("Executor was shut down forcefully. " + droppedTasks.size() + " tasks were aborted.");
+            }
+
+            // Collect results from completed futures
+            for (java.util.concurrent.Future<FileValidationResult> future : futures) {
+                try {
+                    allResults.add(future.get());
+                } catch (Exception e) {
+                    System.err.println("Error retrieving result from thread: " + e.getMessage());
+                    // Optionally create a FileValidationResult indicating the failure for that file
+                }
+            }
+
+        } catch (InterruptedException ie) {
+            // (Re-)Cancel if current thread also interrupted
+            executor.shutdownNow();
+            Thread.currentThread().interrupt(); // Preserve interrupt status
+            System.err.println("Validation was interrupted.");
+        }
+        return allResults;
+    }
+
+    private static List<FileValidationResult> runPipeline(Iterator<PgnSource> pgnFiles, ValidationOptions options, ValidationEngine engine) {
+        ValidationPipeline pipeline = new ValidationPipeline(options.getParserThreads(), options.getThreads(), options.getQueueCapacity());
+        pipeline.setHeaderFilter(options.getHeaderFilter());
+        pipeline.setGameStore(engine.getRunState().gameStore());
+        pipeline.setResultCache(engine.getResultCache());
+        pipeline.setSanCache(engine.getSanCache());
+        pipeline.setDuplicateDetector(engine.getRunState().duplicateDetector());
+        pipeline.setTriagePolicy(engine.getRunState().triagePolicy());
+        pipeline.setBudget(engine.getBudget());
+        System.out.println("Using pipeline with " + pipeline.getParserThreads() + " parser thread(s), "
+                + pipeline.getValidatorThreads() + " validator thread(s) and queue capacity " + options.getQueueCapacity() + ".");
+        long start = System.nanoTime();
+        try {
+            List<FileValidationResult> results = pipeline.run(pgnFiles);
+            System.out.println(pipeline.getStats().format(pipeline.getParserThreads(), pipeline.getValidatorThreads(), System.nanoTime() - start));
+            return results;
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            System.err.println("Validation was interrupted.");
+            return new ArrayList<>();
+        }
+    }
+
+    private static List<FileValidationResult> runWorkStealing(List<PgnSource> pgnFiles, ValidationOptions options, ValidationEngine engine) {
+        WorkStealingScheduler scheduler = new WorkStealingScheduler(options.getThreads(), options.getSplitSizeBytes(), options.getGamesPerTask());
+        scheduler.setHeaderFilter(options.getHeaderFilter());
+        scheduler.setGameStore(engine.getRunState().gameStore());
+        scheduler.setResultCache(engine.getResultCache());
+        scheduler.setSanCache(engine.getSanCache());
+        scheduler.setDuplicateDetector(engine.getRunState().duplicateDetector());
+        scheduler.setTriagePolicy(engine.getRunState().triagePolicy());
+        scheduler.setBudget(engine.getBudget());
+        System.out.println("Using work-stealing scheduler with " + scheduler.getParallelism() + " threads, largest files first.");
+        List<FileValidationResult> results = scheduler.run(pgnFiles);
+        System.out.printf("Work-stealing run took %d ms; tail after first idle worker: %d ms.%n",
+                scheduler.getRunMillis(), scheduler.getTailLatencyMillis());
+        return results;
+    }
+
+    private static FileValidationResult validateFile(PgnSource pgnFile, ValidationOptions options, ValidationEngine engine) {
+        System.out.println("Validating: " + pgnFile.name() + " on thread: " + Thread.currentThread().getName());
+        FileValidationResult fileResult = new FileValidationResult(pgnFile.name());
+
+        try (Reader reader = pgnFile.openReader()) {
+            engine.validate(reader, fileResult);
         } catch (IOException e) {
-            System.err.println("Error reading file " + pgnFile + ": " + e.getMessage());
+            System.err.println("Error reading file " + pgnFile.name() + ": " + e.getMessage());
             fileResult.addFileError("Failed to read file: " + e.getMessage());
         } catch (Exception e) {
-            System.err.println("Unexpected error during validation of " + pgnFile + ": " + e.getMessage());
+            System.err.println("Unexpected error during validation of " + pgnFile.name() + ": " + e.getMessage());
             fileResult.addFileError("Unexpected validation error: " + e.getMessage());
             e.printStackTrace(); // Log stack trace for unexpected errors
         }
         return fileResult;
     }
-}
\ No newline at end of file
+
+    /**
+     * Variant of validateFile for the virtual-thread mode: the blocking read happens first without
+     * holding a permit, then parsing and replay run while holding one of the CPU permits.
+     */
+    private static FileValidationResult validateFileThrottled(PgnSource pgnFile, Semaphore cpuPermits, ValidationOptions options,
+                                                              ValidationEngine engine) {
+        FileValidationResult fileResult = new FileValidationResult(pgnFile.name());
+        try {
+            String content;
+            try (Reader reader = pgnFile.openReader()) {
+                content = readFully(reader);
+            }
+            cpuPermits.acquire();
+            try {
+                System.out.println("Validating: " + pgnFile.name() + " on thread: " + Thread.currentThread());
+                engine.validate(new StringReader(content), fileResult);
+            } finally {
+                cpuPermits.release();
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading file " + pgnFile.name() + ": " + e.getMessage());
+            fileResult.addFileError("Failed to read file: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fileResult.addFileError("Validation was interrupted.");
+        } catch (Exception e) {
+            System.err.println("Unexpected error during validation of " + pgnFile.name() + ": " + e.getMessage());
+            fileResult.addFileError("Unexpected validation error: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return fileResult;
+    }
+
+    private static String readFully(Reader reader) throws IOException {
+        StringBuilder content = new StringBuilder();
+        char[] buffer = new char[16 * 1024];
+        int read;
+        while ((read = reader.read(buffer)) != -1) {
+            content.append(buffer, 0, read);
+        }
+        return content.toString();
+    }
+}
@@ -0,0 +1,119 @@
+package chessvalidator;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * The main lines of a batch of games starting from the same position, merged on their common prefixes.
+ * Each node is one SAN token reached by the path from the root; games are numbered by their position in
+ * the batch and recorded at the node where their main line ends.
+ * <p>
+ * Children are kept as a sibling list rather than a map: past the first few plies almost every node has
+ * a single child, and a list costs two references per node. Tokens must match exactly to be shared, so
+ * "Nf3" and "Nf3+" are separate children and each game keeps its own move text in error messages.
+ */
+final class MovePrefixTrie {
+
+    /** Plies saved by batch validation over a whole run; validators on any thread add to it. */
+    static final class Statistics {
+        private final LongAdder plies = new LongAdder();
+        private final LongAdder replayedPlies = new LongAdder();
+
+        /** Adds the main-line plies of finished batches and how many of them were replayed. */
+        void add(long batchPlies, long batchReplayedPlies) {
+            plies.add(batchPlies);
+            replayedPlies.add(batchReplayedPlies);
+        }
+
+        long getPlies() { return plies.sum(); }
+        long getReplayedPlies() { return replayedPlies.sum(); }
+
+        /** @return A one-line summary for the end of a run. */
+        String format() {
+            long total = getPlies();
+            long replayed = getReplayedPlies();
+            return String.format("Prefix trie: replayed %d of %d main-line plies (%.1f%% saved).",
+                    replayed, total, total == 0 ? 0.0 : 100.0 * (total - replayed) / total);
+        }
+    }
+
+    static final class Node {
+        private final String san;
+        private Node firstChild;
+        private Node nextSibling;
+        private int[] endingGames;
+        private int endingCount;
+
+        private Node(String san) {
+            this.san = san;
+        }
+
+        /** @return The move leading to this node; null for the root. */
+        String san() { return san; }
+    }
+
+    private final Node root = new Node(null);
+    private long plyCount;
+    private int nodeCount;
+
+    /** Adds the main line of the game numbered {@code game}. */
+    void add(int game, List<? extends CharSequence> sanMoves) {
+        Node node = root;
+        for (CharSequence sanMove : sanMoves) {
+            node = child(node, sanMove);
+        }
+        if (node.endingGames == null) {
+            node.endingGames = new int[1];
+        } else if (node.endingCount == node.endingGames.length) {
+            node.endingGames = Arrays.copyOf(node.endingGames, node.endingCount * 2);
+        }
+        node.endingGames[node.endingCount++] = game;
+        plyCount += sanMoves.size();
+    }
+
+    private Node child(Node parent, CharSequence sanMove) {
+        for (Node child = parent.firstChild; child != null; child = child.nextSibling) {
+            if (child.san.contentEquals(sanMove)) {
+                return child;
+            }
+        }
+        Node child = new Node(sanMove.toString());
+        child.nextSibling = parent.firstChild;
+        parent.firstChild = child;
+        nodeCount++;
+        return child;
+    }
+
+    Node root() { return root; }
+
+    /** Passes each child of the node to the action. */
+    static void forEachChild(Node node, Consumer<Node> action) {
+        for (Node child = node.firstChild; child != null; child = child.nextSibling) {
+            action.accept(child);
+        }
+    }
+
+    /** Passes the number of every game whose main line passes through or ends at the node. */
+    static void forEachGame(Node node, IntConsumer action) {
+        Deque<Node> pending = new ArrayDeque<>();
+        pending.push(node);
+        while (!pending.isEmpty()) {
+            Node next = pending.pop();
+            for (int i = 0; i < next.endingCount; i++) {
+                action.accept(next.endingGames[i]);
+            }
+            forEachChild(next, pending::push);
+        }
+    }
+
+    /** @return The total length of all main lines added. */
+    long getPlyCount() { return plyCount; }
+
+    /** @return The number of distinct non-empty prefixes, i.e. the most plies a replay of the trie makes. */
+    int getNodeCount() { return nodeCount; }
+}
@@ -0,0 +1,160 @@
+package chessvalidator;
+
+import chessvalidator.reports.FileValidationResult;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+
+/**
+ * Follows a PGN file that keeps growing, such as a live broadcast relay, and validates only
+ * the games appended since the last update.
+ * <p>
+ * The follower remembers the byte offset just past the last complete game and the number of games
+ * before it. Each update reads from that offset to the end of the file, validates the complete games
+ * it finds and moves the offset past them. A game still being written is left for the next update, so
+ * the cost of an update grows with the new data only.
+ * <p>
+ * If the file shrinks below the offset (truncation), is replaced by a different file (rotation,
+ * detected through the file key, e.g. the inode) or no longer ends its validated part with the same
+ * bytes (rewritten in place), following starts over from the beginning.
+ * Not thread-safe; meant to be driven by one thread.
+ */
+public class PgnFollower {
+
+    private static final long POLL_FALLBACK_MILLIS = 1000; // Change notifications are not delivered on every file system
+    private static final int TAIL_CHECK_BYTES = 64;
+
+    private final Path file;
+    private final PgnParser parser;
+    private final GameValidator validator = new GameValidator();
+    private long offset;        // Just past the last complete game validated
+    private int nextGameIndex;  // Games before offset, including skipped ones
+    private Object fileKey;     // Identity of the file offset refers to; null if the file system has none
+    private byte[] tail = new byte[0]; // Last bytes before offset, to notice a file rewritten past its old length
+    private int updateCount;
+
+    public PgnFollower(Path file, HeaderFilter headerFilter) {
+        this.file = file;
+        this.parser = new PgnParser(headerFilter != null ? headerFilter : HeaderFilter.ACCEPT_ALL);
+    }
+
+    /**
+     * Validates the complete games appended since the last call.
+     * @return The result for the new games, or null if no complete game was added.
+     * @throws IOException if the file cannot be read; a missing file (mid-rotation) just returns null.
+     */
+    public FileValidationResult update() throws IOException {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return null; // Rotated away; the new file has not been created yet
+        }
+        if (!Objects.equals(attributes.fileKey(), fileKey) || attributes.size() < offset) {
+            startOver(attributes.fileKey());
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // Re-read the end of the last update too: if it changed, the file was rewritten in place
+            long readFrom = offset - tail.length;
+            long available = channel.size() - readFrom;
+            if (available <= tail.length) {
+                return null;
+            }
+            if (available > Integer.MAX_VALUE - 8) {
+                throw new IOException("More than 2 GB appended to " + file + " since the last update");
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) available);
+            while (buffer.hasRemaining() && channel.read(buffer, readFrom + buffer.position()) > 0) {
+                // Read until everything appended so far is in
+            }
+            byte[] text = buffer.array();
+            if (!Arrays.equals(text, 0, tail.length, tail, 0, tail.length)) {
+                startOver(fileKey);
+                return update();
+            }
+
+            int end = PgnParser.endOfLastCompleteGame(text, buffer.position());
+            if (end <= tail.length) {
+                return null; // Only part of a game so far
+            }
+            FileValidationResult result = validate(text, tail.length, end - tail.length);
+            offset = readFrom + end;
+            tail = Arrays.copyOfRange(text, Math.max(0, end - TAIL_CHECK_BYTES), end);
+            updateCount++;
+            return result;
+        }
+    }
+
+    private void startOver(Object newFileKey) {
+        if (offset > 0) {
+            System.out.println("Follow: " + file + " was truncated or replaced, starting over from the beginning.");
+        }
+        fileKey = newFileKey;
+        offset = 0;
+        tail = new byte[0];
+        nextGameIndex = 0;
+    }
+
+    private FileValidationResult validate(byte[] text, int from, int length) throws IOException {
+        FileValidationResult result = new FileValidationResult(file.toString());
+        int emitted = parser.parse(
+                new InputStreamReader(new ByteArrayInputStream(text, from, length), Charset.defaultCharset()),
+                result, game -> result.addGameResult(validator.validate(game)), nextGameIndex);
+        nextGameIndex += emitted + result.getSkippedGameCount();
+        return result;
+    }
+
+    /**
+     * Validates what is in the file now, then blocks and validates new games whenever the file changes,
+     * until the calling thread is interrupted. Changes are picked up from file-system notifications,
+     * with a periodic check as a fallback.
+     *
+     * @param onUpdate Receives the result of each update that found new games.
+     */
+    public void follow(Consumer<FileValidationResult> onUpdate) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        try (WatchService watcher = directory.getFileSystem().newWatchService()) {
+            directory.register(watcher, ENTRY_CREATE, ENTRY_MODIFY);
+            while (!Thread.currentThread().isInterrupted()) {
+                FileValidationResult result = update();
+                if (result != null) {
+                    onUpdate.accept(result);
+                }
+                WatchKey key = watcher.poll(POLL_FALLBACK_MILLIS, TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    for (WatchEvent<?> ignored : key.pollEvents()) {
+                        // Any change in the directory triggers an update; unrelated ones cost one stat call
+                    }
+                    key.reset();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public long getOffset() { return offset; }
+    public int getGameCount() { return nextGameIndex; }
+    public int getUpdateCount() { return updateCount; }
+}
@@ -0,0 +1,183 @@
+package chessvalidator;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compact header map for one game.
+ * <p>
+ * The seven-tag roster (Event, Site, Date, Round, White, Black, Result) lives in fixed fields.
+ * The parser stores the raw header line there; the value is cut out and interned only when it is
+ * first read. Reports usually read just Site, Date, White and Black, and games whose headers are
+ * never read never pay for the substrings at all. Other tags go into an overflow map that is only
+ * created when such a tag appears.
+ * <p>
+ * Like HashMap, this class is not safe for concurrent access. Handing a game from one thread
+ * to another through a queue or a future is enough.
+ */
+public final class PgnHeaders extends AbstractMap<String, String> {
+
+    public static final List<String> SEVEN_TAG_ROSTER = List.of("Event", "Site", "Date", "Round", "White", "Black", "Result");
+
+    // Roster slots: the raw "[Tag "value"]" line until resolved, then the value
+    private String event;
+    private String site;
+    private String date;
+    private String round;
+    private String white;
+    private String black;
+    private String result;
+    private byte resolvedMask; // Bit i set: roster slot i holds the value, not the raw line
+    private Map<String, String> overflow;
+
+    /**
+     * Stores a header line that already matched the PGN tag syntax {@code [Key "Value"]}.
+     * Roster values are extracted lazily; other tags are stored right away.
+     *
+     * @param key The tag name.
+     * @param headerLine The trimmed header line.
+     */
+    public void putRaw(String key, String headerLine) {
+        int index = rosterIndex(key);
+        if (index >= 0) {
+            setSlot(index, headerLine);
+            resolvedMask &= (byte) ~(1 << index);
+        } else {
+            putOverflow(StringInterner.SHARED.intern(key), extractValue(headerLine));
+        }
+    }
+
+    @Override
+    public String get(Object key) {
+        if (!(key instanceof String tag)) {
+            return null;
+        }
+        int index = rosterIndex(tag);
+        if (index >= 0) {
+            return resolve(index);
+        }
+        return overflow == null ? null : overflow.get(tag);
+    }
+
+    @Override
+    public String getOrDefault(Object key, String defaultValue) {
+        String value = get(key);
+        return value != null ? value : defaultValue;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public String put(String key, String value) {
+        if (value == null) {
+            throw new NullPointerException("Header values cannot be null");
+        }
+        int index = rosterIndex(key);
+        if (index >= 0) {
+            String previous = resolve(index);
+            setSlot(index, value);
+            resolvedMask |= (byte) (1 << index);
+            return previous;
+        }
+        return putOverflow(key, value);
+    }
+
+    @Override
+    public int size() {
+        int size = overflow == null ? 0 : overflow.size();
+        for (int i = 0; i < SEVEN_TAG_ROSTER.size(); i++) {
+            if (getSlot(i) != null) size++;
+        }
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /** Read-only snapshot: roster tags first, in roster order, then other tags in the order they appeared. */
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+        Map<String, String> all = new LinkedHashMap<>();
+        for (int i = 0; i < SEVEN_TAG_ROSTER.size(); i++) {
+            String value = resolve(i);
+            if (value != null) {
+                all.put(SEVEN_TAG_ROSTER.get(i), value);
+            }
+        }
+        if (overflow != null) {
+            all.putAll(overflow);
+        }
+        return Collections.unmodifiableMap(all).entrySet();
+    }
+
+    private String putOverflow(String key, String value) {
+        if (overflow == null) {
+            overflow = new LinkedHashMap<>(4);
+        }
+        return overflow.put(key, value);
+    }
+
+    private String resolve(int index) {
+        String slot = getSlot(index);
+        if (slot == null || (resolvedMask & (1 << index)) != 0) {
+            return slot;
+        }
+        String value = extractValue(slot);
+        setSlot(index, value);
+        resolvedMask |= (byte) (1 << index);
+        return value;
+    }
+
+    // The value sits between the first and the last quote of a line matching [Key "Value"]
+    private static String extractValue(String headerLine) {
+        int start = headerLine.indexOf('"') + 1;
+        int end = headerLine.lastIndexOf('"');
+        return StringInterner.SHARED.intern(headerLine, start, Math.max(start, end));
+    }
+
+    private static int rosterIndex(String key) {
+        return switch (key) {
+            case "Event" -> 0;
+            case "Site" -> 1;
+            case "Date" -> 2;
+            case "Round" -> 3;
+            case "White" -> 4;
+            case "Black" -> 5;
+            case "Result" -> 6;
+            default -> -1;
+        };
+    }
+
+    private String getSlot(int index) {
+        return switch (index) {
+            case 0 -> event;
+            case 1 -> site;
+            case 2 -> date;
+            case 3 -> round;
+            case 4 -> white;
+            case 5 -> black;
+            default -> result;
+        };
+    }
+
+    private void setSlot(int index, String value) {
+        switch (index) {
+            case 0 -> event = value;
+            case 1 -> site = value;
+            case 2 -> date = value;
+            case 3 -> round = value;
+            case 4 -> white = value;
+            case 5 -> black = value;
+            default -> result = value;
+        }
+    }
+}
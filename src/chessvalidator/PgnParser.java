@@ -6,28 +6,57 @@ import chessvalidator.reports.PgnErrorInfo;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Deque;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+/**
+ * Splits PGN text into games: headers, main line, variations and syntax errors.
+ * <p>
+ * Not thread-safe: the header matcher and the movetext buffer are reused by every {@link #parse} call,
+ * so each thread needs its own parser.
+ */
 public class PgnParser {
 
     // Regex for standard PGN header tags: [Key "Value"]
     private static final Pattern HEADER_PATTERN = Pattern.compile("^\\[\\s*(\\w+)\\s*\"(.*?)\"\\s*\\]$");
-    // Regex for move number indicators (e.g., "1.", "1...", "12.")
-    private static final Pattern MOVE_NUMBER_PATTERN = Pattern.compile("^\\d+\\.{1,3}");
-    // Regex for game termination markers
-    private static final Pattern RESULT_PATTERN = Pattern.compile("^(1-0|0-1|1/2-1/2|\\*)$");
-    // Regex for comments (simplistic: assumes comments don't contain braces)
-    private static final Pattern COMMENT_PATTERN = Pattern.compile("\\{[^}]*\\}");
-    // Regex for variations (simplistic: assumes variations don't contain nested parens)
-    private static final Pattern VARIATION_PATTERN = Pattern.compile("\\([^)]*\\)");
-    // Regex for Numeric Annotation Glyphs (NAGs), e.g., $1, $10
-    private static final Pattern NAG_PATTERN = Pattern.compile("\\$\\d+");
+    // A movetext buffer grown past this by one huge game is dropped after the file instead of kept
+    private static final int MAX_RETAINED_MOVE_TEXT = 64 * 1024;
 
+    private final HeaderFilter headerFilter;
+    private final ValidationBudget budget;
+    // Scratch reused by every parse call, so a parser serves one thread at a time
+    private final Matcher headerTag = HEADER_PATTERN.matcher("");
+    private StringBuilder moveTextBuffer = new StringBuilder();
+
+    public PgnParser() {
+        this(HeaderFilter.ACCEPT_ALL);
+    }
+
+    /**
+     * @param headerFilter Games whose headers do not match are skipped without tokenizing their movetext.
+     *                     They are counted in {@link FileValidationResult#getSkippedGameCount()} but keep
+     *                     their position, so game numbers still match the file.
+     */
+    public PgnParser(HeaderFilter headerFilter) {
+        this(headerFilter, ValidationBudget.UNLIMITED);
+    }
+
+    /**
+     * @param budget A game whose movetext is larger than the budget allows is handed on with a budget error
+     *               and no moves; once parsing has taken longer than the file budget, the file gets a
+     *               file-level error and the rest of it is not read.
+     */
+    public PgnParser(HeaderFilter headerFilter, ValidationBudget budget) {
+        this.headerFilter = headerFilter != null ? headerFilter : HeaderFilter.ACCEPT_ALL;
+        this.budget = budget;
+    }
 
     /**
      * Parses PGN text from a Reader into games, reporting syntax errors.
@@ -38,49 +67,96 @@ public class PgnParser {
      */
     public List<ParsedGame> parse(Reader reader, FileValidationResult fileResult) throws IOException {
         List<ParsedGame> parsedGames = new ArrayList<>();
-        BufferedReader bufferedReader = new BufferedReader(reader);
+        parse(reader, fileResult, parsedGames::add);
+        return parsedGames;
+    }
+
+    /**
+     * Parses PGN text from a Reader, handing each game to the consumer as soon as it is complete
+     * instead of collecting the whole file first. Used by the pipelined execution mode.
+     *
+     * @param reader The reader providing the PGN text.
+     * @param fileResult The FileValidationResult object to store file-level errors.
+     * @param gameConsumer Receives each ParsedGame in file order.
+     * @return The number of games handed to the consumer.
+     */
+    public int parse(Reader reader, FileValidationResult fileResult, Consumer<ParsedGame> gameConsumer) throws IOException {
+        return parse(reader, fileResult, gameConsumer, 0);
+    }
+
+    /**
+     * Like {@link #parse(Reader, FileValidationResult, Consumer)}, for text that continues a file
+     * whose first games were parsed earlier.
+     *
+     * @param firstGameIndex Index of the first game in the text, so game numbers match the whole file.
+     */
+    public int parse(Reader reader, FileValidationResult fileResult, Consumer<ParsedGame> gameConsumer, int firstGameIndex) throws IOException {
+        int gamesEmitted = 0;
+        int gamesSkipped = 0;
+        BufferedReader bufferedReader = reader instanceof BufferedReader buffered ? buffered : new BufferedReader(reader);
         String line;
         int lineNum = 0;
 
-        Map<String, String> currentHeaders = new HashMap<>();
+        PgnHeaders currentHeaders = new PgnHeaders();
         String currentFen = null;
-        StringBuilder currentMoveText = new StringBuilder();
+        StringBuilder currentMoveText = moveTextBuffer;
+        currentMoveText.setLength(0);
+        SanMoveList.Arena arena = new SanMoveList.Arena(); // Holds the move tokens of every game in this file
         List<PgnErrorInfo> currentSyntaxErrors = new ArrayList<>();
         boolean inMoveSection = false;
-        int gameIndex = 0;
+        boolean skipping = false; // The current game failed the header filter; its movetext is discarded unread
+        boolean overBudget = false; // The current game's movetext exceeded the budget; the rest of it is discarded
+        boolean outOfTime = false;  // The file budget ran out; the game in progress is incomplete and dropped
+        int gameIndex = firstGameIndex;
+        long deadline = budget.fileDeadline();
 
         while ((line = bufferedReader.readLine()) != null) {
             lineNum++;
+            if (ValidationBudget.isPast(deadline)) {
+                fileResult.addFileError(budget.fileTimeExceeded(0));
+                outOfTime = true;
+                break;
+            }
             String trimmedLine = line.trim();
 
             if (trimmedLine.isEmpty()) {
                 continue; // Skip empty lines
             }
 
-            Matcher headerMatcher = HEADER_PATTERN.matcher(trimmedLine);
-            if (headerMatcher.matches()) {
+            boolean bracketed = trimmedLine.charAt(0) == '[';
+            Matcher headerMatcher = bracketed ? headerTag.reset(trimmedLine) : null;
+            if (headerMatcher != null && headerMatcher.matches()) {
                 // If we were in a move section and encounter a new header, it implies the previous game ended (maybe without result?)
                 // Or it's the start of the first game's headers.
-                if (inMoveSection && currentMoveText.length() > 0) {
-                    // Finalize previous game if moves were recorded
-                    parsedGames.add(createParsedGame(gameIndex++, currentHeaders, currentFen, currentMoveText.toString(), currentSyntaxErrors));
+                if (inMoveSection && (skipping || overBudget || currentMoveText.length() > 0)) {
+                    if (skipping) {
+                        gameIndex++;
+                        gamesSkipped++;
+                    } else {
+                        // Finalize previous game if moves were recorded
+                        gameConsumer.accept(createParsedGame(gameIndex++, currentHeaders, currentFen, currentMoveText, currentSyntaxErrors, arena));
+                        gamesEmitted++;
+                    }
                     // Reset for the new game
-                    currentHeaders = new HashMap<>();
+                    currentHeaders = new PgnHeaders();
                     currentFen = null;
-                    currentMoveText = new StringBuilder();
+                    currentMoveText.setLength(0); // Reused: the arena keeps the move tokens
                     currentSyntaxErrors = new ArrayList<>();
                     inMoveSection = false;
+                    skipping = false;
+                    overBudget = false;
                 }
                 if (inMoveSection) {
                     // Header found *after* some moves but before a result - potentially malformed PGN
                     currentSyntaxErrors.add(new PgnErrorInfo(gameIndex, 0, trimmedLine, "Header tag found after moves started, expected move or result.", true));
                 }
 
+                // Roster values stay in the raw line until they are read
                 String key = headerMatcher.group(1);
-                String value = headerMatcher.group(2);
-                currentHeaders.put(key, value);
+                currentHeaders.putRaw(key, trimmedLine);
 
                 if ("FEN".equalsIgnoreCase(key)) {
+                    String value = headerMatcher.group(2);
                     // Basic check if a FEN was already found for this game - might indicate malformed PGN
                     if (currentFen != null && !currentSyntaxErrors.stream().anyMatch(e -> e.message().contains("Duplicate FEN"))) {
                         currentSyntaxErrors.add(new PgnErrorInfo(gameIndex, 0, trimmedLine, "Duplicate FEN tag found for the same game.", true));
@@ -88,136 +164,399 @@ public class PgnParser {
                     currentFen = value;
                 }
 
-            } else if (trimmedLine.startsWith("[")) {
+            } else if (skipping) {
+                // Movetext of a filtered-out game: only look for the result that ends it
+                if (!bracketed && endsWithResult(trimmedLine)) {
+                    gameIndex++;
+                    gamesSkipped++;
+                    currentHeaders = new PgnHeaders();
+                    currentFen = null;
+                    currentSyntaxErrors = new ArrayList<>();
+                    inMoveSection = false;
+                    skipping = false;
+                }
+            } else if (bracketed) {
                 // Likely a malformed header
                 if (!inMoveSection) { // Only report if we expect headers
                     currentSyntaxErrors.add(new PgnErrorInfo(gameIndex, 0, trimmedLine, "Potentially malformed header tag.", true));
                 } else { // If in move section, treat as unexpected text
                     currentSyntaxErrors.add(new PgnErrorInfo(gameIndex, 0, trimmedLine, "Unexpected text starting with '[' in move section.", true));
-                    currentMoveText.append(trimmedLine).append(" "); // Still append it, might be part of weird move text
+                    if (!overBudget) {
+                        currentMoveText.append(trimmedLine).append(" "); // Still append it, might be part of weird move text
+                    }
                 }
             }
             else {
                 // Not a header, likely part of the move text section
-                if (!inMoveSection && currentHeaders.isEmpty() && currentFen == null) {
-                    // Text before any headers - PGN standard violation
-                    currentSyntaxErrors.add(new PgnErrorInfo(gameIndex, 0, trimmedLine, "Move text found before any header tags or FEN.", true));
+                if (!inMoveSection) {
+                    if (currentHeaders.isEmpty() && currentFen == null) {
+                        // Text before any headers - PGN standard violation
+                        currentSyntaxErrors.add(new PgnErrorInfo(gameIndex, 0, trimmedLine, "Move text found before any header tags or FEN.", true));
+                    }
+                    // The header block has ended, so the filter can decide now, before any movetext is kept
+                    skipping = !headerFilter.matches(currentHeaders);
                 }
                 inMoveSection = true;
-                currentMoveText.append(trimmedLine).append(" "); // Append line to move text buffer
-
-                // Check if this line contains a game result, signaling the end of the current game
-                // Split the appended text and check the last token
-                String[] tokens = currentMoveText.toString().trim().split("\\s+");
-                if (tokens.length > 0) {
-                    String lastToken = tokens[tokens.length - 1];
-                    if (RESULT_PATTERN.matcher(lastToken).matches()) {
-                        // Game ended, finalize it
-                        parsedGames.add(createParsedGame(gameIndex++, currentHeaders, currentFen, currentMoveText.toString(), currentSyntaxErrors));
-                        // Reset for a potential next game
-                        currentHeaders = new HashMap<>();
+
+                // Check if this line ends with a game result, signaling the end of the current game.
+                // The line is trimmed, so its last token is also the last token of the whole movetext.
+                boolean gameEnded = endsWithResult(trimmedLine);
+                if (skipping) {
+                    if (gameEnded) {
+                        gameIndex++;
+                        gamesSkipped++;
+                        currentHeaders = new PgnHeaders();
                         currentFen = null;
-                        currentMoveText = new StringBuilder();
                         currentSyntaxErrors = new ArrayList<>();
                         inMoveSection = false;
+                        skipping = false;
                     }
+                    continue;
+                }
+                if (!overBudget) {
+                    currentMoveText.append(trimmedLine).append(" "); // Append line to move text buffer
+                    if (!budget.allowsMoveText(currentMoveText.length())) {
+                        // Tokenizing it all would cost as much as the budget is meant to save
+                        currentSyntaxErrors.add(new PgnErrorInfo(gameIndex, 0, null, budget.moveTextExceeded(), PgnErrorInfo.Kind.BUDGET));
+                        currentMoveText.setLength(0);
+                        overBudget = true;
+                    }
+                }
+
+                if (gameEnded) {
+                    // Game ended, finalize it
+                    gameConsumer.accept(createParsedGame(gameIndex++, currentHeaders, currentFen, currentMoveText, currentSyntaxErrors, arena));
+                    gamesEmitted++;
+                    // Reset for a potential next game
+                    currentHeaders = new PgnHeaders();
+                    currentFen = null;
+                    currentMoveText.setLength(0); // Reused: the arena keeps the move tokens
+                    currentSyntaxErrors = new ArrayList<>();
+                    inMoveSection = false;
+                    overBudget = false;
                 }
             }
         }
 
         // Add the last game if it had moves but didn't end with a result line parsed above
-        if (currentMoveText.length() > 0 || !currentHeaders.isEmpty() || currentFen != null) {
-            if (currentMoveText.length() == 0 && !currentSyntaxErrors.isEmpty()) {
-                // We had headers and syntax errors, but no moves - report as a game anyway
+        if (outOfTime) {
+            // Not counted as skipped: the file-level error already says the rest was not read
+        } else if (skipping) {
+            gamesSkipped++;
+        } else if (overBudget || currentMoveText.length() > 0 || !currentHeaders.isEmpty() || currentFen != null) {
+            // A trailing game without movetext has not been through the filter yet
+            if (inMoveSection || headerFilter.matches(currentHeaders)) {
+                gameConsumer.accept(createParsedGame(gameIndex, currentHeaders, currentFen, currentMoveText, currentSyntaxErrors, arena));
+                gamesEmitted++;
+            } else {
+                gamesSkipped++;
             }
-            parsedGames.add(createParsedGame(gameIndex, currentHeaders, currentFen, currentMoveText.toString(), currentSyntaxErrors));
         }
 
-        if (parsedGames.isEmpty() && fileResult.getFileLevelErrors().isEmpty()) {
+        if (gamesSkipped > 0) {
+            fileResult.addSkippedGames(gamesSkipped);
+        }
+        if (gamesEmitted == 0 && gamesSkipped == 0 && fileResult.getFileLevelErrors().isEmpty()) {
             fileResult.addFileError("No valid PGN games found in the file.");
         }
 
-        return parsedGames;
+        if (currentMoveText.capacity() > MAX_RETAINED_MOVE_TEXT) {
+            moveTextBuffer = new StringBuilder();
+        }
+        return gamesEmitted;
     }
 
-    private ParsedGame createParsedGame(int gameIndex, Map<String, String> headers, String fenString, String rawMoveText, List<PgnErrorInfo> syntaxErrors) {
-        List<String> moves = extractMoveList(rawMoveText, gameIndex, syntaxErrors);
-        return new ParsedGame(gameIndex, headers, fenString, moves, syntaxErrors);
+    /**
+     * Finds where the last complete game in some PGN text ends, using the rule that parse applies:
+     * a game ends with a non-header line whose last token is a result. Only lines terminated by a line
+     * break count, since the last line may still be being written. Works on any ASCII-compatible encoding.
+     *
+     * @return The offset just past the line break that ends the last complete game, or 0 if there is none.
+     */
+    public static int endOfLastCompleteGame(byte[] text, int length) {
+        int end = 0;
+        int lineStart = 0;
+        for (int i = 0; i < length; i++) {
+            if (text[i] != '\n') {
+                continue;
+            }
+            int start = lineStart;
+            int stop = i;
+            lineStart = i + 1;
+            while (start < stop && (text[start] & 0xFF) <= ' ') start++;
+            while (stop > start && (text[stop - 1] & 0xFF) <= ' ') stop--;
+            if (start == stop || text[start] == '[') {
+                continue;
+            }
+            int tokenStart = stop;
+            while (tokenStart > start && (text[tokenStart - 1] & 0xFF) > ' ') tokenStart--;
+            String lastToken = new String(text, tokenStart, stop - tokenStart, StandardCharsets.ISO_8859_1);
+            if (isResult(lastToken, 0, lastToken.length())) {
+                end = i + 1;
+            }
+        }
+        return end;
     }
 
-    // Extracts SAN moves, stripping comments, variations, NAGs, and move numbers.
-    // Reports syntax errors found during extraction.
-    private List<String> extractMoveList(String rawMoveText, int gameIndex, List<PgnErrorInfo> syntaxErrors) {
-        List<String> moves = new ArrayList<>();
-        if (rawMoveText == null || rawMoveText.isBlank()) {
-            return moves;
+    // True if the last whitespace-separated token of the (trimmed) line is a game termination marker
+    private static boolean endsWithResult(String trimmedLine) {
+        int tokenStart = trimmedLine.length();
+        while (tokenStart > 0 && !Character.isWhitespace(trimmedLine.charAt(tokenStart - 1))) {
+            tokenStart--;
+        }
+        return isResult(trimmedLine, tokenStart, trimmedLine.length());
+    }
+
+    private ParsedGame createParsedGame(int gameIndex, PgnHeaders headers, String fenString, CharSequence rawMoveText,
+                                        List<PgnErrorInfo> syntaxErrors, SanMoveList.Arena arena) {
+        OpenLine mainLine = extractMoveList(rawMoveText, gameIndex, syntaxErrors, arena);
+        return new ParsedGame(gameIndex, headers, fenString, mainLine.line.finish(), syntaxErrors, mainLine.variations());
+    }
+
+    // A line of play whose closing parenthesis has not been reached yet
+    private static final class OpenLine {
+        private final SanMoveList.Arena.Line line;
+        private final int ply;       // Move of the parent line this variation replaces
+        private final int startPly;  // Absolute ply of the first move, for error locations
+        private List<Variation> variations; // Created on the first nested variation
+
+        OpenLine(SanMoveList.Arena.Line line, int ply, int startPly) {
+            this.line = line;
+            this.ply = ply;
+            this.startPly = startPly;
         }
 
-        // 1. Remove comments recursively (handle nested comments crudely)
-        String text = rawMoveText;
-        while (text.contains("{")) {
-            text = COMMENT_PATTERN.matcher(text).replaceAll(" ");
+        int moveNumber() {
+            return (startPly + line.size()) / 2 + 1;
         }
-        // 2. Remove variations recursively (handle nested variations crudely)
-        while (text.contains("(")) {
-            text = VARIATION_PATTERN.matcher(text).replaceAll(" ");
+
+        void addVariation(Variation variation) {
+            if (variations == null) {
+                variations = new ArrayList<>(2);
+            }
+            variations.add(variation);
         }
-        // 3. Remove NAGs
-        text = NAG_PATTERN.matcher(text).replaceAll(" ");
 
-        // 4. Split into tokens
-        String[] tokens = text.trim().split("\\s+");
+        List<Variation> variations() {
+            return variations == null ? List.of() : variations;
+        }
+
+        Variation close() {
+            return new Variation(ply, line.finish(), variations());
+        }
+    }
 
-        int moveCounter = 0; // For error reporting if needed
+    // Extracts SAN moves in a single pass, skipping comments, NAGs, and move numbers.
+    // Variations (RAV) are collected into a tree hanging off the main line.
+    // Move tokens are copied into the file's arena; no String is created per move.
+    // Reports syntax errors found during extraction.
+    private OpenLine extractMoveList(CharSequence text, int gameIndex, List<PgnErrorInfo> syntaxErrors, SanMoveList.Arena arena) {
+        int length = text.length();
+        // Tokens never take more room than the movetext itself
+        OpenLine mainLine = new OpenLine(arena.beginGame(length), 0, 0);
+        OpenLine current = mainLine;
+        Deque<OpenLine> parents = new ArrayDeque<>(); // Lines enclosing the current variation, innermost first
 
-        for (String token : tokens) {
-            if (token.isEmpty()) continue;
+        int i = 0;
+        while (i < length) {
+            char c = text.charAt(i);
+            if (c == '{') {
+                i = skipComment(text, i);
+            } else if (c == '(') {
+                if (current.line.size() == 0) {
+                    // A variation replaces the preceding move, so there must be one
+                    syntaxErrors.add(new PgnErrorInfo(gameIndex, current.moveNumber(), "(", "Variation without a preceding move.", true));
+                    i = skipVariation(text, i);
+                } else {
+                    int ply = current.line.size() - 1;
+                    parents.push(current);
+                    current = new OpenLine(arena.newLine(), ply, current.startPly + ply);
+                    i++;
+                }
+            } else if (c == ')' && !parents.isEmpty()) {
+                Variation variation = current.close();
+                current = parents.pop();
+                current.addVariation(variation);
+                i++;
+            } else if (isNagAt(text, i)) {
+                i = skipDigits(text, i + 1);
+            } else if (Character.isWhitespace(c)) {
+                i++;
+            } else {
+                int start = i;
+                while (i < length && !endsToken(text, i, !parents.isEmpty())) {
+                    i++;
+                }
 
-            // Skip move number indicators
-            if (MOVE_NUMBER_PATTERN.matcher(token).matches()) {
-                continue;
+                // Skip move number indicators
+                if (isMoveNumber(text, start, i)) {
+                    continue;
+                }
+
+                // Check for game result - stop processing moves after result
+                if (isResult(text, start, i)) {
+                    if (parents.isEmpty()) {
+                        break; // Stop adding moves once result is reached
+                    }
+                    continue; // Some annotators end a variation with the result it leads to
+                }
+
+                // Rudimentary check for valid SAN start (Piece, castle, or pawn move)
+                // This is NOT a full SAN validation, just a basic sanity check.
+                if ("NBRQKOabcdefgh".indexOf(c) >= 0) {
+                    current.line.addToken(text, start, i);
+                } else {
+                    // Found a token that doesn't look like a move, a number, or a result
+                    String token = text.subSequence(start, i).toString();
+                    syntaxErrors.add(new PgnErrorInfo(gameIndex, current.moveNumber(), token, "Unexpected token in move text section.", true));
+                }
             }
+        }
 
-            // Check for game result - stop processing moves after result
-            if (RESULT_PATTERN.matcher(token).matches()) {
-                // We can optionally store the result if needed.
-                break; // Stop adding moves once result is reached
+        if (!parents.isEmpty()) {
+            syntaxErrors.add(new PgnErrorInfo(gameIndex, current.moveNumber(), "(", "Unterminated variation.", true));
+            while (!parents.isEmpty()) {
+                Variation variation = current.close();
+                current = parents.pop();
+                current.addVariation(variation);
             }
+        }
+        return mainLine;
+    }
 
-            // Rudimentary check for valid SAN start (Piece, castle, or pawn move)
-            // This is NOT a full SAN validation, just a basic sanity check.
-            if (token.matches("^[NBRQKOa-h].*")) {
-                moves.add(token);
-                moveCounter++;
-            } else {
-                // Found a token that doesn't look like a move, a number, or a result
-                syntaxErrors.add(new PgnErrorInfo(gameIndex, (moveCounter / 2) + 1, token, "Unexpected token in move text section.", true));
+    // Comments, variations and NAGs also end a token that touches them, e.g. "e4{good}", "e4$1" or "(1... e5)"
+    private static boolean endsToken(CharSequence text, int i, boolean inVariation) {
+        char c = text.charAt(i);
+        return Character.isWhitespace(c) || c == '{' || c == '(' || (c == ')' && inVariation) || isNagAt(text, i);
+    }
+
+    // Returns the index after the closing brace; an unterminated comment runs to the end of the text
+    private static int skipComment(CharSequence text, int open) {
+        for (int i = open + 1; i < text.length(); i++) {
+            if (text.charAt(i) == '}') {
+                return i + 1;
+            }
+        }
+        return text.length();
+    }
+
+    // Returns the index after the matching parenthesis; comments inside are skipped so their parentheses don't count.
+    // Used for variations that cannot be attached to a move.
+    private static int skipVariation(CharSequence text, int open) {
+        int depth = 0;
+        int i = open;
+        while (i < text.length()) {
+            char c = text.charAt(i);
+            if (c == '{') {
+                i = skipComment(text, i);
+                continue;
             }
+            if (c == '(') {
+                depth++;
+            } else if (c == ')' && --depth == 0) {
+                return i + 1;
+            }
+            i++;
+        }
+        return text.length();
+    }
+
+    private static boolean isNagAt(CharSequence text, int i) {
+        return text.charAt(i) == '$' && i + 1 < text.length() && isDigit(text.charAt(i + 1));
+    }
+
+    private static int skipDigits(CharSequence text, int i) {
+        while (i < text.length() && isDigit(text.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    // Move number indicators, e.g. "1.", "1...", "12."
+    private static boolean isMoveNumber(CharSequence text, int start, int end) {
+        int digitsEnd = skipDigits(text, start);
+        if (digitsEnd == start || digitsEnd == end) {
+            return false;
+        }
+        int dots = end - digitsEnd;
+        for (int i = digitsEnd; i < end; i++) {
+            if (text.charAt(i) != '.') return false;
         }
+        return dots <= 3;
+    }
 
-        return moves;
+    // Game termination markers: 1-0, 0-1, 1/2-1/2, *
+    private static boolean isResult(CharSequence text, int start, int end) {
+        return regionEquals(text, start, end, "1-0") || regionEquals(text, start, end, "0-1")
+                || regionEquals(text, start, end, "1/2-1/2") || regionEquals(text, start, end, "*");
+    }
+
+    private static boolean regionEquals(CharSequence text, int start, int end, String expected) {
+        if (end - start != expected.length()) {
+            return false;
+        }
+        for (int i = 0; i < expected.length(); i++) {
+            if (text.charAt(start + i) != expected.charAt(i)) return false;
+        }
+        return true;
     }
 
     // Inner class to hold the parsed data for a single game
-    public static class ParsedGame {
+    public static class ParsedGame implements GameRecord {
         private final int gameIndex;
-        private final Map<String, String> headers;
+        private final PgnHeaders headers;
         private final String fenString;
-        private final List<String> sanMoves;
+        private final List<CharSequence> sanMoves;
         private final List<PgnErrorInfo> syntaxErrors;
+        private final List<Variation> variations;
+
+        /**
+         * A PgnHeaders instance is taken over as-is (the parser creates a fresh one per game);
+         * any other map is copied into one. The same goes for a SanMoveList and other move lists.
+         */
+        public ParsedGame(int gameIndex, Map<String, String> headers, String fenString, List<? extends CharSequence> sanMoves, List<PgnErrorInfo> syntaxErrors) {
+            this(gameIndex, headers, fenString, sanMoves, syntaxErrors, List.of());
+        }
 
-        public ParsedGame(int gameIndex, Map<String, String> headers, String fenString, List<String> sanMoves, List<PgnErrorInfo> syntaxErrors) {
+        /** @param variations The variations of the main line, ordered by the ply they branch from. */
+        public ParsedGame(int gameIndex, Map<String, String> headers, String fenString, List<? extends CharSequence> sanMoves,
+                          List<PgnErrorInfo> syntaxErrors, List<Variation> variations) {
             this.gameIndex = gameIndex;
-            this.headers = headers != null ? new HashMap<>(headers) : new HashMap<>();
+            this.headers = toPgnHeaders(headers);
             this.fenString = fenString;
-            this.sanMoves = sanMoves != null ? new ArrayList<>(sanMoves) : new ArrayList<>();
+            this.sanMoves = toMoveList(sanMoves);
             this.syntaxErrors = syntaxErrors != null ? new ArrayList<>(syntaxErrors) : new ArrayList<>();
+            this.variations = variations != null ? variations : List.of();
+        }
+
+        private static PgnHeaders toPgnHeaders(Map<String, String> headers) {
+            if (headers instanceof PgnHeaders pgnHeaders) {
+                return pgnHeaders;
+            }
+            PgnHeaders copy = new PgnHeaders();
+            if (headers != null) {
+                copy.putAll(headers);
+            }
+            return copy;
+        }
+
+        // The parser's SanMoveList is already immutable and per game, so it is kept without copying
+        private static List<CharSequence> toMoveList(List<? extends CharSequence> sanMoves) {
+            if (sanMoves instanceof SanMoveList sanMoveList) {
+                return sanMoveList;
+            }
+            return sanMoves != null ? new ArrayList<>(sanMoves) : new ArrayList<>();
         }
 
-        public int getGameIndex() { return gameIndex; }
-        public Map<String, String> getHeaders() { return headers; }
-        public String getFenString() { return fenString; }
-        public List<String> getSanMoves() { return sanMoves; }
-        public List<PgnErrorInfo> getSyntaxErrors() { return syntaxErrors; }
+        @Override public int getGameIndex() { return gameIndex; }
+        @Override public Map<String, String> getHeaders() { return headers; }
+        @Override public String getFenString() { return fenString; }
+        @Override public List<CharSequence> getSanMoves() { return sanMoves; }
+        @Override public List<PgnErrorInfo> getSyntaxErrors() { return syntaxErrors; }
+        @Override public List<Variation> getVariations() { return variations; }
     }
 }
\ No newline at end of file
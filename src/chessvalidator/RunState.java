@@ -0,0 +1,29 @@
+package chessvalidator;
+
+import chessvalidator.store.DuplicateDetector;
+import chessvalidator.store.OffHeapGameStore;
+import chessvalidator.store.RunJournal;
+
+/**
+ * The state one command-line run keeps across its files, beyond the caches and budget of its
+ * {@link ValidationEngine}. Any of the stores may be null.
+ * @param gameStore If set, parsed games are kept in this off-heap store instead of on the heap.
+ * @param duplicateDetector If set, every parsed game is checked against the games seen before in the run.
+ * @param journal If set, validated games and completed files are recorded in it, and games it already
+ *                holds are not validated again.
+ * @param triagePolicy The validation tier and error limits; never null, {@link TriagePolicy#FULL} for the default.
+ * @param trieStatistics If set, each file's games are validated as one batch through a move prefix trie,
+ *                       and the plies replayed are counted here.
+ */
+record RunState(OffHeapGameStore gameStore, DuplicateDetector duplicateDetector, RunJournal journal,
+                TriagePolicy triagePolicy, MovePrefixTrie.Statistics trieStatistics) {
+
+    /** No stores and no limits: every game is validated on its own. */
+    static final RunState NONE = new RunState(null, null, null, TriagePolicy.FULL, null);
+
+    RunState {
+        if (triagePolicy == null) {
+            throw new IllegalArgumentException("Triage policy must not be null");
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package chessvalidator;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * The SAN move tokens of one game, stored as (offset, length) pairs into a chunk of a per-file
+ * character arena. A game costs two int arrays instead of one String per move.
+ * Elements are read-only CharSequence views that are created on access.
+ */
+public final class SanMoveList extends AbstractList<CharSequence> implements RandomAccess {
+
+    private final char[] chunk;
+    private final int[] offsets;
+    private final int[] lengths;
+
+    private SanMoveList(char[] chunk, int[] offsets, int[] lengths) {
+        this.chunk = chunk;
+        this.offsets = offsets;
+        this.lengths = lengths;
+    }
+
+    @Override
+    public CharSequence get(int index) {
+        return new Token(chunk, offsets[index], lengths[index]);
+    }
+
+    @Override
+    public int size() {
+        return offsets.length;
+    }
+
+    // Read-only view of one token; toString() copies it out
+    private record Token(char[] chunk, int offset, int length) implements CharSequence {
+        @Override
+        public char charAt(int index) {
+            if (index < 0 || index >= length) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return chunk[offset + index];
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            if (start < 0 || end > length || start > end) {
+                throw new IndexOutOfBoundsException("[" + start + ", " + end + ") of length " + length);
+            }
+            return new Token(chunk, offset + start, end - start);
+        }
+
+        @Override
+        public String toString() {
+            return new String(chunk, offset, length);
+        }
+    }
+
+    /**
+     * Append-only character storage shared by the games of one file.
+     * The tokens of a game, variations included, always land in a single chunk,
+     * so a finished game only keeps that chunk alive.
+     * Chunks start small and double up to a cap, so a file with one short game,
+     * common for live broadcasts, does not pay for a chunk sized for a database.
+     * Not thread-safe; owned by the parsing thread. Chunks are never modified once written,
+     * so games handed to other threads can be read while parsing continues.
+     */
+    static final class Arena {
+        private static final int FIRST_CHUNK_SIZE = 1024;
+        private static final int MAX_CHUNK_SIZE = 64 * 1024;
+
+        private char[] chunk;
+        private int used;
+        private int nextChunkSize = FIRST_CHUNK_SIZE;
+        private final Line mainLine = new Line(128); // Reused across games
+
+        /**
+         * Starts a new game whose tokens take at most {@code maxChars} characters in total.
+         * @return The (emptied) builder for the game's main line.
+         */
+        Line beginGame(int maxChars) {
+            if (chunk == null || chunk.length - used < maxChars) {
+                chunk = new char[Math.max(nextChunkSize, maxChars)];
+                used = 0;
+                nextChunkSize = Math.min(MAX_CHUNK_SIZE, nextChunkSize * 2);
+            }
+            mainLine.count = 0;
+            return mainLine;
+        }
+
+        /** @return A builder for a variation of the current game. */
+        Line newLine() {
+            return new Line(16);
+        }
+
+        /** Collects the tokens of one line of play; the characters go into the shared chunk. */
+        final class Line {
+            private int[] offsets;
+            private int[] lengths;
+            private int count;
+
+            private Line(int capacity) {
+                offsets = new int[capacity];
+                lengths = new int[capacity];
+            }
+
+            /** Copies {@code source[start, end)} into the arena as the next token of this line. */
+            void addToken(CharSequence source, int start, int end) {
+                if (count == offsets.length) {
+                    offsets = Arrays.copyOf(offsets, count * 2);
+                    lengths = Arrays.copyOf(lengths, count * 2);
+                }
+                offsets[count] = used;
+                lengths[count] = end - start;
+                count++;
+                for (int i = start; i < end; i++) {
+                    chunk[used++] = source.charAt(i);
+                }
+            }
+
+            int size() {
+                return count;
+            }
+
+            SanMoveList finish() {
+                return new SanMoveList(chunk, Arrays.copyOf(offsets, count), Arrays.copyOf(lengths, count));
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package chessvalidator;
+
+/**
+ * A bounded, lossy intern table for short strings that repeat across games,
+ * such as player names, events and sites.
+ * <p>
+ * Each hash maps to exactly one slot; a new value simply replaces whatever was there.
+ * Memory is therefore fixed, and a miss only costs the substring that would have been made anyway.
+ * Slots are read and written without locking: Strings are immutable, so a racing reader sees
+ * either the old or the new entry and both are correct.
+ */
+public final class StringInterner {
+
+    /** Shared by all parsers. 16K slots is enough for the distinct names of a large tournament database. */
+    public static final StringInterner SHARED = new StringInterner(1 << 14);
+
+    // Longer values are rarely repeated (comments, annotator notes) and are not worth a slot
+    private static final int MAX_INTERNED_LENGTH = 64;
+
+    private final String[] table;
+    private final int mask;
+
+    /** @param capacity Number of slots; rounded up to a power of two. */
+    public StringInterner(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.table = new String[size];
+        this.mask = size - 1;
+    }
+
+    /**
+     * Returns a String equal to {@code source.substring(start, end)}, reusing a previously
+     * interned instance when the slot still holds an equal value.
+     */
+    public String intern(String source, int start, int end) {
+        int length = end - start;
+        if (length == 0) {
+            return "";
+        }
+        if (length > MAX_INTERNED_LENGTH) {
+            return source.substring(start, end);
+        }
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + source.charAt(i);
+        }
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        String candidate = table[slot];
+        if (candidate != null && candidate.length() == length && candidate.regionMatches(0, source, start, length)) {
+            return candidate;
+        }
+        String value = source.substring(start, end);
+        table[slot] = value;
+        return value;
+    }
+
+    /** Interns a whole string. */
+    public String intern(String value) {
+        return intern(value, 0, value.length());
+    }
+}
@@ -0,0 +1,101 @@
+package chessvalidator;
+
+import chessvalidator.reports.FileValidationResult;
+import chessvalidator.reports.GameValidationResult;
+
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * How thoroughly a run validates and when it stops early: the {@link ValidationTier}, a cap on the errors
+ * reported per file, and fail-fast, which ends the run at the first invalid game.
+ * <p>
+ * Validators ask {@link #allows} before each game and report each result to {@link #record}. Games that
+ * are not validated because a limit was reached are counted in their file's result. With several validator
+ * threads the limits are checked as results come in, so a few more games than the limit may be validated.
+ * Thread-safe.
+ */
+public final class TriagePolicy {
+
+    /** Validates every game fully and never stops early. */
+    public static final TriagePolicy FULL = new TriagePolicy(ValidationTier.FULL, false, 0);
+
+    private final ValidationTier tier;
+    private final boolean failFast;
+    private final int maxErrorsPerFile;
+    private final AtomicReference<String> firstFailure = new AtomicReference<>(); // Set once fail-fast stops the run
+
+    /**
+     * @param failFast Whether the run stops at the first invalid game.
+     * @param maxErrorsPerFile Once a file has this many errors, its remaining games are not validated; 0 for no cap.
+     */
+    public TriagePolicy(ValidationTier tier, boolean failFast, int maxErrorsPerFile) {
+        if (maxErrorsPerFile < 0) {
+            throw new IllegalArgumentException("Error cap must be >= 0");
+        }
+        this.tier = tier;
+        this.failFast = failFast;
+        this.maxErrorsPerFile = maxErrorsPerFile;
+    }
+
+    public ValidationTier getTier() { return tier; }
+
+    /** @return Whether a limit can stop games from being validated, so each game must be checked against it. */
+    public boolean hasLimits() {
+        return failFast || maxErrorsPerFile > 0;
+    }
+
+    /** @return Whether games are validated and reported as without this policy. */
+    public boolean isDefault() {
+        return tier == ValidationTier.FULL && !failFast && maxErrorsPerFile == 0;
+    }
+
+    /** @return Whether another game of the file should be validated. */
+    public boolean allows(FileValidationResult fileResult) {
+        return firstFailure.get() == null && (maxErrorsPerFile == 0 || fileResult.getErrorCount() < maxErrorsPerFile);
+    }
+
+    /** Takes note of a result after it was added to its file's result. */
+    public void record(FileValidationResult fileResult, GameValidationResult gameResult) {
+        if (failFast && !gameResult.isValid()) {
+            firstFailure.compareAndSet(null, "game " + (gameResult.getGameIndex() + 1) + " of " + fileResult.getFilePath());
+        }
+    }
+
+    /** @return Whether fail-fast has stopped the run. */
+    public boolean isStopped() {
+        return firstFailure.get() != null;
+    }
+
+    /** @return The files of the iterator until fail-fast stops the run; the rest are not handed out. */
+    public <T> Iterator<T> untilStopped(Iterator<T> files) {
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return !isStopped() && files.hasNext();
+            }
+
+            @Override
+            public T next() {
+                return files.next();
+            }
+        };
+    }
+
+    /** @return A one-line summary for the end of a run. */
+    public String format() {
+        StringBuilder summary = new StringBuilder("Triage: ").append(switch (tier) {
+            case SYNTAX -> "syntax check only, no games replayed";
+            case CLEAN -> "games with syntax errors not replayed";
+            case FULL -> "all games replayed";
+        });
+        if (maxErrorsPerFile > 0) {
+            summary.append("; at most ").append(maxErrorsPerFile).append(" error(s) per file");
+        }
+        if (failFast) {
+            String failure = firstFailure.get();
+            summary.append(failure == null ? "; fail-fast, no invalid game found" : "; fail-fast stopped the run at " + failure);
+        }
+        return summary.append('.').toString();
+    }
+}
@@ -0,0 +1,99 @@
+package chessvalidator;
+
+import chessvalidator.reports.PgnErrorInfo;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits on the work spent on one game and on one file, so a pathological input cannot hold a thread
+ * for the rest of the run. A game is limited in the plies replayed, main line and variations together,
+ * in the size of its movetext, comments included, and in replay time; a file in parse and replay time.
+ * <p>
+ * The limits are checked cooperatively: {@link PgnParser} after each line and {@link GameValidator}
+ * before each ply, so a game or file overruns by at most one line or one ply. A game that exceeds its
+ * budget gets an error of kind {@link PgnErrorInfo.Kind#BUDGET} and is not validated further; a file
+ * that exceeds its budget gets a file-level error and its remaining games are not validated.
+ * Each limit is 0 when not set. Immutable.
+ */
+public final class ValidationBudget {
+
+    /** No limits. */
+    public static final ValidationBudget UNLIMITED = new ValidationBudget(0, 0, 0, 0);
+
+    private final int maxPlies;
+    private final int maxMoveTextChars;
+    private final long gameNanos;
+    private final long fileNanos;
+
+    /**
+     * @param maxPlies Plies replayed per game, variations included.
+     * @param maxMoveTextChars Characters of movetext per game; PGN is ASCII, so this is its size in bytes.
+     * @param gameMillis Replay time per game.
+     * @param fileMillis Parse and replay time per file.
+     */
+    public ValidationBudget(int maxPlies, int maxMoveTextChars, long gameMillis, long fileMillis) {
+        if (maxPlies < 0 || maxMoveTextChars < 0 || gameMillis < 0 || fileMillis < 0) {
+            throw new IllegalArgumentException("Budget limits must be >= 0");
+        }
+        this.maxPlies = maxPlies;
+        this.maxMoveTextChars = maxMoveTextChars;
+        this.gameNanos = TimeUnit.MILLISECONDS.toNanos(gameMillis);
+        this.fileNanos = TimeUnit.MILLISECONDS.toNanos(fileMillis);
+    }
+
+    /** @return This budget without the file limit, for input such as a stream that never ends. */
+    public ValidationBudget withoutFileLimit() {
+        return new ValidationBudget(maxPlies, maxMoveTextChars, TimeUnit.NANOSECONDS.toMillis(gameNanos), 0);
+    }
+
+    public boolean isUnlimited() {
+        return maxPlies == 0 && maxMoveTextChars == 0 && gameNanos == 0 && fileNanos == 0;
+    }
+
+    /** @return Whether a game may replay one more ply after replaying this many. */
+    boolean allowsPly(int pliesReplayed) {
+        return maxPlies == 0 || pliesReplayed < maxPlies;
+    }
+
+    /** @return Whether a game's movetext of this length is within the budget. */
+    boolean allowsMoveText(int chars) {
+        return maxMoveTextChars == 0 || chars <= maxMoveTextChars;
+    }
+
+    /** @return The System.nanoTime() by which a game starting now must be done; Long.MAX_VALUE without a limit. */
+    long gameDeadline() {
+        return deadline(gameNanos);
+    }
+
+    /** @return The System.nanoTime() by which a file starting now must be done; Long.MAX_VALUE without a limit. */
+    public long fileDeadline() {
+        return deadline(fileNanos);
+    }
+
+    private static long deadline(long nanos) {
+        return nanos == 0 ? Long.MAX_VALUE : System.nanoTime() + nanos;
+    }
+
+    /** @return Whether the deadline has passed; compares as nanoTime() requires, so overflow is harmless. */
+    public static boolean isPast(long deadline) {
+        return deadline != Long.MAX_VALUE && System.nanoTime() - deadline > 0;
+    }
+
+    String pliesExceeded() {
+        return "Budget exceeded: more than " + maxPlies + " plies; validation of the game was cancelled.";
+    }
+
+    String moveTextExceeded() {
+        return "Budget exceeded: movetext longer than " + maxMoveTextChars + " characters; the game was not validated.";
+    }
+
+    String gameTimeExceeded() {
+        return "Budget exceeded: replay took longer than " + TimeUnit.NANOSECONDS.toMillis(gameNanos) + " ms; validation of the game was cancelled.";
+    }
+
+    /** @return The file-level error for a file that ran out of time with this many games left unvalidated. */
+    public String fileTimeExceeded(int gamesLeft) {
+        return "Budget exceeded: file took longer than " + TimeUnit.NANOSECONDS.toMillis(fileNanos) + " ms; "
+                + (gamesLeft > 0 ? gamesLeft + " game(s) not validated." : "the rest of the file was not read.");
+    }
+}
@@ -0,0 +1,218 @@
+package chessvalidator;
+
+import chessvalidator.io.PgnSource;
+import chessvalidator.model.SanResolutionCache;
+import chessvalidator.reports.FileValidationResult;
+import chessvalidator.reports.GameValidationResult;
+import chessvalidator.store.ResultCache;
+import chessvalidator.store.RunJournal;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Validates PGN files and games for an embedding application, and can be kept for the life of the application.
+ * <p>
+ * A {@link PgnParser} and a {@link GameValidator} keep scratch state between calls, the movetext buffer and the
+ * {@link chessvalidator.model.GameState} replayed into, so each serves one thread at a time. The engine keeps
+ * a pool of them: a call borrows a worker, validates on it and returns it, so a steady load allocates no parser,
+ * validator or game state per file or game. The pool grows to the largest number of concurrent calls and
+ * does not shrink. The engine itself may be called from any number of threads at the same time.
+ * <p>
+ * The command line creates one engine per run, holding the {@link RunState} the run keeps across its files.
+ */
+public final class ValidationEngine {
+
+    /** A parser and validator pair, used by one thread between {@link #acquire()} and {@link #release}. */
+    private static final class Worker {
+        private final PgnParser parser;
+        private final GameValidator validator;
+
+        private Worker(PgnParser parser, GameValidator validator) {
+            this.parser = parser;
+            this.validator = validator;
+        }
+
+        PgnParser parser() { return parser; }
+        GameValidator validator() { return validator; }
+    }
+
+    private final HeaderFilter headerFilter;
+    private final ResultCache resultCache;
+    private final SanResolutionCache sanCache;
+    private final ValidationTier tier;
+    private final ValidationBudget budget;
+    private final Queue<Worker> idleWorkers = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger workerCount = new AtomicInteger();
+    private final RunState run;
+
+    /** Creates an engine that validates every game fully, without caches or limits. */
+    public ValidationEngine() {
+        this(HeaderFilter.ACCEPT_ALL, null, null, ValidationTier.FULL, ValidationBudget.UNLIMITED);
+    }
+
+    /**
+     * @param headerFilter Games whose headers it rejects are skipped.
+     * @param resultCache If not null, games validated before are answered from it.
+     * @param sanCache If not null, SAN moves are resolved through it; it is shared by all workers.
+     * @param tier Which games are replayed.
+     * @param budget The work allowed per game and per file.
+     */
+    public ValidationEngine(HeaderFilter headerFilter, ResultCache resultCache, SanResolutionCache sanCache,
+                            ValidationTier tier, ValidationBudget budget) {
+        this(headerFilter, resultCache, sanCache, tier, budget, RunState.NONE);
+    }
+
+    /** For one command-line run; the tier is the run's triage policy's. */
+    ValidationEngine(HeaderFilter headerFilter, ResultCache resultCache, SanResolutionCache sanCache,
+                     ValidationBudget budget, RunState run) {
+        this(headerFilter, resultCache, sanCache, run.triagePolicy().getTier(), budget, run);
+    }
+
+    private ValidationEngine(HeaderFilter headerFilter, ResultCache resultCache, SanResolutionCache sanCache,
+                             ValidationTier tier, ValidationBudget budget, RunState run) {
+        if (headerFilter == null || tier == null || budget == null) {
+            throw new IllegalArgumentException("Header filter, tier and budget must not be null");
+        }
+        this.headerFilter = headerFilter;
+        this.resultCache = resultCache;
+        this.sanCache = sanCache;
+        this.tier = tier;
+        this.budget = budget;
+        this.run = run;
+    }
+
+    /**
+     * Parses and validates every game read from the reader. The caller closes the reader.
+     * @param name The file name used in the result.
+     */
+    public FileValidationResult validate(String name, Reader reader) throws IOException {
+        FileValidationResult fileResult = new FileValidationResult(name);
+        validate(reader, fileResult);
+        return fileResult;
+    }
+
+    /**
+     * Parses every game from the reader and replays it on a pooled worker, adding results to fileResult.
+     * With a run state, also applies its game store, duplicate detection, journal, error limits and prefix trie.
+     */
+    void validate(Reader reader, FileValidationResult fileResult) throws IOException {
+        Worker worker = acquire();
+        try {
+            validate(reader, fileResult, worker.parser(), worker.validator());
+        } finally {
+            release(worker);
+        }
+    }
+
+    // With a game store, each game is moved off the heap as soon as it is parsed
+    private void validate(Reader reader, FileValidationResult fileResult, PgnParser parser, GameValidator validator) throws IOException {
+        long deadline = budget.fileDeadline(); // Parsing checks its own, started at the same time
+        List<GameRecord> parsedGames = new ArrayList<>();
+        parser.parse(reader, fileResult, game -> {
+            if (run.duplicateDetector() == null || run.duplicateDetector().admit(game, fileResult)) {
+                parsedGames.add(run.gameStore() != null ? run.gameStore().add(game) : game);
+            }
+        });
+
+        RunJournal journal = run.journal();
+        if (journal != null) {
+            List<GameValidationResult> restored = journal.startFile(fileResult.getFilePath());
+            restored.forEach(fileResult::addGameResult);
+            if (!restored.isEmpty()) {
+                int lastRestored = restored.get(restored.size() - 1).getGameIndex();
+                parsedGames.removeIf(game -> game.getGameIndex() <= lastRestored);
+            }
+        }
+        TriagePolicy triagePolicy = run.triagePolicy();
+        Consumer<GameValidationResult> addResult = gameResult -> {
+            fileResult.addGameResult(gameResult);
+            triagePolicy.record(fileResult, gameResult);
+            if (journal != null) {
+                journal.recordGame(fileResult.getFilePath(), gameResult);
+            }
+        };
+
+        if (run.trieStatistics() != null && !triagePolicy.hasLimits()) {
+            // With a journal, batches end at checkpoints, so a stopped run loses at most one batch;
+            // with a file budget, so the time left is checked every few games
+            int batchSize = journal != null || deadline != Long.MAX_VALUE ? RunJournal.CHECKPOINT_GAMES : Math.max(1, parsedGames.size());
+            long pliesBefore = validator.getPlyCount(); // The validator is pooled, so its counts span earlier files
+            long replayedPliesBefore = validator.getReplayedPlyCount();
+            for (int from = 0; from < parsedGames.size(); from += batchSize) {
+                if (ValidationBudget.isPast(deadline)) {
+                    fileResult.addFileError(budget.fileTimeExceeded(parsedGames.size() - from));
+                    break;
+                }
+                validator.validateBatch(parsedGames.subList(from, Math.min(parsedGames.size(), from + batchSize))).forEach(addResult);
+            }
+            run.trieStatistics().add(validator.getPlyCount() - pliesBefore, validator.getReplayedPlyCount() - replayedPliesBefore);
+        } else {
+            for (int i = 0; i < parsedGames.size(); i++) {
+                if (!triagePolicy.allows(fileResult)) {
+                    fileResult.addUnvalidatedGames(parsedGames.size() - i);
+                    break;
+                }
+                if (ValidationBudget.isPast(deadline)) {
+                    fileResult.addFileError(budget.fileTimeExceeded(parsedGames.size() - i));
+                    break;
+                }
+                addResult.accept(validator.validate(parsedGames.get(i)));
+            }
+        }
+        if (journal != null) {
+            journal.finishFile(fileResult);
+        }
+    }
+
+    /** Validates a file or archive entry; a failure to read it is reported as a file error. */
+    public FileValidationResult validate(PgnSource source) {
+        try (Reader reader = source.openReader()) {
+            return validate(source.name(), reader);
+        } catch (IOException e) {
+            FileValidationResult fileResult = new FileValidationResult(source.name());
+            fileResult.addFileError("Failed to read file: " + e.getMessage());
+            return fileResult;
+        }
+    }
+
+    /** Validates one game parsed before, e.g. by {@link PgnParser} or taken from a game store. */
+    public GameValidationResult validateGame(GameRecord game) {
+        Worker worker = acquire();
+        try {
+            return worker.validator().validate(game);
+        } finally {
+            release(worker);
+        }
+    }
+
+    ResultCache getResultCache() { return resultCache; }
+    SanResolutionCache getSanCache() { return sanCache; }
+    ValidationBudget getBudget() { return budget; }
+    RunState getRunState() { return run; }
+
+    /** @return The number of workers created so far: the most calls that have run at the same time. */
+    public int getWorkerCount() {
+        return workerCount.get();
+    }
+
+    // Borrows an idle worker, creating one if none is idle. Must be given back with release().
+    private Worker acquire() {
+        Worker worker = idleWorkers.poll();
+        if (worker == null) {
+            workerCount.incrementAndGet();
+            worker = new Worker(new PgnParser(headerFilter, budget), new GameValidator(resultCache, sanCache, tier, budget));
+        }
+        return worker;
+    }
+
+    private void release(Worker worker) {
+        idleWorkers.offer(worker);
+    }
+}
@@ -0,0 +1,299 @@
+package chessvalidator;
+
+import chessvalidator.io.DirectoryWatcher;
+import chessvalidator.io.FilePrefetcher;
+import chessvalidator.store.DuplicateDetector;
+
+import java.time.Duration;
+
+/**
+ * Command-line options for {@link Main}.
+ * Everything except the input path is optional; defaults reproduce the original behaviour.
+ */
+public class ValidationOptions {
+
+    /** How the discovered files are scheduled onto threads. */
+    public enum ExecutionMode {
+        SINGLE,          // One thread parses and validates every file in turn
+        FIXED_POOL,      // One task per file on a fixed pool sized to the CPU count
+        PIPELINE,        // Parser threads feed a bounded queue drained by validator workers
+        VIRTUAL_THREADS, // One virtual thread per file, replay throttled to the worker count
+        WORK_STEALING    // Fork/join, largest files first, big files split into game ranges
+    }
+
+    public enum DuplicateHandling {
+        REPORT, // Validate every copy and list the repeats in the report
+        SKIP    // List the repeats and validate only the first copy
+    }
+
+    public static final String USAGE = String.join(System.lineSeparator(),
+            "Usage: java chessvalidator.Main [options] <file.pgn | directory | named pipe | ->",
+            "Options:",
+            "  --mode <single|fixed|pipeline|virtual|work-stealing>",
+            "                                  Execution mode (default: fixed for several files, single otherwise)",
+            "  --discovery-buffer <n>          Max discovered files waiting to be validated (default: 1024)",
+            "  --threads <n>                   Worker threads, or concurrent validations in virtual mode (default: available processors)",
+            "  --adaptive                      Fixed mode: resize the pool while running from measured CPU and I/O wait",
+            "  --min-threads <n>               Adaptive pool: lower bound (default: 1)",
+            "  --max-threads <n>               Adaptive pool: upper bound (default: 4 x available processors)",
+            "  --parser-threads <n>            Pipeline mode: threads reading and parsing files (default: 1)",
+            "  --queue-capacity <n>            Pipeline mode: max parsed games waiting for validation (default: 256)",
+            "  --split-size <bytes>            Work-stealing mode: files larger than this are split into game ranges (default: 262144)",
+            "  --games-per-task <n>            Work-stealing mode: games per subtask when a file is split (default: 16)",
+            "  --filter <expression>           Only validate games whose headers match, e.g. 'Event ~ Grand Prix && Date >= 2015.02.20'",
+            "                                  Operators: = != ~ < <= > >= && || ( ); 'Player' matches White or Black",
+            "  --offheap                       Keep parsed games in direct memory instead of on the Java heap",
+            "  --prefetch <depth>              Read files ahead on a separate I/O pool while others are validated, at most this many in memory",
+            "  --io-threads <n>                Prefetch: threads running the asynchronous reads (default: 2)",
+            "  --cache <directory>             Remember outcomes by game content; unchanged games are not replayed on later runs",
+            "  --san-cache <entries>           Share resolved SAN moves by position across games and threads, up to this many",
+            "  --prefix-trie                   Validate each file's games as one batch, replaying opening moves they share only once",
+            "  --duplicates <report|skip>      Detect games repeated across the input by moves and key headers; list or also skip them",
+            "  --duplicate-capacity <games>    Duplicates: distinct games to size the in-memory filter for (default: 10000000)",
+            "  --tier <syntax|clean|full>      Syntax check only, replay only games without syntax errors, or replay all (default: full)",
+            "  --fail-fast                     Stop the run at the first invalid game and exit with status 1",
+            "  --max-errors <n>                Stop validating a file once this many errors are reported for it",
+            "  --max-plies <n>                 Cancel a game after replaying this many plies, variations included",
+            "  --max-game-size <chars>         Do not validate a game whose movetext, comments included, is longer than this",
+            "  --game-timeout <ms>             Cancel a game whose replay takes longer than this",
+            "  --file-timeout <ms>             Stop reading and validating a file after this long",
+            "  --manifest <file>               Record each file's fingerprint and result; later runs validate only new or changed files",
+            "  --journal <file>                Record progress durably as files and game ranges complete, so an interrupted run can resume",
+            "  --resume                        Continue the run recorded in the --journal file instead of starting over",
+            "  --follow                        Keep running and validate games appended to a single .pgn file as they complete",
+            "  --watch                         Keep running and validate files created or modified under a directory as they settle",
+            "  --debounce <ms>                 Watch mode: quiet time after a file's last change before it is validated (default: 500)",
+            "  --stdin                         Read PGN from standard input, same as '-' as the input path",
+            "                                  Streams are validated as they arrive and game results are printed as they complete");
+
+    public static final String STDIN_PATH = "-";
+
+    private String inputPath;
+    private ExecutionMode executionMode; // null = choose from the number of files found
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int discoveryBuffer = 1024;
+    private boolean adaptive = false;
+    private int minThreads = 1;
+    private int maxThreads = 4 * Runtime.getRuntime().availableProcessors();
+    private int parserThreads = 1;
+    private int queueCapacity = 256;
+    private int splitSizeBytes = 256 * 1024;
+    private int gamesPerTask = 16;
+    private String filterExpression; // null = validate every game
+    private HeaderFilter headerFilter = HeaderFilter.ACCEPT_ALL;
+    private boolean offHeap = false;
+    private int prefetchDepth = 0; // 0 = read each file when its validation starts
+    private int ioThreads = FilePrefetcher.DEFAULT_IO_THREADS;
+    private String cachePath; // null = no result cache
+    private int sanCacheEntries = 0; // 0 = resolve every move from scratch
+    private boolean prefixTrie = false;
+    private DuplicateHandling duplicateHandling; // null = no duplicate detection
+    private int duplicateCapacity = DuplicateDetector.DEFAULT_EXPECTED_GAMES;
+    private ValidationTier tier = ValidationTier.FULL;
+    private boolean failFast = false;
+    private int maxErrors = 0; // 0 = no cap per file
+    private int maxPlies = 0;        // 0 = no budget, as for the three below
+    private int maxGameSize = 0;
+    private int gameTimeoutMillis = 0;
+    private int fileTimeoutMillis = 0;
+    private String manifestPath; // null = validate every file
+    private String journalPath; // null = no checkpoints
+    private boolean resume = false;
+    private boolean follow = false;
+    private boolean watch = false;
+    private Duration debounce = DirectoryWatcher.DEFAULT_DEBOUNCE;
+
+    /**
+     * Parses the program arguments.
+     * @param args The raw arguments passed to main.
+     * @return The parsed options.
+     * @throws IllegalArgumentException if an option is unknown, malformed or the input path is missing.
+     */
+    public static ValidationOptions parse(String[] args) throws IllegalArgumentException {
+        ValidationOptions options = new ValidationOptions();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "--mode" -> options.executionMode = parseMode(requireValue(args, ++i, arg));
+                case "--discovery-buffer" -> options.discoveryBuffer = parsePositiveInt(requireValue(args, ++i, arg), arg);
+                case "--threads" -> options.threads = parsePositiveInt(requireValue(args, ++i, arg), arg);
+                case "--adaptive" -> options.adaptive = true;
+                case "--min-threads" -> options.minThreads = parsePositiveInt(requireValue(args, ++i, arg), arg);
+                case "--max-threads" -> options.maxThreads = parsePositiveInt(requireValue(args, ++i, arg), arg);
+                case "--parser-threads" -> options.parserThreads = parsePositiveInt(requireValue(args, ++i, arg), arg);
+                case "--queue-capacity" -> options.queueCapacity = parsePositiveInt(requireValue(args, ++i, arg), arg);
+                case "--split-size" -> options.splitSizeBytes = parsePositiveInt(requireValue(args, ++i, arg), arg);
+                case "--games-per-task" -> options.gamesPerTask = parsePositiveInt(requireValue(args, ++i, arg), arg);
+                case "--filter" -> options.setFilterExpression(requireValue(args, ++i, arg));
+                case "--offheap" -> options.offHeap = true;
+                case "--prefetch" -> options.prefetchDepth = parsePositiveInt(requireValue(args, ++i, arg), arg);
+                case "--io-threads" -> options.ioThreads = parsePositiveInt(requireValue(args, ++i, arg), arg);
+                case "--cache" -> options.cachePath = requireValue(args, ++i, arg);
+                case "--san-cache" -> options.sanCacheEntries = parsePositiveInt(requireValue(args, ++i, arg), arg);
+                case "--prefix-trie" -> options.prefixTrie = true;
+                case "--duplicates" -> options.duplicateHandling = parseDuplicateHandling(requireValue(args, ++i, arg));
+                case "--duplicate-capacity" -> options.duplicateCapacity = parsePositiveInt(requireValue(args, ++i, arg), arg);
+                case "--tier" -> options.tier = parseTier(requireValue(args, ++i, arg));
+                case "--fail-fast" -> options.failFast = true;
+                case "--max-errors" -> options.maxErrors = parsePositiveInt(requireValue(args, ++i, arg), arg);
+                case "--max-plies" -> options.maxPlies = parsePositiveInt(requireValue(args, ++i, arg), arg);
+                case "--max-game-size" -> options.maxGameSize = parsePositiveInt(requireValue(args, ++i, arg), arg);
+                case "--game-timeout" -> options.gameTimeoutMillis = parsePositiveInt(requireValue(args, ++i, arg), arg);
+                case "--file-timeout" -> options.fileTimeoutMillis = parsePositiveInt(requireValue(args, ++i, arg), arg);
+                case "--manifest" -> options.manifestPath = requireValue(args, ++i, arg);
+                case "--journal" -> options.journalPath = requireValue(args, ++i, arg);
+                case "--resume" -> options.resume = true;
+                case "--follow" -> options.follow = true;
+                case "--watch" -> options.watch = true;
+                case "--debounce" -> options.debounce = Duration.ofMillis(parsePositiveInt(requireValue(args, ++i, arg), arg));
+                case "--stdin" -> options.setInputPath(STDIN_PATH);
+                default -> {
+                    if (arg.startsWith("--")) {
+                        throw new IllegalArgumentException("Unknown option: " + arg);
+                    }
+                    options.setInputPath(arg);
+                }
+            }
+        }
+        if (options.inputPath == null) {
+            throw new IllegalArgumentException("No input path given.");
+        }
+        if (options.follow && options.watch) {
+            throw new IllegalArgumentException("--follow and --watch cannot be combined");
+        }
+        if (options.resume && options.journalPath == null) {
+            throw new IllegalArgumentException("--resume needs the --journal of the run to continue");
+        }
+        if (options.journalPath != null && (options.follow || options.watch)) {
+            throw new IllegalArgumentException("--journal cannot be combined with --follow or --watch, which never finish");
+        }
+        if (options.journalPath != null
+                && (options.executionMode == ExecutionMode.PIPELINE || options.executionMode == ExecutionMode.WORK_STEALING)) {
+            throw new IllegalArgumentException("--journal is not supported in pipeline or work-stealing mode");
+        }
+        if (options.follow && (options.tier != ValidationTier.FULL || options.failFast || options.maxErrors > 0)) {
+            throw new IllegalArgumentException("--follow validates every appended game fully; --tier, --fail-fast and --max-errors do not apply");
+        }
+        if (options.follow && !options.getBudget().isUnlimited()) {
+            throw new IllegalArgumentException("--follow does not apply --max-plies, --max-game-size, --game-timeout or --file-timeout");
+        }
+        if (options.follow && (options.cachePath != null || options.sanCacheEntries > 0 || options.duplicateHandling != null
+                || options.offHeap || options.prefixTrie || options.manifestPath != null)) {
+            throw new IllegalArgumentException("--follow validates each appended game once as it completes; "
+                    + "--cache, --san-cache, --duplicates, --offheap, --prefix-trie and --manifest do not apply");
+        }
+        if (options.watch && options.failFast) {
+            throw new IllegalArgumentException("--fail-fast cannot be combined with --watch, which never finishes");
+        }
+        if (options.journalPath != null && (options.tier != ValidationTier.FULL || options.failFast || options.maxErrors > 0)) {
+            throw new IllegalArgumentException("--journal records complete runs and cannot be combined with --tier, --fail-fast or --max-errors");
+        }
+        if (options.minThreads > options.maxThreads) {
+            throw new IllegalArgumentException("--min-threads (" + options.minThreads + ") must not exceed --max-threads (" + options.maxThreads + ")");
+        }
+        return options;
+    }
+
+    private void setInputPath(String path) {
+        if (inputPath != null) {
+            throw new IllegalArgumentException("Only one input path may be given, found '" + inputPath + "' and '" + path + "'");
+        }
+        inputPath = path;
+    }
+
+    private static String requireValue(String[] args, int index, String option) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Option " + option + " requires a value.");
+        }
+        return args[index];
+    }
+
+    private static int parsePositiveInt(String value, String option) {
+        try {
+            int parsed = Integer.parseInt(value);
+            if (parsed < 1) throw new NumberFormatException("must be >= 1");
+            return parsed;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Option " + option + " expects a positive integer, got '" + value + "'");
+        }
+    }
+
+    private static ExecutionMode parseMode(String value) {
+        return switch (value.toLowerCase()) {
+            case "single" -> ExecutionMode.SINGLE;
+            case "fixed" -> ExecutionMode.FIXED_POOL;
+            case "pipeline" -> ExecutionMode.PIPELINE;
+            case "virtual" -> ExecutionMode.VIRTUAL_THREADS;
+            case "work-stealing" -> ExecutionMode.WORK_STEALING;
+            default -> throw new IllegalArgumentException("Unknown execution mode: " + value);
+        };
+    }
+
+    private static DuplicateHandling parseDuplicateHandling(String value) {
+        return switch (value.toLowerCase()) {
+            case "report" -> DuplicateHandling.REPORT;
+            case "skip" -> DuplicateHandling.SKIP;
+            default -> throw new IllegalArgumentException("Unknown duplicate handling: " + value + " (expected report or skip)");
+        };
+    }
+
+    private static ValidationTier parseTier(String value) {
+        return switch (value) {
+            case "syntax" -> ValidationTier.SYNTAX;
+            case "clean" -> ValidationTier.CLEAN;
+            case "full" -> ValidationTier.FULL;
+            default -> throw new IllegalArgumentException("Unknown validation tier: " + value + " (expected syntax, clean or full)");
+        };
+    }
+
+    public String getInputPath() { return inputPath; }
+    public ExecutionMode getExecutionMode() { return executionMode; }
+    public int getThreads() { return threads; }
+    public int getDiscoveryBuffer() { return discoveryBuffer; }
+    public boolean isAdaptive() { return adaptive; }
+    public int getMinThreads() { return minThreads; }
+    public int getMaxThreads() { return maxThreads; }
+    public int getParserThreads() { return parserThreads; }
+    public int getQueueCapacity() { return queueCapacity; }
+    public int getSplitSizeBytes() { return splitSizeBytes; }
+    public int getGamesPerTask() { return gamesPerTask; }
+    public String getFilterExpression() { return filterExpression; }
+    public HeaderFilter getHeaderFilter() { return headerFilter; }
+    public boolean isOffHeap() { return offHeap; }
+    public int getPrefetchDepth() { return prefetchDepth; }
+    public int getIoThreads() { return ioThreads; }
+    public String getCachePath() { return cachePath; }
+    public int getSanCacheEntries() { return sanCacheEntries; }
+    public boolean isPrefixTrie() { return prefixTrie; }
+    public DuplicateHandling getDuplicateHandling() { return duplicateHandling; }
+    public int getDuplicateCapacity() { return duplicateCapacity; }
+    public ValidationTier getTier() { return tier; }
+    public boolean isFailFast() { return failFast; }
+    public int getMaxErrors() { return maxErrors; }
+    public String getManifestPath() { return manifestPath; }
+
+    /** @return The budget per game and per file; without limits if none was given. */
+    public ValidationBudget getBudget() {
+        return new ValidationBudget(maxPlies, maxGameSize, gameTimeoutMillis, fileTimeoutMillis);
+    }
+
+    public int getFileTimeoutMillis() { return fileTimeoutMillis; }
+    public String getJournalPath() { return journalPath; }
+    public boolean isResume() { return resume; }
+    public boolean isFollow() { return follow; }
+    public boolean isWatch() { return watch; }
+    public Duration getDebounce() { return debounce; }
+    public boolean isStdin() { return STDIN_PATH.equals(inputPath); }
+
+    public void setExecutionMode(ExecutionMode executionMode) { this.executionMode = executionMode; }
+    public void setThreads(int threads) { this.threads = threads; }
+
+    /**
+     * Sets the header filter from an expression; see {@link HeaderFilter} for the syntax.
+     * @throws IllegalArgumentException if the expression is malformed.
+     */
+    public void setFilterExpression(String expression) {
+        this.headerFilter = HeaderFilter.parse(expression);
+        this.filterExpression = expression;
+    }
+}
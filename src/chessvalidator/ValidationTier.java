@@ -0,0 +1,17 @@
+package chessvalidator;
+
+/** How much of each game is validated: the parser's syntax check always runs, move replay depends on the tier. */
+public enum ValidationTier {
+    SYNTAX, // Syntax check only; no game is replayed
+    CLEAN,  // Replay only games the parser found no syntax errors in
+    FULL;   // Replay every game, also after syntax errors (the original behaviour)
+
+    /** @return Whether the moves of the game are replayed under this tier. */
+    public boolean replays(GameRecord game) {
+        return switch (this) {
+            case SYNTAX -> false;
+            case CLEAN -> game.getSyntaxErrors().isEmpty();
+            case FULL -> true;
+        };
+    }
+}
@@ -0,0 +1,14 @@
+package chessvalidator;
+
+import java.util.List;
+
+/**
+ * A recursive annotation variation (RAV): an alternative to one move of its parent line.
+ *
+ * @param ply Index of the move in the parent line that this variation replaces;
+ *            the variation starts from the position before that move.
+ * @param moves The SAN moves of the variation.
+ * @param variations Nested variations of this line, ordered by ply.
+ */
+public record Variation(int ply, List<CharSequence> moves, List<Variation> variations) {
+}
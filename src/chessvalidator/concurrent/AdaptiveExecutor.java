@@ -0,0 +1,172 @@
+package chessvalidator.concurrent;
+
+import chessvalidator.reports.FileValidationResult;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Thread pool that resizes itself between a lower and an upper bound while it runs.
+ * <p>
+ * Each task's CPU time (from {@link ThreadMXBean}) is compared with its wall time. A task that spends
+ * half its time blocked on I/O has a utilization of 0.5, and twice as many threads as CPUs are needed
+ * to keep the CPUs busy, so the pool aims for {@code cpus / utilization} threads.
+ * {@code cpus} comes from {@link Runtime#availableProcessors()}, which honours container CPU limits.
+ * <p>
+ * CPU quota throttling looks like I/O wait, because wall time grows while CPU time does not. Every
+ * change is therefore checked against the games per second of the following window. A change that
+ * lowered throughput is undone, and the size is then held for a few windows.
+ * If per-thread CPU time cannot be measured on this JVM, the pool keeps its initial size.
+ */
+public class AdaptiveExecutor extends ThreadPoolExecutor {
+
+    public static final long DEFAULT_WINDOW_MILLIS = 500;
+    private static final double MIN_UTILIZATION = 0.05;   // Caps the estimate for tasks that almost only wait
+    private static final double REGRESSION_TOLERANCE = 0.95;
+    private static final int HOLD_WINDOWS_AFTER_REVERT = 3;
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private final int minThreads;
+    private final int maxThreads;
+    private final int cpuBudget = Runtime.getRuntime().availableProcessors();
+    private final long windowNanos;
+    private final boolean measurable;
+    private final ThreadLocal<long[]> taskStart = ThreadLocal.withInitial(() -> new long[2]); // cpu, wall
+
+    // Current measurement window; guarded by this
+    private long windowStart = System.nanoTime();
+    private long windowCpuNanos;
+    private long windowWallNanos;
+    private int windowTasks;
+    private long windowGames;
+
+    // Outcome of the previous adjustment; guarded by this
+    private int previousSize = -1;
+    private double previousThroughput;
+    private int holdWindows;
+    private int adjustments;
+    private double lastUtilization = Double.NaN;
+    private double peakThroughput;
+
+    public AdaptiveExecutor(int initialThreads, int minThreads, int maxThreads) {
+        this(initialThreads, minThreads, maxThreads, DEFAULT_WINDOW_MILLIS);
+    }
+
+    /**
+     * @param initialThreads Starting size, clamped to the bounds.
+     * @param windowMillis Minimum time between two adjustments.
+     */
+    public AdaptiveExecutor(int initialThreads, int minThreads, int maxThreads, long windowMillis) {
+        super(clamp(initialThreads, minThreads, maxThreads), maxThreads, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+        if (minThreads < 1 || maxThreads < minThreads || windowMillis < 1) {
+            throw new IllegalArgumentException("Need 1 <= min threads <= max threads and a positive window");
+        }
+        this.minThreads = minThreads;
+        this.maxThreads = maxThreads;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        this.measurable = THREADS.isCurrentThreadCpuTimeSupported() && THREADS.isThreadCpuTimeEnabled();
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    @Override
+    protected void beforeExecute(Thread thread, Runnable task) {
+        super.beforeExecute(thread, task);
+        long[] start = taskStart.get();
+        start[0] = measurable ? THREADS.getCurrentThreadCpuTime() : 0;
+        start[1] = System.nanoTime();
+    }
+
+    @Override
+    protected void afterExecute(Runnable task, Throwable failure) {
+        super.afterExecute(task, failure);
+        long[] start = taskStart.get();
+        long cpu = measurable ? THREADS.getCurrentThreadCpuTime() - start[0] : 0;
+        long now = System.nanoTime();
+        record(cpu, now - start[1], gamesIn(task), now);
+    }
+
+    // Throughput is counted in games, because files differ widely in size
+    private static int gamesIn(Runnable task) {
+        if (task instanceof Future<?> future && future.isDone() && !future.isCancelled()) {
+            try {
+                if (future.get() instanceof FileValidationResult fileResult) {
+                    return fileResult.getGameCount();
+                }
+            } catch (Exception e) {
+                return 0; // Failed tasks are reported by whoever collects the future
+            }
+        }
+        return 1;
+    }
+
+    private synchronized void record(long cpuNanos, long wallNanos, int games, long now) {
+        windowCpuNanos += cpuNanos;
+        windowWallNanos += wallNanos;
+        windowTasks++;
+        windowGames += games;
+        long elapsed = now - windowStart;
+        if (elapsed >= windowNanos && windowTasks >= getCorePoolSize()) {
+            adjust(elapsed);
+            windowStart = now;
+            windowCpuNanos = windowWallNanos = windowGames = 0;
+            windowTasks = 0;
+        }
+    }
+
+    private void adjust(long elapsedNanos) {
+        double throughput = windowGames * 1e9 / elapsedNanos;
+        peakThroughput = Math.max(peakThroughput, throughput);
+        if (!measurable || windowWallNanos == 0) {
+            return;
+        }
+        double utilization = Math.max(MIN_UTILIZATION, Math.min(1.0, (double) windowCpuNanos / windowWallNanos));
+        lastUtilization = utilization;
+        int current = getCorePoolSize();
+
+        int target;
+        if (holdWindows > 0) {
+            holdWindows--;
+            target = current;
+        } else if (previousSize >= 0 && previousSize != current && throughput < previousThroughput * REGRESSION_TOLERANCE) {
+            target = previousSize; // The last change made things worse
+            holdWindows = HOLD_WINDOWS_AFTER_REVERT;
+        } else {
+            int estimate = clamp((int) Math.ceil(cpuBudget / utilization), minThreads, maxThreads);
+            int step = Math.max(1, Math.abs(estimate - current) / 2); // Move halfway, so one noisy window cannot swing the pool
+            target = estimate > current ? current + step : estimate < current ? current - step : current;
+        }
+
+        previousSize = current;
+        previousThroughput = throughput;
+        if (target != current) {
+            setCorePoolSize(target);
+            adjustments++;
+        }
+    }
+
+    public int getMinThreads() { return minThreads; }
+    public int getMaxThreads() { return maxThreads; }
+    public synchronized int getAdjustmentCount() { return adjustments; }
+
+    /** @return A one-line summary for the end of a run. */
+    public synchronized String format() {
+        if (!measurable) {
+            return "Adaptive pool: per-thread CPU time is not available on this JVM, kept " + getCorePoolSize() + " threads.";
+        }
+        if (Double.isNaN(lastUtilization)) {
+            return "Adaptive pool: run ended before a full measurement window, kept " + getCorePoolSize() + " threads.";
+        }
+        return String.format("Adaptive pool: %d-%d threads, ended at %d (largest %d) after %d adjustment(s); "
+                        + "last task CPU utilization %.0f%%, peak %.1f games/s, CPU budget %d.",
+                minThreads, maxThreads, getCorePoolSize(), getLargestPoolSize(), adjustments,
+                lastUtilization * 100, peakThroughput, cpuBudget);
+    }
+}
@@ -0,0 +1,69 @@
+package chessvalidator.concurrent;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Stage-level counters for {@link ValidationPipeline}.
+ * Busy time is time spent doing work; blocked time is time spent waiting on the queue.
+ * Parsers blocked on a full queue mean the run is replay-bound,
+ * validators starved on an empty queue mean it is parse-bound.
+ */
+public class PipelineStats {
+    private final LongAdder parseBusyNanos = new LongAdder();
+    private final LongAdder parseBlockedNanos = new LongAdder();
+    private final LongAdder validateBusyNanos = new LongAdder();
+    private final LongAdder validateIdleNanos = new LongAdder();
+    private final LongAdder gamesParsed = new LongAdder();
+    private final LongAdder gamesValidated = new LongAdder();
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+
+    void addParseBusy(long nanos) { parseBusyNanos.add(nanos); }
+    void addParseBlocked(long nanos) { parseBlockedNanos.add(nanos); }
+    void addValidateBusy(long nanos) { validateBusyNanos.add(nanos); }
+    void addValidateIdle(long nanos) { validateIdleNanos.add(nanos); }
+    void gameParsed() { gamesParsed.increment(); }
+    void gameValidated() { gamesValidated.increment(); }
+    void observeQueueDepth(int depth) { maxQueueDepth.accumulateAndGet(depth, Math::max); }
+
+    public long getGamesParsed() { return gamesParsed.sum(); }
+    public long getGamesValidated() { return gamesValidated.sum(); }
+    public int getMaxQueueDepth() { return maxQueueDepth.get(); }
+
+    /**
+     * Fraction of the available parser-thread time spent parsing (0..1).
+     * Blocked time on a full queue is excluded from busy time.
+     */
+    public double parseUtilization(int parserThreads, long wallNanos) {
+        return ratio(parseBusyNanos.sum() - parseBlockedNanos.sum(), (long) parserThreads * wallNanos);
+    }
+
+    /** Fraction of the available validator-thread time spent replaying games (0..1). */
+    public double validateUtilization(int validatorThreads, long wallNanos) {
+        return ratio(validateBusyNanos.sum(), (long) validatorThreads * wallNanos);
+    }
+
+    /** Names the stage that limited throughput, judged by which side spent more time waiting on the other. */
+    public String bottleneck(int parserThreads, int validatorThreads, long wallNanos) {
+        double parsersBlocked = ratio(parseBlockedNanos.sum(), (long) parserThreads * wallNanos);
+        double validatorsIdle = ratio(validateIdleNanos.sum(), (long) validatorThreads * wallNanos);
+        return parsersBlocked > validatorsIdle ? "replay-bound" : "parse-bound";
+    }
+
+    public String format(int parserThreads, int validatorThreads, long wallNanos) {
+        return String.format("Pipeline: %d games parsed, %d validated, max queue depth %d%n" +
+                        "  Parse stage:    %d thread(s), %.1f%% busy, %.1f%% blocked on full queue%n" +
+                        "  Validate stage: %d thread(s), %.1f%% busy, %.1f%% idle on empty queue%n" +
+                        "  Run was %s",
+                getGamesParsed(), getGamesValidated(), getMaxQueueDepth(),
+                parserThreads, 100 * parseUtilization(parserThreads, wallNanos),
+                100 * ratio(parseBlockedNanos.sum(), (long) parserThreads * wallNanos),
+                validatorThreads, 100 * validateUtilization(validatorThreads, wallNanos),
+                100 * ratio(validateIdleNanos.sum(), (long) validatorThreads * wallNanos),
+                bottleneck(parserThreads, validatorThreads, wallNanos));
+    }
+
+    private static double ratio(long part, long whole) {
+        return whole <= 0 ? 0.0 : Math.min(1.0, Math.max(0.0, (double) part / whole));
+    }
+}
@@ -0,0 +1,263 @@
+package chessvalidator.concurrent;
+
+import chessvalidator.GameRecord;
+import chessvalidator.GameValidator;
+import chessvalidator.HeaderFilter;
+import chessvalidator.PgnParser;
+import chessvalidator.TriagePolicy;
+import chessvalidator.ValidationBudget;
+import chessvalidator.io.PgnSource;
+import chessvalidator.model.SanResolutionCache;
+import chessvalidator.reports.FileValidationResult;
+import chessvalidator.reports.GameValidationResult;
+import chessvalidator.store.DuplicateDetector;
+import chessvalidator.store.OffHeapGameStore;
+import chessvalidator.store.ResultCache;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.function.Consumer;
+
+/**
+ * Two-stage validation: parser threads read files and push each {@link PgnParser.ParsedGame}
+ * into a bounded queue as soon as it is complete, while a pool of validator threads replays them.
+ * The queue capacity caps how many parsed games can be held in memory at once;
+ * when validators fall behind, parsers block until space frees up.
+ */
+public class ValidationPipeline {
+
+    // A queued game together with the file result it belongs to
+    private record WorkItem(FileValidationResult fileResult, GameRecord game) {}
+
+    // Marks the end of the queue, one per validator thread
+    private static final WorkItem END_OF_INPUT = new WorkItem(null, null);
+
+    private final int parserThreads;
+    private final int validatorThreads;
+    private final BlockingQueue<WorkItem> queue;
+    private final PipelineStats stats = new PipelineStats();
+    private HeaderFilter headerFilter = HeaderFilter.ACCEPT_ALL;
+    private OffHeapGameStore gameStore; // null = keep parsed games on the heap
+    private ResultCache resultCache;    // null = replay every game
+    private SanResolutionCache sanCache; // null = resolve every move from scratch
+    private DuplicateDetector duplicateDetector; // null = validate every copy
+    private TriagePolicy triagePolicy = TriagePolicy.FULL;
+    private ValidationBudget budget = ValidationBudget.UNLIMITED;
+    private Consumer<GameValidationResult> resultListener; // null = keep game results in the file results
+
+    public ValidationPipeline(int parserThreads, int validatorThreads, int queueCapacity) {
+        if (parserThreads < 1 || validatorThreads < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("Thread counts and queue capacity must be >= 1");
+        }
+        this.parserThreads = parserThreads;
+        this.validatorThreads = validatorThreads;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    /**
+     * Validates all files and blocks until every game has been replayed.
+     *
+     * @param pgnFiles The files to validate. May block while more files are discovered;
+     *                 parser threads advance it under its own lock.
+     * @return One result per file, in iteration order, with games in file order.
+     * @throws InterruptedException if the calling thread is interrupted while waiting.
+     */
+    public List<FileValidationResult> run(Iterator<PgnSource> pgnFiles) throws InterruptedException {
+        List<FileValidationResult> results = new ArrayList<>();
+
+        List<Thread> parsers = new ArrayList<>();
+        for (int i = 0; i < parserThreads; i++) {
+            Thread parser = new Thread(() -> parseFiles(pgnFiles, results), "pgn-parser-" + i);
+            parsers.add(parser);
+            parser.start();
+        }
+        List<Thread> validators = new ArrayList<>();
+        for (int i = 0; i < validatorThreads; i++) {
+            Thread validator = new Thread(this::validateGames, "pgn-validator-" + i);
+            validators.add(validator);
+            validator.start();
+        }
+
+        try {
+            for (Thread parser : parsers) {
+                parser.join();
+            }
+            for (int i = 0; i < validatorThreads; i++) {
+                queue.put(END_OF_INPUT);
+            }
+            for (Thread validator : validators) {
+                validator.join();
+            }
+        } catch (InterruptedException e) {
+            parsers.forEach(Thread::interrupt);
+            validators.forEach(Thread::interrupt);
+            throw e;
+        }
+
+        results.forEach(FileValidationResult::sortGameResults);
+        return results;
+    }
+
+    /** Games whose headers do not match are skipped by the parser. Must be set before {@link #run}. */
+    public void setHeaderFilter(HeaderFilter headerFilter) {
+        this.headerFilter = headerFilter;
+    }
+
+    /** If set, parsed games are copied into this store and validated through its views. Must be set before {@link #run}. */
+    public void setGameStore(OffHeapGameStore gameStore) {
+        this.gameStore = gameStore;
+    }
+
+    /** If set, games validated before are answered from this cache instead of replayed. Must be set before {@link #run}. */
+    public void setResultCache(ResultCache resultCache) {
+        this.resultCache = resultCache;
+    }
+
+    /** If set, all validator threads resolve SAN moves through this shared cache. Must be set before {@link #run}. */
+    public void setSanCache(SanResolutionCache sanCache) {
+        this.sanCache = sanCache;
+    }
+
+    /**
+     * If set, game results are passed to the listener as soon as they are validated instead of being kept,
+     * see {@link FileValidationResult#streamGameResults}. Must be set before {@link #run}.
+     */
+    public void setResultListener(Consumer<GameValidationResult> resultListener) {
+        this.resultListener = resultListener;
+    }
+
+    /**
+     * If set, each parsed game is checked against the games seen before; a duplicate is reported to its file's
+     * result and, if the detector skips duplicates, not validated. Must be set before {@link #run}.
+     */
+    public void setDuplicateDetector(DuplicateDetector duplicateDetector) {
+        this.duplicateDetector = duplicateDetector;
+    }
+
+    /**
+     * The validation tier and error limits. Games past a file's error cap are counted as not validated;
+     * once fail-fast has stopped the run, no further file or game is started. Must be set before {@link #run}.
+     */
+    public void setTriagePolicy(TriagePolicy triagePolicy) {
+        this.triagePolicy = triagePolicy;
+    }
+
+    /**
+     * The work allowed per game and per file. The file budget is applied by the parser threads, which stop
+     * reading a file once it is over; games already queued are still validated, each within its own budget.
+     * Must be set before {@link #run}.
+     */
+    public void setBudget(ValidationBudget budget) {
+        this.budget = budget;
+    }
+
+    private GameRecord store(PgnParser.ParsedGame game) {
+        return gameStore != null ? gameStore.add(game) : game;
+    }
+
+    public PipelineStats getStats() { return stats; }
+    public int getParserThreads() { return parserThreads; }
+    public int getValidatorThreads() { return validatorThreads; }
+
+    private void parseFiles(Iterator<PgnSource> pgnFiles, List<FileValidationResult> results) {
+        PgnParser parser = new PgnParser(headerFilter, budget);
+        while (true) {
+            PgnSource pgnFile;
+            FileValidationResult fileResult;
+            synchronized (pgnFiles) {
+                try {
+                    if (triagePolicy.isStopped() || !pgnFiles.hasNext()) {
+                        return;
+                    }
+                    pgnFile = pgnFiles.next();
+                } catch (IllegalStateException e) {
+                    return; // Interrupted while waiting for discovery
+                }
+                // Appended under the iterator's lock so results stay in iteration order
+                fileResult = new FileValidationResult(pgnFile.name());
+                if (resultListener != null) {
+                    fileResult.streamGameResults(resultListener);
+                }
+                results.add(fileResult);
+            }
+            System.out.println("Parsing: " + pgnFile.name() + " on thread: " + Thread.currentThread().getName());
+            long start = System.nanoTime();
+            try (Reader reader = pgnFile.openReader()) {
+                parser.parse(reader, fileResult, game -> {
+                    if (!triagePolicy.allows(fileResult)) {
+                        if (triagePolicy.isStopped()) {
+                            throw new CancellationException("Stopped by fail-fast");
+                        }
+                        fileResult.addUnvalidatedGames(1);
+                    } else if (duplicateDetector == null || duplicateDetector.admit(game, fileResult)) {
+                        enqueue(new WorkItem(fileResult, store(game)));
+                    }
+                });
+            } catch (CancellationException e) {
+                return; // Interrupted while waiting for queue space, or stopped by fail-fast
+            } catch (IOException e) {
+                System.err.println("Error reading file " + pgnFile.name() + ": " + e.getMessage());
+                fileResult.addFileError("Failed to read file: " + e.getMessage());
+            } catch (Exception e) {
+                System.err.println("Unexpected error while parsing " + pgnFile.name() + ": " + e.getMessage());
+                fileResult.addFileError("Unexpected validation error: " + e.getMessage());
+                e.printStackTrace();
+            } finally {
+                stats.addParseBusy(System.nanoTime() - start);
+            }
+        }
+    }
+
+    private void enqueue(WorkItem item) {
+        stats.gameParsed();
+        long start = System.nanoTime();
+        try {
+            queue.put(item);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Pipeline parser interrupted");
+        } finally {
+            stats.addParseBlocked(System.nanoTime() - start);
+        }
+        stats.observeQueueDepth(queue.size());
+    }
+
+    private void validateGames() {
+        GameValidator validator = new GameValidator(resultCache, sanCache, triagePolicy.getTier(), budget);
+        try {
+            while (true) {
+                long waitStart = System.nanoTime();
+                WorkItem item = queue.take();
+                long workStart = System.nanoTime();
+                stats.addValidateIdle(workStart - waitStart);
+                if (item == END_OF_INPUT) {
+                    return;
+                }
+                try {
+                    // Games queued before their file reached a limit are checked again here
+                    if (triagePolicy.allows(item.fileResult())) {
+                        GameValidationResult gameResult = validator.validate(item.game());
+                        item.fileResult().addGameResult(gameResult);
+                        triagePolicy.record(item.fileResult(), gameResult);
+                    } else {
+                        item.fileResult().addUnvalidatedGames(1);
+                    }
+                } catch (Exception e) {
+                    System.err.println("Unexpected error during validation of " + item.fileResult().getFilePath() + ": " + e.getMessage());
+                    item.fileResult().addFileError("Unexpected validation error: " + e.getMessage());
+                    e.printStackTrace();
+                }
+                stats.gameValidated();
+                stats.addValidateBusy(System.nanoTime() - workStart);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
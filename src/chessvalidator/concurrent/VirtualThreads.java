@@ -0,0 +1,45 @@
+package chessvalidator.concurrent;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Access to virtual-thread executors without requiring a Java 21 compiler.
+ * The project still targets JDK 17, so the factory method is looked up reflectively
+ * and a cached platform-thread pool is used when the running JVM does not provide it.
+ */
+public final class VirtualThreads {
+
+    private static final Method NEW_PER_TASK_EXECUTOR = findFactory();
+
+    private VirtualThreads() {}
+
+    private static Method findFactory() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null; // Running on a JDK without virtual threads
+        }
+    }
+
+    /** @return True if the running JVM supports virtual threads. */
+    public static boolean isSupported() {
+        return NEW_PER_TASK_EXECUTOR != null;
+    }
+
+    /**
+     * Creates an executor that starts a new virtual thread for each task,
+     * or a cached thread pool if virtual threads are unavailable.
+     */
+    public static ExecutorService newPerTaskExecutor() {
+        if (NEW_PER_TASK_EXECUTOR != null) {
+            try {
+                return (ExecutorService) NEW_PER_TASK_EXECUTOR.invoke(null);
+            } catch (ReflectiveOperationException e) {
+                System.err.println("Warning: Could not create virtual-thread executor: " + e.getMessage());
+            }
+        }
+        return Executors.newCachedThreadPool();
+    }
+}
@@ -0,0 +1,281 @@
+package chessvalidator.concurrent;
+
+import chessvalidator.GameRecord;
+import chessvalidator.GameValidator;
+import chessvalidator.HeaderFilter;
+import chessvalidator.PgnParser;
+import chessvalidator.TriagePolicy;
+import chessvalidator.ValidationBudget;
+import chessvalidator.io.PgnSource;
+import chessvalidator.model.SanResolutionCache;
+import chessvalidator.reports.FileValidationResult;
+import chessvalidator.reports.GameValidationResult;
+import chessvalidator.store.DuplicateDetector;
+import chessvalidator.store.OffHeapGameStore;
+import chessvalidator.store.ResultCache;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fork/join scheduler that starts with the largest inputs and splits big files into game ranges,
+ * so an oversized file found late in the walk does not leave one thread working alone at the end.
+ * Idle workers steal pending game ranges from busy ones. Each worker thread keeps one parser and one
+ * validator for the whole run, so no parser, validator or game state is created per file or range.
+ */
+public class WorkStealingScheduler {
+
+    private final int parallelism;
+    private final long splitThresholdBytes;
+    private final int gamesPerTask;
+    private HeaderFilter headerFilter = HeaderFilter.ACCEPT_ALL;
+    private OffHeapGameStore gameStore; // null = keep parsed games on the heap
+    private ResultCache resultCache;    // null = replay every game
+    private SanResolutionCache sanCache; // null = resolve every move from scratch
+    private DuplicateDetector duplicateDetector; // null = validate every copy
+    private TriagePolicy triagePolicy = TriagePolicy.FULL;
+    private ValidationBudget budget = ValidationBudget.UNLIMITED;
+
+    // Last time each worker finished a piece of work; the earliest of these is when the first worker went idle
+    private final Map<Thread, Long> lastFinishNanos = new ConcurrentHashMap<>();
+    private long runStartNanos;
+    private long runEndNanos;
+
+    /**
+     * @param parallelism Number of worker threads.
+     * @param splitThresholdBytes Files larger than this are split into game-range subtasks.
+     * @param gamesPerTask Game ranges are split until they contain at most this many games.
+     */
+    public WorkStealingScheduler(int parallelism, long splitThresholdBytes, int gamesPerTask) {
+        if (parallelism < 1 || splitThresholdBytes < 1 || gamesPerTask < 1) {
+            throw new IllegalArgumentException("Parallelism, split threshold and games per task must be >= 1");
+        }
+        this.parallelism = parallelism;
+        this.splitThresholdBytes = splitThresholdBytes;
+        this.gamesPerTask = gamesPerTask;
+    }
+
+    /**
+     * Validates all files and blocks until done.
+     * @return One result per file, in the same order as the input; files fail-fast stopped before they started are omitted.
+     */
+    public List<FileValidationResult> run(List<PgnSource> pgnFiles) {
+        List<FileTask> tasks = new ArrayList<>();
+        for (PgnSource pgnFile : pgnFiles) {
+            tasks.add(new FileTask(pgnFile));
+        }
+        List<FileTask> largestFirst = new ArrayList<>(tasks);
+        largestFirst.sort(Comparator.comparingLong((FileTask t) -> t.size).reversed());
+
+        lastFinishNanos.clear();
+        ForkJoinPool pool = new ForkJoinPool(parallelism, WorkerThread::new, null, false);
+        runStartNanos = System.nanoTime();
+        try {
+            // External submissions are taken in FIFO order, so the biggest files start first
+            largestFirst.forEach(pool::execute);
+            tasks.forEach(ForkJoinTask::join);
+        } finally {
+            runEndNanos = System.nanoTime();
+            pool.shutdown();
+        }
+
+        List<FileValidationResult> results = new ArrayList<>();
+        for (FileTask task : tasks) {
+            if (task.started) {
+                results.add(task.fileResult);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Time between the first worker running out of work and the end of the run, in milliseconds.
+     * Workers that never received a task count as idle from the start.
+     */
+    public long getTailLatencyMillis() {
+        long firstIdle = lastFinishNanos.size() < parallelism
+                ? runStartNanos
+                : lastFinishNanos.values().stream().mapToLong(Long::longValue).min().orElse(runStartNanos);
+        return (runEndNanos - firstIdle) / 1_000_000;
+    }
+
+    /** Games whose headers do not match are skipped by the parser. Must be set before {@link #run}. */
+    public void setHeaderFilter(HeaderFilter headerFilter) {
+        this.headerFilter = headerFilter;
+    }
+
+    /** If set, parsed games are copied into this store and validated through its views. Must be set before {@link #run}. */
+    public void setGameStore(OffHeapGameStore gameStore) {
+        this.gameStore = gameStore;
+    }
+
+    /** If set, games validated before are answered from this cache instead of replayed. Must be set before {@link #run}. */
+    public void setResultCache(ResultCache resultCache) {
+        this.resultCache = resultCache;
+    }
+
+    /** If set, all validator threads resolve SAN moves through this shared cache. Must be set before {@link #run}. */
+    public void setSanCache(SanResolutionCache sanCache) {
+        this.sanCache = sanCache;
+    }
+
+    /**
+     * If set, each parsed game is checked against the games seen before; a duplicate is reported to its file's
+     * result and, if the detector skips duplicates, not validated. Must be set before {@link #run}.
+     */
+    public void setDuplicateDetector(DuplicateDetector duplicateDetector) {
+        this.duplicateDetector = duplicateDetector;
+    }
+
+    /**
+     * The validation tier and error limits. Games past a file's error cap are counted as not validated;
+     * once fail-fast has stopped the run, no further game is started and files not yet started are left
+     * out of the results. Must be set before {@link #run}.
+     */
+    public void setTriagePolicy(TriagePolicy triagePolicy) {
+        this.triagePolicy = triagePolicy;
+    }
+
+    /**
+     * The work allowed per game and per file. A file's time runs from the start of its task, and every
+     * range of a split file stops once it is over. Must be set before {@link #run}.
+     */
+    public void setBudget(ValidationBudget budget) {
+        this.budget = budget;
+    }
+
+    private GameRecord store(PgnParser.ParsedGame game) {
+        return gameStore != null ? gameStore.add(game) : game;
+    }
+
+    public long getRunMillis() { return (runEndNanos - runStartNanos) / 1_000_000; }
+    public int getParallelism() { return parallelism; }
+
+    // Created by the pool once the settings are final; only used between joins, so one file or range at a time
+    private final class WorkerThread extends ForkJoinWorkerThread {
+        private final PgnParser parser = new PgnParser(headerFilter, budget);
+        private final GameValidator validator = new GameValidator(resultCache, sanCache, triagePolicy.getTier(), budget);
+
+        WorkerThread(ForkJoinPool pool) {
+            super(pool);
+        }
+    }
+
+    private static WorkerThread currentWorker() {
+        return (WorkerThread) Thread.currentThread();
+    }
+
+    // Ranges of one file add their results concurrently; the file task sorts them once all have joined
+    private void validateRange(FileTask file, int from, int to) {
+        FileValidationResult fileResult = file.fileResult;
+        GameValidator validator = currentWorker().validator;
+        for (int i = from; i < to; i++) {
+            if (!triagePolicy.allows(fileResult)) {
+                fileResult.addUnvalidatedGames(to - i);
+                return;
+            }
+            if (ValidationBudget.isPast(file.deadline)) {
+                file.gamesOutOfTime.addAndGet(to - i);
+                return;
+            }
+            GameValidationResult gameResult = validator.validate(file.games.get(i));
+            fileResult.addGameResult(gameResult);
+            triagePolicy.record(fileResult, gameResult);
+        }
+    }
+
+    private void markFinished() {
+        lastFinishNanos.put(Thread.currentThread(), System.nanoTime());
+    }
+
+    // Parses one file; validates it directly or forks game ranges if the file is large
+    private class FileTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final PgnSource pgnFile;
+        private final long size;
+        private final FileValidationResult fileResult;
+        private final AtomicInteger gamesOutOfTime = new AtomicInteger(); // Left by ranges once the file budget ran out
+        private List<GameRecord> games;
+        private long deadline;
+        private boolean started; // Read by run() after join()
+
+        FileTask(PgnSource pgnFile) {
+            this.pgnFile = pgnFile;
+            this.size = pgnFile.size();
+            this.fileResult = new FileValidationResult(pgnFile.name());
+        }
+
+        @Override
+        protected void compute() {
+            if (triagePolicy.isStopped()) {
+                markFinished();
+                return;
+            }
+            started = true;
+            deadline = budget.fileDeadline();
+            System.out.println("Validating: " + pgnFile.name() + " (" + size + " bytes) on thread: " + Thread.currentThread().getName());
+            try (Reader reader = pgnFile.openReader()) {
+                games = new ArrayList<>();
+                currentWorker().parser.parse(reader, fileResult, game -> {
+                    if (duplicateDetector == null || duplicateDetector.admit(game, fileResult)) {
+                        games.add(store(game));
+                    }
+                });
+                if (size > splitThresholdBytes && games.size() > gamesPerTask) {
+                    new GameRangeTask(this, 0, games.size()).invoke();
+                    fileResult.sortGameResults();
+                } else {
+                    validateRange(this, 0, games.size());
+                }
+                if (gamesOutOfTime.get() > 0) {
+                    fileResult.addFileError(budget.fileTimeExceeded(gamesOutOfTime.get()));
+                }
+            } catch (IOException e) {
+                System.err.println("Error reading file " + pgnFile.name() + ": " + e.getMessage());
+                fileResult.addFileError("Failed to read file: " + e.getMessage());
+            } catch (Exception e) {
+                System.err.println("Unexpected error during validation of " + pgnFile.name() + ": " + e.getMessage());
+                fileResult.addFileError("Unexpected validation error: " + e.getMessage());
+                e.printStackTrace();
+            }
+            markFinished();
+        }
+    }
+
+    // Validates games [from, to) of a file, halving the range until it is small enough
+    private class GameRangeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final FileTask file;
+        private final int from;
+        private final int to;
+
+        GameRangeTask(FileTask file, int from, int to) {
+            this.file = file;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= gamesPerTask) {
+                validateRange(file, from, to);
+                markFinished();
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new GameRangeTask(file, from, mid), new GameRangeTask(file, mid, to));
+        }
+    }
+}
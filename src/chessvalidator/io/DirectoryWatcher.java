@@ -0,0 +1,164 @@
+package chessvalidator.io;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * Watches a directory tree and reports PGN inputs that were created or modified, once they have settled.
+ * <p>
+ * An upload usually arrives as a burst of events: a create and then one modify per written block.
+ * Each event only restarts the file's quiet period. The file is reported once no event for it has
+ * arrived for the debounce interval, so a burst gives one report after the upload has finished.
+ * <p>
+ * Subdirectories are registered as they appear, since a {@link WatchService} watches one directory only.
+ * If the service reports lost events (overflow), the tree is walked once and every input modified since
+ * shortly before the last event is reported. Otherwise nothing is rescanned.
+ * Not thread-safe; {@link #watch} is meant to run on one thread.
+ */
+public class DirectoryWatcher implements AutoCloseable {
+
+    public static final Duration DEFAULT_DEBOUNCE = Duration.ofMillis(500);
+
+    private final Path root;
+    private final long debounceNanos;
+    private final WatchService watcher;
+    private final Map<WatchKey, Path> directories = new HashMap<>();
+    private final Map<Path, Long> pending = new LinkedHashMap<>(); // File -> time of its last event, oldest first
+    private long lastEventMillis = System.currentTimeMillis();
+    private int reportedCount;
+
+    /**
+     * Starts watching right away, so changes made after the constructor returns are not missed.
+     * @param root Directory to watch, including its subdirectories.
+     */
+    public DirectoryWatcher(Path root, Duration debounce) throws IOException {
+        if (debounce.isNegative()) {
+            throw new IllegalArgumentException("Debounce interval must not be negative");
+        }
+        this.root = root;
+        this.debounceNanos = debounce.toNanos();
+        this.watcher = root.getFileSystem().newWatchService();
+        registerTree(root);
+    }
+
+    private void registerTree(Path directory) throws IOException {
+        Files.walkFileTree(directory, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                directories.put(dir.register(watcher, ENTRY_CREATE, ENTRY_MODIFY), dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Blocks and passes each settled file to the callback until the calling thread is interrupted or the
+     * watcher is closed. The callback runs on the calling thread, so a slow callback delays later reports;
+     * hand the work to an executor if that matters.
+     *
+     * @param onSettled Receives each created or modified .pgn, .pgn.gz or .zip file.
+     */
+    public void watch(Consumer<Path> onSettled) throws IOException {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = pending.isEmpty() ? watcher.take() : watcher.poll(untilNextDue(), TimeUnit.NANOSECONDS);
+                if (key != null) {
+                    handleEvents(key);
+                }
+                reportSettled(onSettled);
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private long untilNextDue() {
+        long oldest = pending.values().iterator().next(); // Insertion order is event order, see handleEvents
+        return Math.max(0, oldest + debounceNanos - System.nanoTime());
+    }
+
+    private void handleEvents(WatchKey key) throws IOException {
+        Path directory = directories.get(key);
+        if (directory == null) {
+            key.cancel(); // Left over from a deleted directory
+            return;
+        }
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                queueModifiedSince(root, lastEventMillis - 2000); // Margin for coarse modification times
+                continue;
+            }
+            Path changed = directory.resolve((Path) event.context());
+            if (event.kind() == ENTRY_CREATE && Files.isDirectory(changed)) {
+                registerTree(changed);
+                queueModifiedSince(changed, 0); // Files may have been moved in with the directory
+                continue;
+            }
+            if (PgnSource.isSupported(changed)) {
+                pending.remove(changed); // Re-inserted at the end, keeping the map in event order
+                pending.put(changed, System.nanoTime());
+            }
+        }
+        lastEventMillis = System.currentTimeMillis();
+        if (!key.reset()) {
+            directories.remove(key); // The directory was deleted
+        }
+    }
+
+    private void queueModifiedSince(Path directory, long sinceMillis) throws IOException {
+        long now = System.nanoTime();
+        try (var files = Files.walk(directory)) {
+            files.filter(file -> PgnSource.isSupported(file) && Files.isRegularFile(file)).forEach(file -> {
+                try {
+                    if (Files.getLastModifiedTime(file).toMillis() >= sinceMillis && !pending.containsKey(file)) {
+                        pending.put(file, now);
+                    }
+                } catch (IOException e) {
+                    // Deleted meanwhile
+                }
+            });
+        }
+    }
+
+    private void reportSettled(Consumer<Path> onSettled) {
+        long now = System.nanoTime();
+        for (Iterator<Map.Entry<Path, Long>> it = pending.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Path, Long> entry = it.next();
+            if (now - entry.getValue() < debounceNanos) {
+                return; // Later entries had events even more recently
+            }
+            it.remove();
+            if (Files.isRegularFile(entry.getKey())) { // Not deleted or renamed away meanwhile
+                reportedCount++;
+                onSettled.accept(entry.getKey());
+            }
+        }
+    }
+
+    public int getReportedCount() { return reportedCount; }
+
+    /** Stops watching; a blocked {@link #watch} call returns. */
+    @Override
+    public void close() throws IOException {
+        watcher.close();
+    }
+}
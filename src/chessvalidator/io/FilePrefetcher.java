@@ -0,0 +1,327 @@
+package chessvalidator.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reads the next few PGN files into pooled direct buffers on a small I/O thread pool while the
+ * current ones are validated, so validation threads do not sit idle waiting for reads.
+ * <p>
+ * Wraps a file iterator. At most {@code depth} files are held in buffers at a time, each from the start of
+ * its read until its reader is closed; the files handed out or looked ahead at beyond that wait, in the order they
+ * were handed out, for a buffer to come free. Opening a prefetched source waits for its read to finish and then
+ * decodes straight from the buffer. A source opened before its read could start is read the usual way.
+ * Compressed inputs and files over {@link #MAX_PREFETCH_BYTES} are passed through unchanged and streamed as before.
+ * <p>
+ * hasNext/next are synchronized, so the iterator can be shared by several consumer threads.
+ */
+public class FilePrefetcher implements Iterator<PgnSource>, AutoCloseable {
+
+    public static final int DEFAULT_IO_THREADS = 2;
+    static final int MAX_PREFETCH_BYTES = 64 * 1024 * 1024;
+
+    private final Iterator<PgnSource> pgnFiles;
+    private final int depth;
+    private final int ioThreads;
+    private final ExecutorService ioPool;
+    private final BufferPool buffers;
+    private final Deque<PgnSource> ahead = new ArrayDeque<>(); // The next source to hand out, then up to depth more
+    private final AtomicInteger prefetchedFiles = new AtomicInteger();
+    private final AtomicLong prefetchedBytes = new AtomicLong();
+    // Guards the two fields below; not the iterator lock, which is held while discovery blocks
+    private final Object slotLock = new Object();
+    private final Deque<PrefetchedSource> waiting = new ArrayDeque<>(); // Not read yet, in hand-out order
+    private int slotsInUse; // Buffers held from the start of a read until its reader is closed
+
+    /**
+     * @param pgnFiles The files to validate; only advanced under this prefetcher's lock.
+     * @param depth Number of files held in buffers at a time, being read, waiting to be opened or being validated.
+     * @param ioThreads Threads running the asynchronous reads.
+     */
+    public FilePrefetcher(Iterator<PgnSource> pgnFiles, int depth, int ioThreads) {
+        if (depth < 1 || ioThreads < 1) {
+            throw new IllegalArgumentException("Prefetch depth and I/O threads must be >= 1");
+        }
+        this.pgnFiles = pgnFiles;
+        this.depth = depth;
+        this.ioThreads = ioThreads;
+        this.ioPool = Executors.newFixedThreadPool(ioThreads, runnable -> {
+            Thread thread = new Thread(runnable, "pgn-prefetch");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.buffers = new BufferPool(depth);
+    }
+
+    /** Blocks while the underlying iterator does, e.g. until the next file is discovered. */
+    @Override
+    public synchronized boolean hasNext() {
+        fill();
+        return !ahead.isEmpty();
+    }
+
+    @Override
+    public synchronized PgnSource next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        PgnSource next = ahead.poll();
+        fill();
+        return next;
+    }
+
+    private void fill() {
+        while (ahead.size() <= depth && pgnFiles.hasNext()) {
+            ahead.add(prefetch(pgnFiles.next()));
+        }
+    }
+
+    private PgnSource prefetch(PgnSource source) {
+        if (!(source instanceof PgnSource.PlainFileSource plain)) {
+            return source; // Compressed inputs already inflate on a read-ahead thread
+        }
+        long size = plain.size();
+        if (size == 0 || size > MAX_PREFETCH_BYTES) {
+            return source;
+        }
+        PrefetchedSource prefetched = new PrefetchedSource(plain);
+        synchronized (slotLock) {
+            waiting.add(prefetched);
+            startWaiting();
+        }
+        return prefetched;
+    }
+
+    // Starts the reads of waiting sources while buffers are free. Called with slotLock held.
+    private void startWaiting() {
+        while (slotsInUse < depth && !waiting.isEmpty()) {
+            if (waiting.poll().start()) {
+                slotsInUse++;
+            }
+        }
+    }
+
+    // Returns the buffer of a source whose reader was closed or that fell back to a plain read, and passes the slot on
+    private void releaseSlot(ByteBuffer buffer) {
+        buffers.release(buffer);
+        synchronized (slotLock) {
+            slotsInUse--;
+            startWaiting();
+        }
+    }
+
+    // Issues reads until the buffer is full or the file ends. Completes with null if the file grew since it was sized.
+    private static void readFrom(AsynchronousFileChannel channel, ByteBuffer buffer, CompletableFuture<ByteBuffer> loaded) {
+        channel.read(buffer, buffer.position(), null, new CompletionHandler<Integer, Void>() {
+            @Override
+            public void completed(Integer read, Void unused) {
+                if (read >= 0 && buffer.hasRemaining()) {
+                    readFrom(channel, buffer, loaded);
+                    return;
+                }
+                try (channel) {
+                    boolean grew = !buffer.hasRemaining() && channel.size() > buffer.position();
+                    buffer.flip();
+                    loaded.complete(grew ? null : buffer);
+                } catch (IOException e) {
+                    loaded.completeExceptionally(e);
+                }
+            }
+
+            @Override
+            public void failed(Throwable e, Void unused) {
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                    // The read failure is what gets reported
+                }
+                loaded.completeExceptionally(e);
+            }
+        });
+    }
+
+    public int getPrefetchedFiles() { return prefetchedFiles.get(); }
+    public long getPrefetchedBytes() { return prefetchedBytes.get(); }
+    public int getAllocatedBuffers() { return buffers.getAllocatedCount(); }
+
+    /** @return A one-line summary for the end of a run. */
+    public String format() {
+        return String.format("Prefetched %d file(s), %.1f MB, with depth %d on %d I/O thread(s); %d buffer(s) allocated.",
+                prefetchedFiles.get(), prefetchedBytes.get() / (1024.0 * 1024.0), depth, ioThreads, buffers.getAllocatedCount());
+    }
+
+    /** Stops the I/O threads once pending reads are done. */
+    @Override
+    public void close() {
+        ioPool.shutdown();
+    }
+
+    // A plain file whose contents are loaded into a pooled buffer once a slot is free. Can be opened once.
+    private final class PrefetchedSource implements PgnSource {
+        private final PgnSource.PlainFileSource plain;
+        private ByteBuffer buffer; // Both set by start(), under slotLock
+        private CompletableFuture<ByteBuffer> loaded;
+
+        PrefetchedSource(PgnSource.PlainFileSource plain) {
+            this.plain = plain;
+        }
+
+        // Starts the read into a pooled buffer; false if the file cannot be opened, so it is read the usual way
+        private boolean start() {
+            ByteBuffer acquired = buffers.acquire((int) plain.size());
+            try {
+                AsynchronousFileChannel channel = AsynchronousFileChannel.open(plain.file(), Set.of(StandardOpenOption.READ), ioPool);
+                buffer = acquired;
+                loaded = new CompletableFuture<>();
+                readFrom(channel, buffer, loaded);
+                return true;
+            } catch (IOException e) {
+                buffers.release(acquired);
+                return false; // The error is reported when the file is read the usual way
+            }
+        }
+
+        @Override public String name() { return plain.name(); }
+        @Override public Path file() { return plain.file(); }
+        @Override public long size() { return plain.size(); }
+
+        @Override
+        public Reader openReader() throws IOException {
+            CompletableFuture<ByteBuffer> pending;
+            synchronized (slotLock) {
+                if (loaded == null) {
+                    waiting.remove(this); // Opened before a buffer came free: not worth waiting for one
+                }
+                pending = loaded;
+            }
+            if (pending == null) {
+                return plain.openReader();
+            }
+            ByteBuffer contents;
+            try {
+                contents = pending.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                // Released once the read stops writing into the buffer
+                pending.whenComplete((ignored, failure) -> releaseSlot(buffer));
+                throw new InterruptedIOException("Interrupted while waiting for " + name());
+            } catch (ExecutionException e) {
+                contents = null;
+            }
+            if (contents == null) {
+                // Failed or changed while being read: fall back to a plain read, which reports any error
+                releaseSlot(buffer);
+                return plain.openReader();
+            }
+            prefetchedFiles.incrementAndGet();
+            prefetchedBytes.addAndGet(contents.remaining());
+            return new InputStreamReader(new BufferInputStream(contents), Charset.defaultCharset());
+        }
+
+        @Override
+        public String toString() { return name(); }
+    }
+
+    // Reads a loaded buffer and returns it to the pool on close
+    private final class BufferInputStream extends InputStream {
+        private ByteBuffer buffer;
+
+        BufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() throws IOException {
+            ensureOpen();
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            ensureOpen();
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(len, buffer.remaining());
+            buffer.get(b, off, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer == null ? 0 : buffer.remaining();
+        }
+
+        @Override
+        public void close() {
+            if (buffer != null) {
+                releaseSlot(buffer);
+                buffer = null;
+            }
+        }
+
+        private void ensureOpen() throws IOException {
+            if (buffer == null) {
+                throw new IOException("Stream closed");
+            }
+        }
+    }
+
+    // Direct buffers reused across files; sizes are rounded up to a power of two so they fit later files too
+    private static final class BufferPool {
+        private static final int MIN_BUFFER_SIZE = 64 * 1024;
+
+        private final Deque<ByteBuffer> free = new ArrayDeque<>();
+        private final int maxPooled;
+        private int allocatedCount;
+
+        BufferPool(int maxPooled) {
+            this.maxPooled = maxPooled;
+        }
+
+        synchronized ByteBuffer acquire(int size) {
+            for (Iterator<ByteBuffer> it = free.iterator(); it.hasNext(); ) {
+                ByteBuffer buffer = it.next();
+                if (buffer.capacity() >= size) {
+                    it.remove();
+                    buffer.clear().limit(size);
+                    return buffer;
+                }
+            }
+            int capacity = Math.max(MIN_BUFFER_SIZE, Integer.highestOneBit(size - 1) << 1);
+            allocatedCount++;
+            return ByteBuffer.allocateDirect(capacity).limit(size);
+        }
+
+        synchronized void release(ByteBuffer buffer) {
+            if (free.size() < maxPooled) {
+                free.push(buffer);
+            }
+        }
+
+        synchronized int getAllocatedCount() { return allocatedCount; }
+    }
+}
@@ -0,0 +1,158 @@
+package chessvalidator.io;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Walks a directory tree on a background thread and hands out PGN inputs as they are found,
+ * so validation can start before the walk is finished.
+ * The hand-off queue is bounded: when consumers fall behind, the walk pauses.
+ * <p>
+ * The iterator may be shared by several consumer threads as long as each
+ * hasNext/next pair is done under a common lock (see {@link #nextOrNull()}).
+ */
+public class PgnFileDiscovery implements Iterator<PgnSource>, AutoCloseable {
+
+    // Marks the end of the walk; never handed out
+    private static final PgnSource END_OF_WALK = new PgnSource.PlainFileSource(Path.of(""));
+
+    private final Path startPath;
+    private final BlockingQueue<PgnSource> queue;
+    private final AtomicInteger discoveredCount = new AtomicInteger();
+    private Thread walker;
+    private PgnSource lookahead;
+    private boolean finished;
+
+    /**
+     * @param startPath A .pgn, .pgn.gz or .zip file, or a directory to search recursively.
+     * @param bufferCapacity Maximum number of discovered inputs waiting to be consumed.
+     */
+    public PgnFileDiscovery(Path startPath, int bufferCapacity) {
+        this.startPath = startPath;
+        this.queue = new ArrayBlockingQueue<>(bufferCapacity);
+    }
+
+    /** Starts the background walk. Must be called once before iterating. */
+    public PgnFileDiscovery start() {
+        walker = new Thread(this::walk, "pgn-discovery");
+        walker.setDaemon(true); // Never keeps the JVM alive if validation is abandoned
+        walker.start();
+        return this;
+    }
+
+    private void walk() {
+        try {
+            if (Files.isDirectory(startPath)) {
+                Files.walkFileTree(startPath, new SimpleFileVisitor<>() {
+                    @Override
+                    public @NotNull FileVisitResult visitFile(Path file, @NotNull BasicFileAttributes attrs) {
+                        return offerAll(file) ? FileVisitResult.CONTINUE : FileVisitResult.TERMINATE;
+                    }
+                    @Override
+                    public @NotNull FileVisitResult visitFileFailed(Path file, @NotNull IOException exc) {
+                        System.err.println("Warning: Cannot access file " + file + ": " + exc.getMessage());
+                        return FileVisitResult.CONTINUE; // Skip problematic files/dirs
+                    }
+                });
+            } else if (Files.isRegularFile(startPath)) {
+                offerAll(startPath);
+            }
+        } catch (IOException e) {
+            System.err.println("Error walking file tree: " + e.getMessage());
+        } finally {
+            offer(END_OF_WALK);
+        }
+    }
+
+    // Offers every source in a supported file (one per entry for archives); returns false if the walk was cancelled
+    private boolean offerAll(Path file) {
+        if (!PgnSource.isSupported(file)) {
+            return true;
+        }
+        try {
+            for (PgnSource source : PgnSource.expand(file)) {
+                if (!offer(source)) {
+                    return false;
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Warning: Cannot open archive " + file + ": " + e.getMessage());
+        }
+        return true;
+    }
+
+    // Blocks while the buffer is full; returns false if the walk was cancelled
+    private boolean offer(PgnSource source) {
+        try {
+            queue.put(source);
+            if (source != END_OF_WALK) {
+                discoveredCount.incrementAndGet();
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Blocks until the next file is discovered or the walk ends.
+     * @throws IllegalStateException if the waiting thread is interrupted.
+     */
+    @Override
+    public boolean hasNext() {
+        if (lookahead == null && !finished) {
+            try {
+                PgnSource next = queue.take();
+                if (next == END_OF_WALK) {
+                    finished = true;
+                } else {
+                    lookahead = next;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for file discovery", e);
+            }
+        }
+        return lookahead != null;
+    }
+
+    @Override
+    public PgnSource next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        PgnSource next = lookahead;
+        lookahead = null;
+        return next;
+    }
+
+    /** Thread-safe combination of hasNext and next. @return The next input, or null at the end of the walk. */
+    public synchronized PgnSource nextOrNull() {
+        return hasNext() ? next() : null;
+    }
+
+    /** @return The number of inputs found so far (final once the iterator is exhausted). */
+    public int getDiscoveredCount() {
+        return discoveredCount.get();
+    }
+
+    /** Stops the walk if it is still running. */
+    @Override
+    public void close() {
+        if (walker != null) {
+            walker.interrupt();
+        }
+    }
+}
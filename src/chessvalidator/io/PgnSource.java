@@ -0,0 +1,201 @@
+package chessvalidator.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * One unit of PGN input: a plain .pgn file, a gzip-compressed .pgn.gz file or a .pgn entry inside a .zip archive.
+ * Compressed inputs are decompressed while they are read, on a read-ahead thread, so nothing is unpacked to disk.
+ */
+public interface PgnSource {
+
+    /** @return The name used in reports, e.g. "games/round1.pgn" or "archive.zip!/round1.pgn". */
+    String name();
+
+    /** @return The file this source is read from (the archive for zip entries). */
+    Path file();
+
+    /** @return Approximate uncompressed size in bytes, used for scheduling. */
+    long size();
+
+    /**
+     * Opens a reader over the PGN text. The caller must close it.
+     * Text is decoded with the platform charset, like {@link java.io.FileReader}.
+     */
+    Reader openReader() throws IOException;
+
+    /** @return True if the file is a .pgn, .pgn.gz or .zip file. */
+    static boolean isSupported(Path file) {
+        String name = file.toString().toLowerCase();
+        return name.endsWith(".pgn") || name.endsWith(".pgn.gz") || name.endsWith(".zip");
+    }
+
+    /**
+     * Creates the sources for a supported file. A zip archive yields one source per .pgn entry,
+     * so entries can be validated in parallel; other files yield a single source.
+     */
+    static List<PgnSource> expand(Path file) throws IOException {
+        String name = file.toString().toLowerCase();
+        if (name.endsWith(".zip")) {
+            return ZipEntrySource.listEntries(file);
+        }
+        if (name.endsWith(".gz")) {
+            return List.of(new GzipFileSource(file));
+        }
+        return List.of(new PlainFileSource(file));
+    }
+
+    /** Convenience for a single plain or gzip file. */
+    static PgnSource of(Path file) {
+        return file.toString().toLowerCase().endsWith(".gz") ? new GzipFileSource(file) : new PlainFileSource(file);
+    }
+
+    /** Standard input, read as a single stream. */
+    static PgnSource stdin() {
+        return new StreamSource(StreamSource.STDIN_NAME, null);
+    }
+
+    /** A named pipe or other special file that can only be read once, front to back. */
+    static PgnSource stream(Path file) {
+        return new StreamSource(file.toString(), file);
+    }
+
+    private static Reader decode(InputStream in) {
+        return new InputStreamReader(in, Charset.defaultCharset());
+    }
+
+    record PlainFileSource(Path file) implements PgnSource {
+        @Override
+        public String name() { return file.toString(); }
+
+        @Override
+        public long size() {
+            try {
+                return Files.size(file);
+            } catch (IOException e) {
+                return 0; // The error is reported when the file is read
+            }
+        }
+
+        @Override
+        public Reader openReader() throws IOException {
+            return decode(Files.newInputStream(file));
+        }
+    }
+
+    record GzipFileSource(Path file) implements PgnSource {
+        private static final int TYPICAL_PGN_COMPRESSION_RATIO = 4;
+
+        @Override
+        public String name() { return file.toString(); }
+
+        @Override
+        public long size() {
+            try {
+                return Files.size(file) * TYPICAL_PGN_COMPRESSION_RATIO;
+            } catch (IOException e) {
+                return 0;
+            }
+        }
+
+        @Override
+        public Reader openReader() throws IOException {
+            return decode(new ReadAheadInputStream(new GZIPInputStream(Files.newInputStream(file), 64 * 1024)));
+        }
+    }
+
+    /**
+     * Standard input ({@code file} is null) or a named pipe. Its size is unknown and it may never end,
+     * so it is read on a read-ahead thread and parsed as the text arrives.
+     */
+    record StreamSource(String name, Path file) implements PgnSource {
+        public static final String STDIN_NAME = "<stdin>";
+
+        @Override
+        public long size() { return 0; }
+
+        @Override
+        public Reader openReader() throws IOException {
+            return decode(new ReadAheadInputStream(file == null ? System.in : Files.newInputStream(file)));
+        }
+    }
+
+    /**
+     * A .pgn entry of a zip archive. The archive is opened for each read of the entry and closed with its reader,
+     * so an entry that is never read, e.g. one a resumed run skips, holds no file handle, and an entry can be read again.
+     * The JDK shares the central directory between ZipFile instances open on the same file at the same time.
+     */
+    final class ZipEntrySource implements PgnSource {
+        private final Path archive;
+        private final ZipEntry entry;
+
+        private ZipEntrySource(Path archive, ZipEntry entry) {
+            this.archive = archive;
+            this.entry = entry;
+        }
+
+        static List<PgnSource> listEntries(Path file) throws IOException {
+            List<PgnSource> sources = new ArrayList<>();
+            try (ZipFile zipFile = new ZipFile(file.toFile())) {
+                Enumeration<? extends ZipEntry> entries = zipFile.entries();
+                while (entries.hasMoreElements()) {
+                    ZipEntry entry = entries.nextElement();
+                    if (!entry.isDirectory() && entry.getName().toLowerCase().endsWith(".pgn")) {
+                        sources.add(new ZipEntrySource(file, entry));
+                    }
+                }
+            }
+            return sources;
+        }
+
+        @Override
+        public String name() { return archive + "!/" + entry.getName(); }
+
+        @Override
+        public Path file() { return archive; }
+
+        @Override
+        public long size() { return Math.max(entry.getSize(), 0); }
+
+        @Override
+        public Reader openReader() throws IOException {
+            ZipFile zipFile = new ZipFile(archive.toFile());
+            try {
+                ZipEntry current = zipFile.getEntry(entry.getName());
+                if (current == null) {
+                    throw new IOException("Entry no longer in archive: " + entry.getName());
+                }
+                InputStream in = zipFile.getInputStream(current);
+                return decode(new ReadAheadInputStream(new InputStream() {
+                    // Forwards reads and closes the archive when the entry is done
+                    @Override public int read() throws IOException { return in.read(); }
+                    @Override public int read(byte[] b, int off, int len) throws IOException { return in.read(b, off, len); }
+                    @Override public void close() throws IOException {
+                        try {
+                            in.close();
+                        } finally {
+                            zipFile.close();
+                        }
+                    }
+                }));
+            } catch (IOException | RuntimeException e) {
+                zipFile.close();
+                throw e;
+            }
+        }
+
+        @Override
+        public String toString() { return name(); }
+    }
+}
@@ -0,0 +1,174 @@
+package chessvalidator.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Reads an underlying stream on a background thread, a few chunks ahead of the consumer.
+ * Wrapped around a decompressing stream, inflation runs in parallel with parsing and replay
+ * instead of in between them. At most {@code depth} chunks are buffered.
+ */
+public class ReadAheadInputStream extends InputStream {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final int DEFAULT_DEPTH = 4;
+    private static final byte[] END_OF_STREAM = new byte[0];
+
+    // Shared by all read-ahead streams; threads die off when idle
+    private static final ExecutorService READERS = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "pgn-read-ahead");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // A filled chunk and the number of valid bytes in it
+    private record Chunk(byte[] data, int length) {}
+    private static final Chunk END = new Chunk(END_OF_STREAM, 0);
+
+    private final InputStream source;
+    private final BlockingQueue<Chunk> filled;
+    private final BlockingQueue<byte[]> free; // Consumed chunks handed back for reuse
+    private final Future<?> reader;
+    private volatile IOException failure;
+    private volatile boolean closed;
+    private final AtomicBoolean sourceClaimed = new AtomicBoolean(); // By fill(), or by close() if fill() never started
+
+    private Chunk current;
+    private int position;
+
+    public ReadAheadInputStream(InputStream source) {
+        this(source, DEFAULT_DEPTH);
+    }
+
+    /**
+     * @param source The stream to read; closed when this stream is closed or fully read.
+     * @param depth Maximum number of chunks read ahead of the consumer.
+     */
+    public ReadAheadInputStream(InputStream source, int depth) {
+        if (depth < 1) {
+            throw new IllegalArgumentException("Read-ahead depth must be >= 1");
+        }
+        this.source = source;
+        this.filled = new ArrayBlockingQueue<>(depth);
+        this.free = new ArrayBlockingQueue<>(depth + 1); // Chunks in the queue plus the one being consumed
+        this.reader = READERS.submit(this::fill);
+    }
+
+    private void fill() {
+        if (!sourceClaimed.compareAndSet(false, true)) {
+            return; // Closed before this task started; close() has closed the source
+        }
+        try (InputStream in = source) {
+            while (!closed) {
+                byte[] buffer = free.poll();
+                if (buffer == null) {
+                    buffer = new byte[CHUNK_SIZE];
+                }
+                // Whatever one read returns is handed on, so text from a pipe is parsed as it arrives
+                int length = in.read(buffer, 0, buffer.length);
+                if (length == -1) {
+                    break;
+                }
+                if (length > 0) {
+                    filled.put(new Chunk(buffer, length));
+                } else {
+                    free.offer(buffer);
+                }
+            }
+            filled.put(END);
+        } catch (IOException e) {
+            failure = e;
+            putQuietly(END);
+        } catch (RuntimeException e) {
+            // Still ends the stream, or the consumer would wait for the next chunk forever
+            failure = new IOException("Reading failed: " + e.getMessage(), e);
+            putQuietly(END);
+        } catch (InterruptedException e) {
+            // Closed by the consumer; nobody is waiting for the end marker
+        }
+    }
+
+    private void putQuietly(Chunk chunk) {
+        try {
+            filled.put(chunk);
+        } catch (InterruptedException e) {
+            // Closed by the consumer; nobody is waiting for the end marker
+        }
+    }
+
+    // Makes sure current has unread bytes; returns false at the end of the stream
+    private boolean ensureData() throws IOException {
+        while (current == null || position >= current.length()) {
+            if (current == END) {
+                return false;
+            }
+            if (current != null) {
+                free.offer(current.data());
+            }
+            try {
+                current = filled.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for read-ahead data", e);
+            }
+            position = 0;
+            if (current == END && failure != null) {
+                throw failure;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!ensureData()) {
+            return -1;
+        }
+        return current.data()[position++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!ensureData()) {
+            return -1;
+        }
+        int count = Math.min(len, current.length() - position);
+        System.arraycopy(current.data(), position, b, off, count);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public int available() {
+        return current == null ? 0 : current.length() - position;
+    }
+
+    private void closeSource() {
+        try {
+            source.close();
+        } catch (IOException ignored) {
+            // Nothing is read from it any more
+        }
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            reader.cancel(true); // Unblocks a reader waiting for queue space; it closes the source
+            filled.clear();
+            if (sourceClaimed.compareAndSet(false, true)) {
+                closeSource(); // The reader never started, so nothing else will
+            }
+        }
+    }
+}
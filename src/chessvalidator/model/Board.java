@@ -4,6 +4,7 @@ import java.util.Arrays;
 
 public class Board {
     private final Piece[][] squares = new Piece[8][8]; // [row][col]
+    private long placementKey; // Zobrist key of the pieces on the board, kept up to date by setPiece
 
     public Board() {
         // Initialize with nulls (empty squares)
@@ -17,11 +18,13 @@ public class Board {
         for (int r = 0; r < 8; r++) {
             System.arraycopy(other.squares[r], 0, this.squares[r], 0, 8);
         }
+        this.placementKey = other.placementKey;
     }
 
     public void setupInitialPosition() {
         // Clear board first
         for (int r = 0; r < 8; r++) Arrays.fill(squares[r], null);
+        placementKey = 0;
 
         // Pawns
         for (int c = 0; c < 8; c++) {
@@ -58,9 +61,17 @@ public class Board {
 
     public void setPiece(Square square, Piece piece) {
         if (!square.isValid()) return; // Or throw
+        Piece previous = squares[square.row()][square.col()];
+        if (previous != null) placementKey ^= Zobrist.pieceOn(previous, square.row(), square.col());
+        if (piece != null) placementKey ^= Zobrist.pieceOn(piece, square.row(), square.col());
         squares[square.row()][square.col()] = piece;
     }
 
+    /** @return The Zobrist key of the piece placement; equal placements have equal keys. */
+    public long getPlacementKey() {
+        return placementKey;
+    }
+
     public void movePiece(Square from, Square to) {
         if (!from.isValid() || !to.isValid()) return; // Or throw
         Piece movingPiece = getPiece(from);
@@ -5,6 +5,9 @@ import java.util.List;
 import java.util.Objects;
 
 public class GameState {
+    // Set up once; every new or reset state starts from a copy, as callers may change their board in place
+    private static final Board INITIAL_BOARD = initialBoard();
+
     private Board board;
     private Color currentPlayer;
     boolean whiteCanCastleKingSide;
@@ -16,8 +19,21 @@ public class GameState {
     private int fullMoveNumber;
 
     public GameState() {
-        board = new Board();
+        reset();
+    }
+
+    private static Board initialBoard() {
+        Board board = new Board();
         board.setupInitialPosition();
+        return board;
+    }
+
+    /**
+     * Returns to the standard initial position, so one state can be reused for game after game.
+     * Snapshots taken before stay valid: the board is replaced, not cleared.
+     */
+    public void reset() {
+        board = new Board(INITIAL_BOARD);
         currentPlayer = Color.WHITE;
         whiteCanCastleKingSide = true;
         whiteCanCastleQueenSide = true;
@@ -188,6 +204,22 @@ public class GameState {
     public int getFullMoveNumber() { return fullMoveNumber; }
     public int getHalfMoveClock() { return halfMoveClock; }
 
+    /**
+     * Zobrist key of everything that decides which moves are legal: piece placement, side to move,
+     * castling rights and en passant target. The move clocks are left out, so a position reached by
+     * different move orders has one key. Costs a few XORs, the board keeps its part up to date.
+     */
+    public long getPositionKey() {
+        long key = board.getPlacementKey();
+        if (currentPlayer == Color.BLACK) key ^= Zobrist.BLACK_TO_MOVE;
+        if (whiteCanCastleKingSide) key ^= Zobrist.castling(0);
+        if (whiteCanCastleQueenSide) key ^= Zobrist.castling(1);
+        if (blackCanCastleKingSide) key ^= Zobrist.castling(2);
+        if (blackCanCastleQueenSide) key ^= Zobrist.castling(3);
+        if (enPassantTargetSquare != null) key ^= Zobrist.enPassant(enPassantTargetSquare);
+        return key;
+    }
+
 
     // --- Core Logic ---
 
@@ -603,6 +635,53 @@ public class GameState {
         return !isInCheck() && generateLegalMoves().isEmpty();
     }
 
+    /**
+     * Captured state that {@link #restore} can return to, e.g. after replaying a variation.
+     * Holds the board by reference: applyMove always works on a new Board, so a board
+     * is never changed once a move has been made from it.
+     */
+    public static final class Snapshot {
+        private final Board board;
+        private final Color currentPlayer;
+        private final boolean whiteCanCastleKingSide;
+        private final boolean whiteCanCastleQueenSide;
+        private final boolean blackCanCastleKingSide;
+        private final boolean blackCanCastleQueenSide;
+        private final Square enPassantTargetSquare;
+        private final int halfMoveClock;
+        private final int fullMoveNumber;
+
+        private Snapshot(GameState state) {
+            board = state.board;
+            currentPlayer = state.currentPlayer;
+            whiteCanCastleKingSide = state.whiteCanCastleKingSide;
+            whiteCanCastleQueenSide = state.whiteCanCastleQueenSide;
+            blackCanCastleKingSide = state.blackCanCastleKingSide;
+            blackCanCastleQueenSide = state.blackCanCastleQueenSide;
+            enPassantTargetSquare = state.enPassantTargetSquare;
+            halfMoveClock = state.halfMoveClock;
+            fullMoveNumber = state.fullMoveNumber;
+        }
+    }
+
+    /** Captures the current state in constant time, without copying the board. */
+    public Snapshot snapshot() {
+        return new Snapshot(this);
+    }
+
+    /** Returns to a state captured by {@link #snapshot()} on this or another GameState. */
+    public void restore(Snapshot snapshot) {
+        board = snapshot.board;
+        currentPlayer = snapshot.currentPlayer;
+        whiteCanCastleKingSide = snapshot.whiteCanCastleKingSide;
+        whiteCanCastleQueenSide = snapshot.whiteCanCastleQueenSide;
+        blackCanCastleKingSide = snapshot.blackCanCastleKingSide;
+        blackCanCastleQueenSide = snapshot.blackCanCastleQueenSide;
+        enPassantTargetSquare = snapshot.enPassantTargetSquare;
+        halfMoveClock = snapshot.halfMoveClock;
+        fullMoveNumber = snapshot.fullMoveNumber;
+    }
+
     /** Creates a deep copy of the game state. */
     public GameState copy() {
         GameState copy = new GameState(); // Creates new board etc.
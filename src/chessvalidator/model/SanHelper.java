@@ -28,12 +28,12 @@ public class SanHelper {
     /**
      * Parses a Standard Algebraic Notation (SAN) move string in the context of a given game state.
      *
-     * @param san       The move string (e.g., "Nf3", "exd5", "O-O").
+     * @param san       The move text (e.g., "Nf3", "exd5", "O-O"); any CharSequence, such as a parser token view.
      * @param gameState The current state of the game.
      * @return The corresponding legal Move object.
      * @throws IllegalArgumentException if the SAN is invalid, ambiguous, or represents an illegal move.
      */
-    public static Move sanToMove(String san, GameState gameState) throws IllegalArgumentException {
+    public static Move sanToMove(CharSequence san, GameState gameState) throws IllegalArgumentException {
         List<Move> legalMoves = gameState.generateLegalMoves();
         Color currentPlayer = gameState.getCurrentPlayer();
 
@@ -144,7 +144,7 @@ public class SanHelper {
 
 
     /** Helper to find a unique move matching a predicate */
-    private static <T> T findMatchingMove(List<T> moves, java.util.function.Predicate<T> predicate, String san, String moveDescription) throws IllegalArgumentException {
+    private static <T> T findMatchingMove(List<T> moves, java.util.function.Predicate<T> predicate, CharSequence san, String moveDescription) throws IllegalArgumentException {
         List<T> matches = new ArrayList<>();
         for (T move : moves) {
             if (predicate.test(move)) {
@@ -0,0 +1,107 @@
+package chessvalidator.model;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of resolved SAN moves, keyed by (position key, SAN token), shared by all validator threads.
+ * <p>
+ * Games in a database share their openings, so the same SAN token is resolved in the same position over
+ * and over, each time through full legal move generation in {@link SanHelper#sanToMove}. A hit returns the
+ * move without generating any. Only successful resolutions are cached; an illegal or ambiguous move is
+ * resolved again each time, so its error message is the same as without the cache.
+ * <p>
+ * The table is an array of two-way buckets, read and written without locks. Each entry is immutable and
+ * published through an {@link AtomicReferenceArray}. A new entry goes into the second way of its bucket,
+ * replacing what was there. An entry hit in the second way is promoted to the first, swapping places.
+ * Positions seen once, typical after the opening, thus churn through the second way, while positions that
+ * recur stay in the first. Two threads updating a bucket at once may lose an entry, never corrupt one.
+ * <p>
+ * Keys are 64-bit Zobrist keys. Before a cached move is returned, the board is checked to still hold the
+ * moved and the captured piece where the move expects them, so a key collision is caught as a miss rather
+ * than returning a move that does not fit the position.
+ * <p>
+ * Entries hold only the move, not the key of the position after it. The move still has to be applied to the
+ * board, and each {@link Board#setPiece} XORs the key up to date as it goes, so the next key is already known
+ * once the move is made; a cached copy would save nothing and could only disagree with the board.
+ */
+public class SanResolutionCache {
+
+    // Immutable; the SAN is copied to a String so no parser buffer is kept alive
+    private record Entry(long positionKey, String san, Move move) {}
+
+    private final AtomicReferenceArray<Entry> table;
+    private final int bucketMask;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /** @param capacity Maximum number of entries; rounded up to a power of two, at least 2. */
+    public SanResolutionCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("SAN cache capacity must be >= 1");
+        }
+        int size = Math.max(2, Integer.highestOneBit(Math.max(1, capacity - 1)) << 1);
+        this.table = new AtomicReferenceArray<>(size);
+        this.bucketMask = size / 2 - 1;
+    }
+
+    /**
+     * Same contract as {@link SanHelper#sanToMove}, answered from the cache where possible.
+     * @throws IllegalArgumentException if the SAN is invalid, ambiguous, or represents an illegal move.
+     */
+    public Move resolve(CharSequence san, GameState gameState) {
+        long positionKey = gameState.getPositionKey();
+        int first = bucketOf(positionKey, san) * 2;
+        for (int way = 0; way < 2; way++) {
+            Entry entry = table.get(first + way);
+            if (entry != null && entry.positionKey() == positionKey && entry.san().contentEquals(san)
+                    && fits(entry.move(), gameState.getBoard())) {
+                if (way == 1) {
+                    table.set(first + 1, table.get(first)); // Promote; the demoted entry gets another chance
+                    table.set(first, entry);
+                }
+                hits.increment();
+                return entry.move();
+            }
+        }
+        misses.increment();
+        Move move = SanHelper.sanToMove(san, gameState);
+        table.set(first + 1, new Entry(positionKey, san.toString(), move));
+        return move;
+    }
+
+    private int bucketOf(long positionKey, CharSequence san) {
+        long hash = positionKey;
+        for (int i = 0; i < san.length(); i++) {
+            hash = (hash ^ san.charAt(i)) * 0x100000001B3L;
+        }
+        hash ^= hash >>> 29;
+        return (int) (hash ^ (hash >>> 32)) & bucketMask;
+    }
+
+    // Guards against Zobrist collisions: the pieces the move was resolved for must be where it expects them
+    private static boolean fits(Move move, Board board) {
+        if (!move.pieceMoved().equals(board.getPiece(move.from()))) {
+            return false;
+        }
+        return move.isEnPassantCapture() || Objects.equals(move.pieceCaptured(), board.getPiece(move.to()));
+    }
+
+    public long getHits() { return hits.sum(); }
+    public long getMisses() { return misses.sum(); }
+    public int getCapacity() { return table.length(); }
+
+    /** @return Fraction of lookups answered from the cache, 0 before the first lookup. */
+    public double getHitRatio() {
+        long hitCount = hits.sum();
+        long lookups = hitCount + misses.sum();
+        return lookups == 0 ? 0.0 : (double) hitCount / lookups;
+    }
+
+    /** @return A one-line summary for the end of a run. */
+    public String format() {
+        return String.format("SAN cache: %d hit(s), %d miss(es) (%.1f%% hits), capacity %d entries.",
+                getHits(), getMisses(), getHitRatio() * 100, getCapacity());
+    }
+}
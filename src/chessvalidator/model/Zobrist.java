@@ -0,0 +1,40 @@
+package chessvalidator.model;
+
+import java.util.SplittableRandom;
+
+/**
+ * Random keys for Zobrist hashing of positions. A position's key is the XOR of the key of every
+ * (piece, square) pair on the board and of the side to move, castling rights and en passant target.
+ * Moving a piece changes the key by two XORs, so {@link Board} keeps it up to date on every change.
+ * The seed is fixed, so keys are the same in every run.
+ */
+final class Zobrist {
+
+    private static final long[] PIECE_SQUARE = new long[PieceType.values().length * 2 * 64];
+    private static final long[] CASTLING = new long[4];
+    private static final long[] EN_PASSANT_FILE = new long[8];
+    static final long BLACK_TO_MOVE;
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x5EEDC0FFEEL);
+        for (int i = 0; i < PIECE_SQUARE.length; i++) PIECE_SQUARE[i] = random.nextLong();
+        for (int i = 0; i < CASTLING.length; i++) CASTLING[i] = random.nextLong();
+        for (int i = 0; i < EN_PASSANT_FILE.length; i++) EN_PASSANT_FILE[i] = random.nextLong();
+        BLACK_TO_MOVE = random.nextLong();
+    }
+
+    private Zobrist() {}
+
+    static long pieceOn(Piece piece, int row, int col) {
+        return PIECE_SQUARE[((piece.type().ordinal() * 2 + piece.color().ordinal()) * 64) + row * 8 + col];
+    }
+
+    /** @param right 0 white king side, 1 white queen side, 2 black king side, 3 black queen side. */
+    static long castling(int right) {
+        return CASTLING[right];
+    }
+
+    static long enPassant(Square target) {
+        return EN_PASSANT_FILE[target.col()]; // The rank follows from the side to move
+    }
+}
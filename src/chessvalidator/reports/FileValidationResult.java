@@ -1,30 +1,90 @@
 package chessvalidator.reports;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.function.Consumer;
 
 public class FileValidationResult {
     private final String filePath;
     private final List<GameValidationResult> gameResults = new ArrayList<>();
     private final List<String> fileLevelErrors = new ArrayList<>(); // Errors not tied to a specific game (e.g., read errors)
     private boolean hasErrors = false;
+    private int skippedGameCount = 0; // Games left out by a header filter
+    private final List<String> duplicates = new ArrayList<>(); // "Game 7 repeats game 2 of a.pgn"
+    private int duplicateGameCount = 0;
+    private boolean duplicatesSkipped = false;
+    private int gameCount = 0;
+    private int invalidGameCount = 0;
+    private int errorCount = 0;
+    private int unvalidatedGameCount = 0; // Games left out once an error limit was reached
+    private int cancelledGameCount = 0; // Games whose validation ran out of budget
+    private Consumer<GameValidationResult> gameListener; // Set for streams: results are handed over instead of kept
 
     public FileValidationResult(String filePath) {
         this.filePath = filePath;
     }
 
-    public void addGameResult(GameValidationResult result) {
-        gameResults.add(result);
+    // Synchronized because pipelined validation adds results from several worker threads
+    public synchronized void addGameResult(GameValidationResult result) {
+        gameCount++;
+        errorCount += result.getErrors().size();
+        if (result.getErrors().stream().anyMatch(PgnErrorInfo::isBudgetExceeded)) {
+            cancelledGameCount++;
+        }
         if (!result.isValid()) {
             hasErrors = true;
+            invalidGameCount++;
+        }
+        if (gameListener != null) {
+            gameListener.accept(result);
+        } else {
+            gameResults.add(result);
         }
     }
 
-    public void addFileError(String errorMessage) {
+    /**
+     * Hands each game result to the listener as it is added instead of keeping it, so memory stays
+     * bounded on endless input; only the counters are kept. Calls are serialized by this result.
+     * Must be set before the first game result is added.
+     */
+    public synchronized void streamGameResults(Consumer<GameValidationResult> listener) {
+        this.gameListener = listener;
+    }
+
+    public synchronized void addFileError(String errorMessage) {
         fileLevelErrors.add(errorMessage);
         hasErrors = true;
     }
 
+    public synchronized void addSkippedGames(int count) {
+        skippedGameCount += count;
+    }
+
+    /**
+     * Records a game that repeats an earlier one. Duplicates are listed in the report, except for
+     * streamed results, where only their number is kept.
+     * @param original Where the first copy was seen, e.g. "game 2 of a.pgn".
+     * @param skipped Whether the duplicate was left out of validation.
+     */
+    public synchronized void addDuplicate(int gameIndex, String original, boolean skipped) {
+        duplicateGameCount++;
+        duplicatesSkipped |= skipped;
+        if (gameListener == null) {
+            duplicates.add("Game " + (gameIndex + 1) + " repeats " + original);
+        }
+    }
+
+    /** Counts games that were parsed but not validated because an error limit was reached. */
+    public synchronized void addUnvalidatedGames(int count) {
+        unvalidatedGameCount += count;
+    }
+
+    /** Restores file order after game results were added out of order by concurrent workers. */
+    public synchronized void sortGameResults() {
+        gameResults.sort(Comparator.comparingInt(GameValidationResult::getGameIndex));
+    }
+
     public String getFilePath() {
         return filePath;
     }
@@ -37,6 +97,24 @@ public class FileValidationResult {
 
     public boolean hasErrors() { return hasErrors; }
 
+    public synchronized int getSkippedGameCount() { return skippedGameCount; }
+
+    /** @return The number of games that repeat an earlier game, whether or not they were validated. */
+    public synchronized int getDuplicateGameCount() { return duplicateGameCount; }
+
+    /** @return The number of games validated, including streamed results that were not kept. */
+    public synchronized int getGameCount() { return gameCount; }
+
+    public synchronized int getInvalidGameCount() { return invalidGameCount; }
+
+    /** @return The number of errors, syntax and logical, over all games validated. */
+    public synchronized int getErrorCount() { return errorCount; }
+
+    public synchronized int getUnvalidatedGameCount() { return unvalidatedGameCount; }
+
+    /** @return The number of games with a budget error, whose validation was cancelled. */
+    public synchronized int getCancelledGameCount() { return cancelledGameCount; }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
@@ -50,8 +128,24 @@ public class FileValidationResult {
             sb.append("----------------------------------------\n");
         }
 
-        if (gameResults.isEmpty() && fileLevelErrors.isEmpty()) {
+        if (skippedGameCount > 0) {
+            sb.append("Games skipped by header filter: ").append(skippedGameCount).append("\n");
+        }
+
+        if (unvalidatedGameCount > 0) {
+            sb.append("Games not validated after reaching an error limit: ").append(unvalidatedGameCount).append("\n");
+        }
+
+        if (duplicateGameCount > 0) {
+            sb.append(duplicatesSkipped ? "Duplicate games skipped: " : "Duplicate games: ").append(duplicateGameCount).append("\n");
+            duplicates.forEach(d -> sb.append("  - ").append(d).append("\n"));
+        }
+
+        if (gameCount == 0 && fileLevelErrors.isEmpty()) {
             sb.append("No games found or processed in this file.\n");
+        } else if (gameListener != null) {
+            sb.append("Game results were reported as they completed: ").append(gameCount)
+                    .append(" games, ").append(invalidGameCount).append(" invalid.\n");
         } else {
             gameResults.forEach(gr -> sb.append(gr)); // Uses GameValidationResult.toString()
         }
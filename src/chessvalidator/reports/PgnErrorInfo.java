@@ -5,12 +5,36 @@ public record PgnErrorInfo(
         int moveNumber,   // Move number where error occurred (or 0 for header/syntax)
         String moveText,  // The problematic move text (or header line)
         String message,   // Description of the error
-        boolean isSyntaxError // True if syntax, false if logical
+        Kind kind         // What went wrong: the text, the moves, or a budget ran out
 ) {
+    /** Stored as its ordinal, where the first two match the boolean syntax flag of older files. */
+    public enum Kind {
+        LOGICAL, // The moves break the rules of chess
+        SYNTAX,  // The PGN text is malformed
+        BUDGET   // Validation was cancelled because the game or its file exceeded a ValidationBudget
+    }
+
+    public PgnErrorInfo(int gameIndex, int moveNumber, String moveText, String message, boolean isSyntaxError) {
+        this(gameIndex, moveNumber, moveText, message, isSyntaxError ? Kind.SYNTAX : Kind.LOGICAL);
+    }
+
+    public boolean isSyntaxError() {
+        return kind == Kind.SYNTAX;
+    }
+
+    /** @return Whether validation of the game was cancelled rather than finding a fault in it. */
+    public boolean isBudgetExceeded() {
+        return kind == Kind.BUDGET;
+    }
+
     @Override
     public String toString() {
-        String type = isSyntaxError ? "Syntax" : "Logical";
+        String type = switch (kind) {
+            case SYNTAX -> "Syntax";
+            case LOGICAL -> "Logical";
+            case BUDGET -> "Budget";
+        };
         String location = (moveNumber > 0) ? "Move " + moveNumber + " ('" + moveText + "')" : (moveText != null ? "'" + moveText + "'" : "General");
         return String.format("[%s Error | Game %d | %s]: %s", type, gameIndex + 1, location, message);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,307 @@
+package chessvalidator.store;
+
+import chessvalidator.GameRecord;
+import chessvalidator.reports.FileValidationResult;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds games that were seen before in the run, with memory bounded by the expected number of games.
+ * <p>
+ * Each game is reduced to a 128-bit fingerprint of its White, Black, Date and Result headers, its FEN and
+ * its main-line SAN moves. Check and annotation marks are dropped from the moves, so copies that differ
+ * only in annotation, comments or variations are duplicates. The fingerprint is fed to SHA-256 as it is
+ * built, in small blocks, so long games need no extra buffer.
+ * <p>
+ * A Bloom filter on the heap answers "never seen" for almost every new game, sized at 10 bits per expected
+ * game for about 1% false positives. A probable hit is confirmed exactly against the fingerprints of all
+ * games seen so far, which are kept in a temporary file rather than on the heap. The file is split into
+ * buckets by fingerprint, each a chain of 4 KB pages of 24-byte records (fingerprint, file number, game
+ * index), so a confirmation reads about one page. Appending a new game writes one record and reads nothing.
+ * Beyond the expected number of games the filter's false-positive rate and the chains grow, but the heap
+ * only gains 4 bytes per page. The file is deleted when the detector is closed.
+ * <p>
+ * The first copy seen is the original; with several validator threads that is the first one parsed,
+ * which is file order only in single-threaded mode. Thread-safe.
+ */
+public class DuplicateDetector implements AutoCloseable {
+
+    public static final int DEFAULT_EXPECTED_GAMES = 10_000_000;
+
+    private static final int FINGERPRINT_SIZE = 16;
+    private static final int RECORD_SIZE = FINGERPRINT_SIZE + 8;
+    private static final int PAGE_SIZE = 4096;
+    private static final int RECORDS_PER_PAGE = PAGE_SIZE / RECORD_SIZE;
+    private static final int BITS_PER_GAME = 10;
+    private static final int BLOOM_HASHES = 7;
+    private static final int GAMES_PER_BUCKET = 128; // At the expected count, most chains are one page
+    private static final String[] KEY_HEADERS = {"White", "Black", "Date", "Result"};
+
+    private static final ThreadLocal<FingerprintInput> INPUTS = ThreadLocal.withInitial(FingerprintInput::new);
+
+    private record Location(int fileNumber, int gameIndex) {}
+
+    private final boolean skip;
+    private final long expectedGames;
+    private final long[] bloom;
+    private final long bloomMask;
+    private final Path pageFile;
+    private final FileChannel pages;
+    private final int[] lastPage;       // Per bucket, -1 while empty
+    private final int[] lastPageFill;   // Per bucket, records in its last page
+    private int[] previousPage = new int[1024]; // Per page, the page before it in its bucket's chain
+    private int pageCount;
+    private final ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+    private final ByteBuffer page = ByteBuffer.allocate(PAGE_SIZE);
+    private final Map<String, Integer> fileNumbers = new HashMap<>();
+    private final List<String> fileNames = new ArrayList<>();
+    private long distinctCount;
+    private long duplicateCount;
+    private long falsePositiveCount;
+
+    /**
+     * Creates the temporary fingerprint file in the default temporary directory.
+     * @param expectedGames Distinct games the run is sized for; sets the Bloom filter size.
+     * @param skip Whether duplicates are left out of validation rather than only reported.
+     */
+    public static DuplicateDetector create(long expectedGames, boolean skip) throws IOException {
+        if (expectedGames < 1) {
+            throw new IllegalArgumentException("Expected number of games must be >= 1");
+        }
+        Path pageFile = Files.createTempFile("pgn-duplicates", ".bin");
+        try {
+            return new DuplicateDetector(expectedGames, skip, pageFile);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(pageFile);
+            throw e;
+        }
+    }
+
+    private DuplicateDetector(long expectedGames, boolean skip, Path pageFile) throws IOException {
+        this.skip = skip;
+        this.expectedGames = expectedGames;
+        long bloomBits = Long.highestOneBit(Math.max(64, expectedGames * BITS_PER_GAME - 1)) << 1;
+        this.bloom = new long[(int) Math.min(bloomBits / 64, 1 << 30)];
+        this.bloomMask = (long) bloom.length * 64 - 1;
+        int buckets = (int) Math.min(1 << 24, Long.highestOneBit(Math.max(1, expectedGames / GAMES_PER_BUCKET)));
+        this.lastPage = new int[buckets];
+        this.lastPageFill = new int[buckets];
+        Arrays.fill(lastPage, -1);
+        this.pageFile = pageFile;
+        this.pages = FileChannel.open(pageFile, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.DELETE_ON_CLOSE);
+    }
+
+    /**
+     * Records the game and reports it to the file result if it was seen before.
+     * @param fileResult The result of the file the game comes from; duplicates are added to it.
+     * @return Whether the game should be validated: false only for a duplicate when duplicates are skipped.
+     * @throws UncheckedIOException if the fingerprint file cannot be read or written.
+     */
+    public boolean admit(GameRecord game, FileValidationResult fileResult) {
+        byte[] fingerprint = fingerprint(game);
+        long hash1 = toLong(fingerprint, 0);
+        long hash2 = toLong(fingerprint, 8);
+        Location original;
+        String originalFile;
+        synchronized (this) {
+            try {
+                int bucket = (int) (hash2 >>> 40) & (lastPage.length - 1);
+                boolean probable = mightContain(hash1, hash2);
+                original = probable ? find(fingerprint, bucket) : null;
+                if (original == null) {
+                    if (probable) {
+                        falsePositiveCount++;
+                    }
+                    addToBloom(hash1, hash2);
+                    append(fingerprint, bucket, fileNumber(fileResult.getFilePath()), game.getGameIndex());
+                    distinctCount++;
+                    return true;
+                }
+                duplicateCount++;
+                originalFile = fileNames.get(original.fileNumber());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Duplicate detection failed: " + e.getMessage(), e);
+            }
+        }
+        String sameFile = originalFile.equals(fileResult.getFilePath()) ? "" : " of " + originalFile;
+        fileResult.addDuplicate(game.getGameIndex(), "game " + (original.gameIndex() + 1) + sameFile, skip);
+        return !skip;
+    }
+
+    /** @return The 128-bit fingerprint that two copies of a game share. */
+    public static byte[] fingerprint(GameRecord game) {
+        FingerprintInput input = INPUTS.get();
+        for (String key : KEY_HEADERS) {
+            String value = game.getHeaders().get(key);
+            input.put(value != null ? value.strip() : "").put('\0');
+        }
+        String fen = game.getFenString();
+        input.put(fen != null ? fen.strip() : "").put('\1');
+        for (CharSequence move : game.getSanMoves()) {
+            putNormalized(input, move);
+            input.put(' ');
+        }
+        return input.finish();
+    }
+
+    // Leaves out trailing check and annotation marks
+    private static void putNormalized(FingerprintInput input, CharSequence move) {
+        int end = move.length();
+        while (end > 0 && "+#!?".indexOf(move.charAt(end - 1)) >= 0) {
+            end--;
+        }
+        for (int i = 0; i < end; i++) {
+            input.put(move.charAt(i));
+        }
+    }
+
+    private boolean mightContain(long hash1, long hash2) {
+        for (int i = 0; i < BLOOM_HASHES; i++) {
+            long bit = (hash1 + i * hash2) & bloomMask;
+            if ((bloom[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void addToBloom(long hash1, long hash2) {
+        for (int i = 0; i < BLOOM_HASHES; i++) {
+            long bit = (hash1 + i * hash2) & bloomMask;
+            bloom[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    // Reads the bucket's pages, newest first
+    private Location find(byte[] fingerprint, int bucket) throws IOException {
+        int records = lastPageFill[bucket];
+        for (int p = lastPage[bucket]; p != -1; p = previousPage[p], records = RECORDS_PER_PAGE) {
+            page.clear().limit(records * RECORD_SIZE);
+            long position = (long) p * PAGE_SIZE;
+            while (page.hasRemaining()) {
+                if (pages.read(page, position + page.position()) < 0) {
+                    throw new IOException("Fingerprint file is shorter than expected");
+                }
+            }
+            for (int r = 0; r < records; r++) {
+                if (Arrays.mismatch(page.array(), r * RECORD_SIZE, r * RECORD_SIZE + FINGERPRINT_SIZE,
+                        fingerprint, 0, FINGERPRINT_SIZE) == -1) {
+                    return new Location(page.getInt(r * RECORD_SIZE + FINGERPRINT_SIZE),
+                            page.getInt(r * RECORD_SIZE + FINGERPRINT_SIZE + 4));
+                }
+            }
+        }
+        return null;
+    }
+
+    private void append(byte[] fingerprint, int bucket, int fileNumber, int gameIndex) throws IOException {
+        if (lastPage[bucket] == -1 || lastPageFill[bucket] == RECORDS_PER_PAGE) {
+            if (pageCount == previousPage.length) {
+                previousPage = Arrays.copyOf(previousPage, pageCount * 2);
+            }
+            previousPage[pageCount] = lastPage[bucket];
+            lastPage[bucket] = pageCount++;
+            lastPageFill[bucket] = 0;
+        }
+        record.clear();
+        record.put(fingerprint).putInt(fileNumber).putInt(gameIndex).flip();
+        long position = (long) lastPage[bucket] * PAGE_SIZE + (long) lastPageFill[bucket] * RECORD_SIZE;
+        while (record.hasRemaining()) {
+            pages.write(record, position + record.position());
+        }
+        lastPageFill[bucket]++;
+    }
+
+    private int fileNumber(String filePath) {
+        return fileNumbers.computeIfAbsent(filePath, path -> {
+            fileNames.add(path);
+            return fileNames.size() - 1;
+        });
+    }
+
+    private static long toLong(byte[] bytes, int offset) {
+        long value = 0;
+        for (int i = offset; i < offset + 8; i++) {
+            value = (value << 8) | (bytes[i] & 0xFF);
+        }
+        return value;
+    }
+
+    public synchronized long getDistinctCount() { return distinctCount; }
+    public synchronized long getDuplicateCount() { return duplicateCount; }
+
+    /** @return Probable hits of the Bloom filter that the fingerprint file showed to be new games. */
+    public synchronized long getFalsePositiveCount() { return falsePositiveCount; }
+
+    public long getBloomFilterBytes() { return (long) bloom.length * Long.BYTES; }
+
+    /** @return A one-line summary for the end of a run. */
+    public synchronized String format() {
+        String summary = String.format("Duplicates: %d of %d game(s) %s; Bloom filter %d KB, %d false positive(s) confirmed new.",
+                duplicateCount, distinctCount + duplicateCount, skip ? "skipped" : "reported",
+                getBloomFilterBytes() / 1024, falsePositiveCount);
+        if (distinctCount > expectedGames) {
+            summary += " More games than the " + expectedGames + " expected; raise --duplicate-capacity to keep lookups fast.";
+        }
+        return summary;
+    }
+
+    /** Closes and deletes the fingerprint file. */
+    @Override
+    public synchronized void close() throws IOException {
+        pages.close();
+        Files.deleteIfExists(pageFile);
+    }
+
+    // Accumulates the fingerprint text in a small block that is hashed whenever it fills up
+    private static final class FingerprintInput {
+        private final MessageDigest digest;
+        private final byte[] block = new byte[1024];
+        private int length;
+
+        FingerprintInput() {
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 is required of every Java platform", e);
+            }
+        }
+
+        FingerprintInput put(char c) {
+            if (length + 2 > block.length) {
+                digest.update(block, 0, length);
+                length = 0;
+            }
+            block[length++] = (byte) (c >>> 8);
+            block[length++] = (byte) c;
+            return this;
+        }
+
+        FingerprintInput put(CharSequence text) {
+            for (int i = 0; i < text.length(); i++) {
+                put(text.charAt(i));
+            }
+            return this;
+        }
+
+        byte[] finish() {
+            digest.update(block, 0, length);
+            length = 0;
+            return Arrays.copyOf(digest.digest(), FINGERPRINT_SIZE);
+        }
+    }
+}
@@ -0,0 +1,356 @@
+package chessvalidator.store;
+
+import chessvalidator.io.PgnSource;
+import chessvalidator.reports.FileValidationResult;
+import chessvalidator.reports.GameValidationResult;
+import chessvalidator.reports.PgnErrorInfo;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.zip.CRC32C;
+
+/**
+ * Sidecar file that lets a run over a directory skip the files that did not change since the last run.
+ * <p>
+ * For every file validated, the manifest records its size, modification time and a checksum, together with
+ * a summary of its result: the skipped-game count and, per game, its index, the headers the report shows
+ * (Site, Date, White, Black) and its errors. A later run fingerprints each discovered file again; if the
+ * fingerprint matches, the file is not read and its result is rebuilt from the summary, so the full
+ * report comes out as if every file had been validated.
+ * <p>
+ * The checksum is a CRC32C over the first and last {@value #SAMPLE_BYTES} bytes, so a fingerprint costs one
+ * stat call and two small reads however large the file is. It catches a file rewritten with the same size
+ * within the same modification-time tick, as long as the edit touches either end.
+ * <p>
+ * A manifest written under other validation rules or another header filter is ignored. Results with
+ * file-level errors, such as read failures, or with games cancelled by a budget are not recorded, so
+ * those files are retried.
+ * The manifest is replaced atomically by {@link #save}.
+ * <p>
+ * Use: pass the discovered files through {@link #changedFiles}, validate what it hands out, then
+ * {@link #merge} the fresh results with the reused ones and {@link #save}.
+ */
+public class FileManifest {
+
+    private static final int MAGIC = 0x50474E4D; // "PGNM"
+    private static final int FORMAT_VERSION = 1;
+    static final int SAMPLE_BYTES = 4096;
+    private static final int MAX_STRING_BYTES = 16 * 1024 * 1024; // Guards against a damaged length field
+    private static final String[] REPORT_HEADERS = {"Site", "Date", "White", "Black"}; // What GameValidationResult prints
+
+    /** What identifies a file's contents without reading all of it. */
+    record Fingerprint(long size, long modifiedMillis, int checksum) {}
+
+    // A recorded file: its fingerprint when it was validated and the encoded summary of its result
+    private record Entry(Fingerprint fingerprint, byte[] summary) {}
+
+    private final Path manifestFile;
+    private final int rulesVersion;
+    private final String filterExpression;
+    private final Map<String, Entry> previous;
+    // Every source drawn this run in discovery order, with its fingerprint; null if it could not be taken
+    private final Map<String, Fingerprint> seen = new LinkedHashMap<>();
+    private final Map<String, FileValidationResult> reused = new HashMap<>();
+    private final Map<String, Entry> next = new LinkedHashMap<>();
+    private int changedCount;
+
+    private FileManifest(Path manifestFile, int rulesVersion, String filterExpression, Map<String, Entry> previous) {
+        this.manifestFile = manifestFile;
+        this.rulesVersion = rulesVersion;
+        this.filterExpression = filterExpression;
+        this.previous = previous;
+    }
+
+    /**
+     * Reads the manifest of the last run, if there is one that was written under the same rules and filter.
+     * A missing, unreadable or mismatching manifest means every file is validated.
+     *
+     * @param filterExpression The header filter of this run; null for none.
+     */
+    public static FileManifest load(Path manifestFile, int rulesVersion, String filterExpression) {
+        String filter = filterExpression == null ? "" : filterExpression;
+        Map<String, Entry> entries = new HashMap<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(manifestFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                System.out.println("Manifest " + manifestFile + " is not readable; validating every file.");
+            } else if (in.readInt() != rulesVersion || !filter.equals(readString(in))) {
+                System.out.println("Manifest " + manifestFile + " was written under other validation rules or another filter; validating every file.");
+            } else {
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    String name = readString(in);
+                    Fingerprint fingerprint = new Fingerprint(in.readLong(), in.readLong(), in.readInt());
+                    byte[] summary = new byte[in.readInt()];
+                    in.readFully(summary);
+                    entries.put(name, new Entry(fingerprint, summary));
+                }
+            }
+        } catch (NoSuchFileException e) {
+            // First run
+        } catch (IOException e) {
+            System.out.println("Manifest " + manifestFile + " is not readable (" + e.getMessage() + "); validating every file.");
+            entries.clear();
+        }
+        return new FileManifest(manifestFile, rulesVersion, filter, entries);
+    }
+
+    /**
+     * Fingerprints each source as it is drawn and passes on only new or changed ones. Unchanged sources are
+     * answered from the manifest and come back through {@link #merge}.
+     * hasNext/next are synchronized, so the iterator can be shared by several consumer threads.
+     */
+    public Iterator<PgnSource> changedFiles(Iterator<PgnSource> sources) {
+        return new Iterator<>() {
+            private PgnSource lookahead;
+
+            @Override
+            public boolean hasNext() {
+                synchronized (this) {
+                    while (lookahead == null && sources.hasNext()) {
+                        PgnSource source = sources.next();
+                        if (!isUnchanged(source)) {
+                            lookahead = source;
+                        }
+                    }
+                    return lookahead != null;
+                }
+            }
+
+            @Override
+            public PgnSource next() {
+                synchronized (this) {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    PgnSource source = lookahead;
+                    lookahead = null;
+                    return source;
+                }
+            }
+        };
+    }
+
+    // Records the source's fingerprint; reuses the recorded result if it matches
+    private synchronized boolean isUnchanged(PgnSource source) {
+        Fingerprint fingerprint;
+        try {
+            fingerprint = fingerprint(source.file());
+        } catch (IOException e) {
+            seen.put(source.name(), null); // Not recorded; validation reports the error
+            changedCount++;
+            return false;
+        }
+        seen.put(source.name(), fingerprint);
+        Entry entry = previous.get(source.name());
+        if (entry != null && entry.fingerprint().equals(fingerprint)) {
+            try {
+                reused.put(source.name(), decode(source.name(), entry.summary()));
+                next.put(source.name(), entry);
+                return true;
+            } catch (IOException | RuntimeException e) {
+                // Damaged summary: validate the file again
+            }
+        }
+        changedCount++;
+        return false;
+    }
+
+    static Fingerprint fingerprint(Path file) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        long size = attributes.size();
+        CRC32C checksum = new CRC32C();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer sample = ByteBuffer.allocate(SAMPLE_BYTES);
+            readFully(channel, sample, 0);
+            checksum.update(sample.flip());
+            if (size > SAMPLE_BYTES) {
+                readFully(channel, sample.clear(), Math.max(SAMPLE_BYTES, size - SAMPLE_BYTES));
+                checksum.update(sample.flip());
+            }
+        }
+        return new Fingerprint(size, attributes.lastModifiedTime().toMillis(), (int) checksum.getValue());
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Puts the fresh results and the reused ones together in discovery order and prepares the entries
+     * the next {@link #save} writes. Sources that are no longer present are dropped from the manifest.
+     *
+     * @param freshResults Results of the sources handed out by {@link #changedFiles}.
+     * @return One result per source drawn, as if all had been validated; failed sources are omitted.
+     */
+    public synchronized List<FileValidationResult> merge(List<FileValidationResult> freshResults) {
+        Map<String, FileValidationResult> fresh = new HashMap<>();
+        freshResults.forEach(result -> fresh.put(result.getFilePath(), result));
+        List<FileValidationResult> merged = new ArrayList<>(seen.size());
+        for (Map.Entry<String, Fingerprint> source : seen.entrySet()) {
+            FileValidationResult result = reused.get(source.getKey());
+            if (result == null) {
+                result = fresh.remove(source.getKey());
+                if (result != null && source.getValue() != null && result.getFileLevelErrors().isEmpty()
+                        && result.getCancelledGameCount() == 0) {
+                    next.put(source.getKey(), new Entry(source.getValue(), encode(result)));
+                }
+            }
+            if (result != null) {
+                merged.add(result);
+            }
+        }
+        return merged;
+    }
+
+    /** Writes the manifest for the next run, replacing the old one atomically. */
+    public synchronized void save() throws IOException {
+        Path temporary = manifestFile.resolveSibling(manifestFile.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(rulesVersion);
+            writeString(out, filterExpression);
+            out.writeInt(next.size());
+            for (Map.Entry<String, Entry> entry : next.entrySet()) {
+                Fingerprint fingerprint = entry.getValue().fingerprint();
+                writeString(out, entry.getKey());
+                out.writeLong(fingerprint.size());
+                out.writeLong(fingerprint.modifiedMillis());
+                out.writeInt(fingerprint.checksum());
+                out.writeInt(entry.getValue().summary().length);
+                out.write(entry.getValue().summary());
+            }
+        }
+        Files.move(temporary, manifestFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public synchronized int getReusedCount() { return reused.size(); }
+    public synchronized int getChangedCount() { return changedCount; }
+
+    /** @return A one-line summary for the end of a run. */
+    public synchronized String format() {
+        int removed = (int) previous.keySet().stream().filter(name -> !seen.containsKey(name)).count();
+        return String.format("Manifest: %d unchanged file(s) reused, %d new or changed file(s) validated, %d no longer present.",
+                reused.size(), changedCount, removed);
+    }
+
+    // Summary layout: int skipped, int games, then each game as written by writeGame
+    private static byte[] encode(FileValidationResult result) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(result.getSkippedGameCount());
+            out.writeInt(result.getGameResults().size());
+            for (GameValidationResult game : result.getGameResults()) {
+                writeGame(out, game);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Writing to memory cannot fail", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static FileValidationResult decode(String name, byte[] summary) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(summary));
+        FileValidationResult result = new FileValidationResult(name);
+        result.addSkippedGames(in.readInt());
+        int games = in.readInt();
+        for (int i = 0; i < games; i++) {
+            result.addGameResult(readGame(in));
+        }
+        if (in.read() != -1) {
+            throw new IOException("Trailing bytes in the summary of " + name);
+        }
+        return result;
+    }
+
+    // Game layout: int index, 4 x nullable str header, int error count,
+    // then per error int moveNumber, byte kind, nullable str moveText, nullable str message
+    static void writeGame(DataOutputStream out, GameValidationResult game) throws IOException {
+        out.writeInt(game.getGameIndex());
+        for (String tag : REPORT_HEADERS) {
+            writeNullableString(out, game.getHeaders().get(tag));
+        }
+        out.writeInt(game.getErrors().size());
+        for (PgnErrorInfo error : game.getErrors()) {
+            out.writeInt(error.moveNumber());
+            out.writeByte(error.kind().ordinal()); // Written as a boolean syntax flag before budget errors existed
+            writeNullableString(out, error.moveText());
+            writeNullableString(out, error.message());
+        }
+    }
+
+    static GameValidationResult readGame(DataInputStream in) throws IOException {
+        int gameIndex = in.readInt();
+        Map<String, String> headers = new HashMap<>();
+        for (String tag : REPORT_HEADERS) {
+            String value = readNullableString(in);
+            if (value != null) {
+                headers.put(tag, value);
+            }
+        }
+        GameValidationResult game = new GameValidationResult(gameIndex, headers);
+        int errors = in.readInt();
+        for (int e = 0; e < errors; e++) {
+            int moveNumber = in.readInt();
+            int kind = in.readUnsignedByte();
+            if (kind >= PgnErrorInfo.Kind.values().length) {
+                throw new IOException("Unknown error kind " + kind);
+            }
+            String moveText = readNullableString(in);
+            game.addError(new PgnErrorInfo(gameIndex, moveNumber, moveText, readNullableString(in), PgnErrorInfo.Kind.values()[kind]));
+        }
+        return game;
+    }
+
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static void writeNullableString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            writeString(out, value);
+        }
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_STRING_BYTES) {
+            throw new IOException("Implausible string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static String readNullableString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? readString(in) : null;
+    }
+}
@@ -0,0 +1,252 @@
+package chessvalidator.store;
+
+import chessvalidator.GameRecord;
+import chessvalidator.Variation;
+import chessvalidator.reports.PgnErrorInfo;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps parsed games outside the Java heap, in direct ByteBuffer slabs, so a run over a large
+ * database does not fill the heap with games waiting for validation or post-processing.
+ * {@link #add} copies a game into a slab and returns a small flyweight view ({@link StoredGame})
+ * that decodes fields on access.
+ * <p>
+ * Slab memory is released by the garbage collector once no view into it is reachable any more.
+ * Its total size is limited by {@code -XX:MaxDirectMemorySize}, which defaults to the maximum heap size.
+ * <p>
+ * Each record is laid out as follows. Positions are relative to the record start, and str is an int
+ * byte length followed by UTF-8 bytes.
+ * <pre>
+ *   0  int gameIndex
+ *   4  int fenPos (0 if the game has no FEN)
+ *   8  int movesPos
+ *  12  int errorsPos
+ *  16  int variationsPos
+ *  20  headers:    int count, then count x (str key, str value)
+ *      fen:        str
+ *      moves:      int count, count x int token position, then per token a char header
+ *                  (length, high bit set for UTF-16) and the Latin-1 or UTF-16 characters
+ *      errors:     int count, then count x (int gameIndex, int moveNumber, byte kind, str moveText, str message)
+ *      variations: int count, then per variation int ply, int nestedPos, int nextPos,
+ *                  its moves (as above) and, at nestedPos, its own variations (as above)
+ * </pre>
+ */
+public class OffHeapGameStore implements AutoCloseable {
+
+    public static final int DEFAULT_SLAB_SIZE = 4 * 1024 * 1024;
+
+    static final int FEN_POS = 4;
+    static final int MOVES_POS = 8;
+    static final int ERRORS_POS = 12;
+    static final int VARIATIONS_POS = 16;
+    static final int HEADERS_POS = 20;
+    static final int UTF16_FLAG = 0x8000;
+
+    // Each thread encodes into its own scratch buffer before copying the record into a slab
+    private static final ThreadLocal<RecordWriter> WRITERS = ThreadLocal.withInitial(RecordWriter::new);
+
+    private final int slabSize;
+    private final List<ByteBuffer> slabs = new ArrayList<>();
+    private ByteBuffer currentSlab;
+    private int currentUsed;
+    private long bytesUsed;
+    private int gameCount;
+
+    public OffHeapGameStore() {
+        this(DEFAULT_SLAB_SIZE);
+    }
+
+    /** @param slabSize Size of each direct buffer; a larger game gets a slab of its own. */
+    public OffHeapGameStore(int slabSize) {
+        if (slabSize < 1024) {
+            throw new IllegalArgumentException("Slab size must be at least 1024 bytes");
+        }
+        this.slabSize = slabSize;
+    }
+
+    /**
+     * Copies a game into the store. Safe to call from several threads.
+     * @return A flyweight view of the stored copy.
+     * @throws IllegalArgumentException if a single move token is longer than 32767 characters.
+     */
+    public GameRecord add(GameRecord game) {
+        RecordWriter writer = WRITERS.get();
+        writer.encode(game);
+        ByteBuffer slab;
+        int offset;
+        synchronized (this) {
+            if (currentSlab == null || currentSlab.capacity() - currentUsed < writer.length()) {
+                currentSlab = ByteBuffer.allocateDirect(Math.max(slabSize, writer.length()));
+                currentUsed = 0;
+                slabs.add(currentSlab);
+            }
+            slab = currentSlab;
+            offset = currentUsed;
+            currentUsed += writer.length();
+            bytesUsed += writer.length();
+            gameCount++;
+        }
+        // Absolute puts leave the buffer's position alone, so writers of disjoint ranges do not interfere
+        slab.put(offset, writer.bytes(), 0, writer.length());
+        return new StoredGame(slab, offset);
+    }
+
+    public synchronized int getGameCount() { return gameCount; }
+    public synchronized long getBytesUsed() { return bytesUsed; }
+    public synchronized int getSlabCount() { return slabs.size(); }
+
+    /** @return A one-line summary for the end of a run. */
+    public synchronized String format() {
+        return String.format("Off-heap game store: %d games, %.1f MB used in %d slab(s).",
+                gameCount, bytesUsed / (1024.0 * 1024.0), slabs.size());
+    }
+
+    /**
+     * Drops the store's references to its slabs. Views that are still reachable,
+     * such as the headers kept by validation results, stay readable.
+     */
+    @Override
+    public synchronized void close() {
+        slabs.clear();
+        currentSlab = null;
+    }
+
+    static String readString(ByteBuffer slab, int position) {
+        byte[] bytes = new byte[slab.getInt(position)];
+        slab.get(position + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Growable heap buffer holding one encoded record
+    private static final class RecordWriter {
+        private byte[] buffer = new byte[4096];
+        private int length;
+
+        byte[] bytes() { return buffer; }
+        int length() { return length; }
+
+        void encode(GameRecord game) {
+            length = 0;
+            putInt(game.getGameIndex());
+            putInt(0); // fenPos
+            putInt(0); // movesPos
+            putInt(0); // errorsPos
+            putInt(0); // variationsPos
+
+            Map<String, String> headers = game.getHeaders();
+            putInt(headers.size());
+            for (Map.Entry<String, String> header : headers.entrySet()) {
+                putString(header.getKey());
+                putString(header.getValue());
+            }
+
+            if (game.getFenString() != null) {
+                putIntAt(FEN_POS, length);
+                putString(game.getFenString());
+            }
+
+            putIntAt(MOVES_POS, length);
+            putMoves(game.getSanMoves());
+
+            List<PgnErrorInfo> errors = game.getSyntaxErrors();
+            putIntAt(ERRORS_POS, length);
+            putInt(errors.size());
+            for (PgnErrorInfo error : errors) {
+                putInt(error.gameIndex());
+                putInt(error.moveNumber());
+                ensureCapacity(1);
+                buffer[length++] = (byte) error.kind().ordinal();
+                putString(error.moveText());
+                putString(error.message());
+            }
+
+            putIntAt(VARIATIONS_POS, length);
+            putVariations(game.getVariations());
+        }
+
+        private void putMoves(List<? extends CharSequence> moves) {
+            putInt(moves.size());
+            int tablePos = length;
+            length += 4 * moves.size();
+            ensureCapacity(0);
+            for (int i = 0; i < moves.size(); i++) {
+                putIntAt(tablePos + 4 * i, length);
+                putToken(moves.get(i));
+            }
+        }
+
+        private void putVariations(List<Variation> variations) {
+            putInt(variations.size());
+            for (Variation variation : variations) {
+                int entryPos = length;
+                putInt(variation.ply());
+                putInt(0); // nestedPos
+                putInt(0); // nextPos
+                putMoves(variation.moves());
+                putIntAt(entryPos + 4, length);
+                putVariations(variation.variations());
+                putIntAt(entryPos + 8, length);
+            }
+        }
+
+        // SAN is plain ASCII, so tokens are normally stored one byte per character
+        private void putToken(CharSequence token) {
+            int chars = token.length();
+            if (chars >= UTF16_FLAG) {
+                throw new IllegalArgumentException("Move token too long for the off-heap store: " + chars + " characters");
+            }
+            boolean latin1 = true;
+            for (int i = 0; i < chars && latin1; i++) {
+                latin1 = token.charAt(i) <= 0xFF;
+            }
+            putChar(latin1 ? chars : chars | UTF16_FLAG);
+            for (int i = 0; i < chars; i++) {
+                if (latin1) {
+                    ensureCapacity(1);
+                    buffer[length++] = (byte) token.charAt(i);
+                } else {
+                    putChar(token.charAt(i));
+                }
+            }
+        }
+
+        private void putString(String value) {
+            byte[] bytes = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+            putInt(bytes.length);
+            ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, buffer, length, bytes.length);
+            length += bytes.length;
+        }
+
+        private void putInt(int value) {
+            ensureCapacity(4);
+            putIntAt(length, value);
+            length += 4;
+        }
+
+        // Big-endian, matching ByteBuffer's default byte order
+        private void putIntAt(int position, int value) {
+            buffer[position] = (byte) (value >>> 24);
+            buffer[position + 1] = (byte) (value >>> 16);
+            buffer[position + 2] = (byte) (value >>> 8);
+            buffer[position + 3] = (byte) value;
+        }
+
+        private void putChar(int value) {
+            ensureCapacity(2);
+            buffer[length++] = (byte) (value >>> 8);
+            buffer[length++] = (byte) value;
+        }
+
+        private void ensureCapacity(int extra) {
+            if (length + extra > buffer.length) {
+                buffer = java.util.Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + extra));
+            }
+        }
+    }
+}
@@ -0,0 +1,440 @@
+package chessvalidator.store;
+
+import chessvalidator.GameRecord;
+import chessvalidator.Variation;
+import chessvalidator.reports.PgnErrorInfo;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * On-disk cache of validation outcomes, keyed by a hash of each game's content, so unchanged games
+ * in a re-run archive skip replay.
+ * <p>
+ * The key is a 128-bit hash of the normalized game: headers sorted by tag, the FEN, and the SAN tokens
+ * of the main line and every variation. Comments, NAGs, move numbers and layout are already gone after
+ * tokenizing. The value is the game's logical errors, and is empty for a game that replays cleanly.
+ * Syntax errors are not cached, because the parser reports them again anyway.
+ * <p>
+ * A cache directory holds two files:
+ * <ul>
+ *   <li>{@code index}: a memory-mapped open-addressing hash table. It has a 64-byte header, then slots of
+ *       16-byte key, long data offset, int data length. An all-zero key marks an empty slot. The table
+ *       doubles when it is 70% full.</li>
+ *   <li>{@code errors}: append-only encoded error lists, read only on hits for invalid games.</li>
+ * </ul>
+ * The header records the validation rules version. A cache written under different rules is discarded
+ * when it is opened. One process at a time: the directory is locked while the cache is open.
+ * Lookups may run concurrently; stores are serialized.
+ */
+public class ResultCache implements AutoCloseable {
+
+    private static final int MAGIC = 0x50474E43; // "PGNC"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int MAGIC_POS = 0;
+    private static final int FORMAT_POS = 4;
+    private static final int RULES_POS = 8;
+    private static final int SLOTS_POS = 12;
+    private static final int COUNT_POS = 16;
+    private static final int SLOT_SIZE = 32;
+    private static final int KEY_SIZE = 16;
+    private static final int DEFAULT_INITIAL_SLOTS = 1 << 16;
+    private static final int MAX_SLOTS = (Integer.MAX_VALUE - HEADER_SIZE) / SLOT_SIZE; // One mapping is limited to 2 GB
+    private static final double MAX_LOAD = 0.7;
+
+    private static final ThreadLocal<MessageDigest> DIGESTS = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is required of every Java platform", e);
+        }
+    });
+    private static final ThreadLocal<HashInput> HASH_INPUTS = ThreadLocal.withInitial(HashInput::new);
+
+    private final Path indexFile;
+    private final FileChannel dataChannel;
+    private final FileLock lock;
+    private final ReentrantReadWriteLock tableLock = new ReentrantReadWriteLock();
+    private MappedByteBuffer index;
+    private int slotCount;
+    private int entryCount;
+    private long dataEnd;
+    private boolean full; // Reached MAX_SLOTS; further outcomes are not stored
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    private ResultCache(Path indexFile, FileChannel dataChannel, FileLock lock) {
+        this.indexFile = indexFile;
+        this.dataChannel = dataChannel;
+        this.lock = lock;
+    }
+
+    /**
+     * Opens or creates the cache in a directory.
+     * @param rulesVersion Outcomes stored under another version are discarded.
+     * @throws IOException if the directory cannot be used or another process has the cache open.
+     */
+    public static ResultCache open(Path directory, int rulesVersion) throws IOException {
+        return open(directory, rulesVersion, DEFAULT_INITIAL_SLOTS);
+    }
+
+    /** @param initialSlots Table size for a new cache; rounded up to a power of two. */
+    public static ResultCache open(Path directory, int rulesVersion, int initialSlots) throws IOException {
+        Files.createDirectories(directory);
+        FileChannel dataChannel = FileChannel.open(directory.resolve("errors"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        FileLock lock;
+        try {
+            lock = dataChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            lock = null; // Already open in this process
+        } catch (IOException e) {
+            dataChannel.close();
+            throw e;
+        }
+        if (lock == null) {
+            dataChannel.close();
+            throw new IOException("Result cache " + directory + " is in use by another run");
+        }
+        ResultCache cache = new ResultCache(directory.resolve("index"), dataChannel, lock);
+        try {
+            cache.load(rulesVersion, Math.max(16, Integer.highestOneBit(Math.max(1, initialSlots - 1)) << 1));
+        } catch (IOException | RuntimeException e) {
+            cache.close();
+            throw e;
+        }
+        return cache;
+    }
+
+    private void load(int rulesVersion, int initialSlots) throws IOException {
+        if (Files.exists(indexFile) && Files.size(indexFile) >= HEADER_SIZE) {
+            try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer existing = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+                int slots = existing.getInt(SLOTS_POS);
+                boolean intact = existing.getInt(MAGIC_POS) == MAGIC && existing.getInt(FORMAT_POS) == FORMAT_VERSION
+                        && slots > 0 && Integer.bitCount(slots) == 1 && channel.size() == HEADER_SIZE + (long) slots * SLOT_SIZE;
+                if (intact && existing.getInt(RULES_POS) == rulesVersion) {
+                    index = existing;
+                    slotCount = slots;
+                    entryCount = existing.getInt(COUNT_POS);
+                    dataEnd = dataChannel.size();
+                    return;
+                }
+                System.out.println(intact
+                        ? "Result cache was written under validation rules version " + existing.getInt(RULES_POS) + ", now " + rulesVersion + "; discarding it."
+                        : "Result cache index " + indexFile + " is not readable; discarding it.");
+            }
+        }
+        dataChannel.truncate(0);
+        dataEnd = 0;
+        index = createIndex(indexFile, initialSlots, rulesVersion);
+        slotCount = initialSlots;
+        entryCount = 0;
+    }
+
+    private static MappedByteBuffer createIndex(Path file, int slots, int rulesVersion) throws IOException {
+        Files.deleteIfExists(file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) slots * SLOT_SIZE);
+            buffer.putInt(MAGIC_POS, MAGIC);
+            buffer.putInt(FORMAT_POS, FORMAT_VERSION);
+            buffer.putInt(RULES_POS, rulesVersion);
+            buffer.putInt(SLOTS_POS, slots);
+            buffer.putInt(COUNT_POS, 0);
+            return buffer; // Stays valid after the channel is closed
+        }
+    }
+
+    /**
+     * Computes the cache key of a game.
+     * @return 16 bytes, never all zero.
+     */
+    public static byte[] contentHash(GameRecord game) {
+        HashInput input = HASH_INPUTS.get();
+        input.reset();
+        for (Map.Entry<String, String> header : sortedHeaders(game.getHeaders())) {
+            input.put(header.getKey()).put('\0').put(header.getValue()).put('\0');
+        }
+        input.put('\1');
+        if (game.getFenString() != null) {
+            input.put(game.getFenString());
+        }
+        input.put('\1');
+        putMoves(input, game.getSanMoves());
+        putVariations(input, game.getVariations());
+
+        MessageDigest digest = DIGESTS.get();
+        digest.update(input.bytes, 0, input.length);
+        byte[] key = Arrays.copyOf(digest.digest(), KEY_SIZE);
+        key[KEY_SIZE - 1] |= 1; // All zero means empty slot
+        return key;
+    }
+
+    private static List<Map.Entry<String, String>> sortedHeaders(Map<String, String> headers) {
+        List<Map.Entry<String, String>> entries = new ArrayList<>(headers.entrySet());
+        entries.sort(Map.Entry.comparingByKey());
+        return entries;
+    }
+
+    private static void putMoves(HashInput input, List<? extends CharSequence> moves) {
+        for (CharSequence move : moves) {
+            input.put(move).put(' ');
+        }
+    }
+
+    private static void putVariations(HashInput input, List<Variation> variations) {
+        for (Variation variation : variations) {
+            input.put('(').put(Integer.toString(variation.ply())).put(':');
+            putMoves(input, variation.moves());
+            putVariations(input, variation.variations());
+            input.put(')');
+        }
+    }
+
+    /**
+     * @param key A key from {@link #contentHash}.
+     * @param gameIndex Index to put into the returned errors.
+     * @return The cached logical errors, empty for a valid game, or null if the game is not cached.
+     */
+    public List<PgnErrorInfo> lookup(byte[] key, int gameIndex) throws IOException {
+        long offset;
+        int length;
+        tableLock.readLock().lock();
+        try {
+            int slot = findSlot(index, slotCount, key);
+            int position = HEADER_SIZE + slot * SLOT_SIZE;
+            if (isEmpty(index, position)) {
+                misses.incrementAndGet();
+                return null;
+            }
+            offset = index.getLong(position + KEY_SIZE);
+            length = index.getInt(position + KEY_SIZE + 8);
+        } finally {
+            tableLock.readLock().unlock();
+        }
+        hits.incrementAndGet();
+        return length == 0 ? List.of() : readErrors(offset, length, gameIndex);
+    }
+
+    /**
+     * Stores the logical errors of a game; an empty list records a valid game.
+     * Syntax errors in the list are ignored.
+     */
+    public void store(byte[] key, List<PgnErrorInfo> errors) throws IOException {
+        byte[] encoded = encodeErrors(errors);
+        tableLock.writeLock().lock();
+        try {
+            if (full) {
+                return;
+            }
+            if (entryCount + 1 > slotCount * MAX_LOAD && !grow()) {
+                return;
+            }
+            int position = HEADER_SIZE + findSlot(index, slotCount, key) * SLOT_SIZE;
+            if (!isEmpty(index, position)) {
+                return; // Stored by another thread meanwhile; the outcome is the same
+            }
+            long offset = dataEnd;
+            if (encoded.length > 0) {
+                ByteBuffer data = ByteBuffer.wrap(encoded);
+                while (data.hasRemaining()) {
+                    dataChannel.write(data, offset + data.position());
+                }
+                dataEnd += encoded.length;
+            }
+            // Value before key, so a slot never looks filled before its value is there
+            index.putLong(position + KEY_SIZE, offset);
+            index.putInt(position + KEY_SIZE + 8, encoded.length);
+            index.put(position, key);
+            index.putInt(COUNT_POS, ++entryCount);
+        } finally {
+            tableLock.writeLock().unlock();
+        }
+    }
+
+    // Linear probing; returns the slot holding the key or the empty slot where it belongs
+    private static int findSlot(ByteBuffer table, int slots, byte[] key) {
+        int slot = (((key[0] & 0xFF) << 24) | ((key[1] & 0xFF) << 16) | ((key[2] & 0xFF) << 8) | (key[3] & 0xFF)) & (slots - 1);
+        while (true) {
+            int position = HEADER_SIZE + slot * SLOT_SIZE;
+            if (isEmpty(table, position) || keyEquals(table, position, key)) {
+                return slot;
+            }
+            slot = (slot + 1) & (slots - 1);
+        }
+    }
+
+    private static boolean isEmpty(ByteBuffer table, int position) {
+        return table.getLong(position) == 0 && table.getLong(position + 8) == 0;
+    }
+
+    private static boolean keyEquals(ByteBuffer table, int position, byte[] key) {
+        for (int i = 0; i < KEY_SIZE; i++) {
+            if (table.get(position + i) != key[i]) return false;
+        }
+        return true;
+    }
+
+    // Rehashes into a table twice the size, written to a temporary file and then moved over the index
+    private boolean grow() throws IOException {
+        if (slotCount * 2L > MAX_SLOTS) {
+            full = true;
+            System.out.println("Result cache is full at " + entryCount + " entries; new outcomes are not stored.");
+            return false;
+        }
+        int newSlots = slotCount * 2;
+        Path temporary = indexFile.resolveSibling("index.tmp");
+        MappedByteBuffer grown = createIndex(temporary, newSlots, index.getInt(RULES_POS));
+        byte[] key = new byte[KEY_SIZE];
+        for (int slot = 0; slot < slotCount; slot++) {
+            int position = HEADER_SIZE + slot * SLOT_SIZE;
+            if (isEmpty(index, position)) {
+                continue;
+            }
+            index.get(position, key);
+            int target = HEADER_SIZE + findSlot(grown, newSlots, key) * SLOT_SIZE;
+            grown.put(target, index, position, SLOT_SIZE);
+        }
+        grown.putInt(COUNT_POS, entryCount);
+        grown.force();
+        Files.move(temporary, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        index = grown;
+        slotCount = newSlots;
+        return true;
+    }
+
+    private static byte[] encodeErrors(List<PgnErrorInfo> errors) {
+        List<PgnErrorInfo> logical = errors.stream().filter(e -> e.kind() == PgnErrorInfo.Kind.LOGICAL).toList();
+        if (logical.isEmpty()) {
+            return new byte[0];
+        }
+        List<byte[]> strings = new ArrayList<>();
+        int size = 4;
+        for (PgnErrorInfo error : logical) {
+            byte[] moveText = (error.moveText() == null ? "" : error.moveText()).getBytes(StandardCharsets.UTF_8);
+            byte[] message = (error.message() == null ? "" : error.message()).getBytes(StandardCharsets.UTF_8);
+            strings.add(moveText);
+            strings.add(message);
+            size += 12 + moveText.length + message.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(logical.size());
+        for (int i = 0; i < logical.size(); i++) {
+            buffer.putInt(logical.get(i).moveNumber());
+            buffer.putInt(strings.get(2 * i).length).put(strings.get(2 * i));
+            buffer.putInt(strings.get(2 * i + 1).length).put(strings.get(2 * i + 1));
+        }
+        return buffer.array();
+    }
+
+    private List<PgnErrorInfo> readErrors(long offset, int length, int gameIndex) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (dataChannel.read(buffer, offset + buffer.position()) < 0) {
+                throw new IOException("Result cache data ends early at offset " + (offset + buffer.position()));
+            }
+        }
+        buffer.flip();
+        int count = buffer.getInt();
+        List<PgnErrorInfo> errors = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int moveNumber = buffer.getInt();
+            String moveText = readString(buffer);
+            String message = readString(buffer);
+            errors.add(new PgnErrorInfo(gameIndex, moveNumber, moveText, message, false));
+        }
+        return errors;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public long getHits() { return hits.get(); }
+    public long getMisses() { return misses.get(); }
+
+    public int getEntryCount() {
+        tableLock.readLock().lock();
+        try {
+            return entryCount;
+        } finally {
+            tableLock.readLock().unlock();
+        }
+    }
+
+    /** @return A one-line summary for the end of a run. */
+    public String format() {
+        long lookups = hits.get() + misses.get();
+        return String.format("Result cache: %d hit(s), %d miss(es) (%.1f%% hits), %d entries stored.",
+                hits.get(), misses.get(), lookups == 0 ? 0.0 : 100.0 * hits.get() / lookups, getEntryCount());
+    }
+
+    /** Flushes the index and data to disk and releases the directory lock. */
+    @Override
+    public void close() throws IOException {
+        tableLock.writeLock().lock();
+        try {
+            if (index != null) {
+                index.force();
+            }
+            if (dataChannel.isOpen()) {
+                dataChannel.force(false);
+            }
+        } finally {
+            try {
+                if (lock.isValid()) {
+                    lock.release();
+                }
+            } finally {
+                dataChannel.close();
+                tableLock.writeLock().unlock();
+            }
+        }
+    }
+
+    // Growable byte buffer holding the normalized text of one game; chars are written as UTF-16
+    private static final class HashInput {
+        private byte[] bytes = new byte[4096];
+        private int length;
+
+        void reset() {
+            length = 0;
+        }
+
+        HashInput put(char c) {
+            if (length + 2 > bytes.length) {
+                bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            }
+            bytes[length++] = (byte) (c >>> 8);
+            bytes[length++] = (byte) c;
+            return this;
+        }
+
+        HashInput put(CharSequence text) {
+            for (int i = 0; i < text.length(); i++) {
+                put(text.charAt(i));
+            }
+            return this;
+        }
+    }
+}
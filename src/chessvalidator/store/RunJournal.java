@@ -0,0 +1,441 @@
+package chessvalidator.store;
+
+import chessvalidator.io.PgnSource;
+import chessvalidator.reports.FileValidationResult;
+import chessvalidator.reports.GameValidationResult;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.zip.CRC32C;
+
+/**
+ * Durable record of a run's progress, so a run that is killed or crashes can be resumed instead of repeated.
+ * <p>
+ * The journal is an append-only file. After a header naming the rules version, filter and input, each record
+ * is a length, a CRC32C and a payload of one of three kinds:
+ * <ul>
+ *   <li>file started: the file's name and fingerprint, as in {@link FileManifest};</li>
+ *   <li>games: a range of validated games of a file, written every {@value #CHECKPOINT_GAMES} games;</li>
+ *   <li>file done: the file's skipped-game count, written once all its games are recorded.</li>
+ * </ul>
+ * Game ranges and completed files are forced to disk as they are written, so after a crash at most the
+ * games since the last checkpoint are lost. A record cut short by the crash fails its checksum and is
+ * dropped on resume, together with anything after it.
+ * <p>
+ * On resume, completed files whose fingerprint still matches are not read again; their results are rebuilt
+ * from the journal. A file that was in progress gets back the games already recorded and validation continues
+ * after the last of them. A file that changed in the meantime starts over. Files whose validation failed with
+ * a file-level error are never marked done, so they are retried.
+ * <p>
+ * Use: pass the discovered files through {@link #remainingFiles}, call {@link #startFile} before validating a
+ * file's games, {@link #recordGame} for each result in file order and {@link #finishFile} at the end, then
+ * {@link #merge} the fresh results with the restored ones. {@link #checkpoint} writes out whatever is pending,
+ * e.g. from a shutdown hook. Thread-safe.
+ */
+public class RunJournal implements AutoCloseable {
+
+    /** Games of one file that are written to the journal together. */
+    public static final int CHECKPOINT_GAMES = 1000;
+
+    private static final int MAGIC = 0x50474E4A; // "PGNJ"
+    private static final int FORMAT_VERSION = 1;
+    private static final int MAX_RECORD_BYTES = 256 * 1024 * 1024; // Guards against a damaged length field
+    private static final byte FILE_STARTED = 1;
+    private static final byte GAMES = 2;
+    private static final byte FILE_DONE = 3;
+
+    // What the journal knows about one file
+    private static final class FileState {
+        FileManifest.Fingerprint fingerprint;
+        final List<GameValidationResult> games = new ArrayList<>();
+        int skippedGames = -1; // -1 until the file is done
+    }
+
+    private final Path journalFile;
+    private final FileChannel channel;
+    private final Map<String, FileState> files;
+    // Every source drawn this run in discovery order, with its fingerprint; null if it could not be taken
+    private final Map<String, FileManifest.Fingerprint> seen = new LinkedHashMap<>();
+    private final Map<String, FileValidationResult> restored = new HashMap<>();
+    private final Map<String, List<GameValidationResult>> pending = new HashMap<>();
+    private int resumedCount;
+    private boolean closed;
+
+    private RunJournal(Path journalFile, FileChannel channel, Map<String, FileState> files) {
+        this.journalFile = journalFile;
+        this.channel = channel;
+        this.files = files;
+    }
+
+    /**
+     * Starts the journal of a new run.
+     * @param filterExpression The header filter of this run; null for none.
+     * @param input The input path of the run, as given.
+     * @throws FileAlreadyExistsException if the journal exists; it belongs to an unfinished run.
+     */
+    public static RunJournal create(Path journalFile, int rulesVersion, String filterExpression, String input) throws IOException {
+        FileChannel channel = FileChannel.open(journalFile, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(rulesVersion);
+            FileManifest.writeString(out, filterExpression == null ? "" : filterExpression);
+            FileManifest.writeString(out, input);
+        }
+        try {
+            ByteBuffer header = ByteBuffer.wrap(bytes.toByteArray());
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            channel.force(true);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return new RunJournal(journalFile, channel, new HashMap<>());
+    }
+
+    /**
+     * Opens the journal of an unfinished run to continue it. A record left incomplete by a crash is cut off.
+     * @throws IOException if the journal cannot be read or was written for other rules, filter or input.
+     */
+    public static RunJournal resume(Path journalFile, int rulesVersion, String filterExpression, String input) throws IOException {
+        FileChannel channel = FileChannel.open(journalFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            Map<String, FileState> files = new HashMap<>();
+            long end = readJournal(journalFile, channel, rulesVersion, filterExpression == null ? "" : filterExpression, input, files);
+            if (end < channel.size()) {
+                System.out.println("Journal " + journalFile + ": dropped an incomplete record at the end.");
+                channel.truncate(end);
+            }
+            channel.position(end);
+            return new RunJournal(journalFile, channel, files);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // Returns the end of the last intact record
+    private static long readJournal(Path journalFile, FileChannel channel, int rulesVersion, String filter, String input,
+                                    Map<String, FileState> files) throws IOException {
+        DataInputStream header = new DataInputStream(Channels.newInputStream(channel.position(0)));
+        if (header.readInt() != MAGIC || header.readInt() != FORMAT_VERSION) {
+            throw new IOException(journalFile + " is not a journal of this program");
+        }
+        if (header.readInt() != rulesVersion) {
+            throw new IOException(journalFile + " was written under other validation rules");
+        }
+        String journalFilter = FileManifest.readString(header);
+        String journalInput = FileManifest.readString(header);
+        if (!journalFilter.equals(filter) || !journalInput.equals(input)) {
+            throw new IOException(journalFile + " was written for input " + journalInput
+                    + (journalFilter.isEmpty() ? "" : " with filter '" + journalFilter + "'"));
+        }
+        long position = channel.position(); // The stream reads straight from the channel, without buffering
+        ByteBuffer recordHeader = ByteBuffer.allocate(8);
+        while (true) {
+            if (!readFully(channel, recordHeader.clear(), position)) {
+                return position;
+            }
+            int length = recordHeader.getInt(0);
+            if (length < 1 || length > MAX_RECORD_BYTES || position + 8 + length > channel.size()) {
+                return position;
+            }
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            readFully(channel, payload, position + 8);
+            CRC32C checksum = new CRC32C();
+            checksum.update(payload.array());
+            if ((int) checksum.getValue() != recordHeader.getInt(4)) {
+                return position;
+            }
+            apply(new DataInputStream(new ByteArrayInputStream(payload.array())), files);
+            position += 8 + length;
+        }
+    }
+
+    private static void apply(DataInputStream in, Map<String, FileState> files) throws IOException {
+        byte type = in.readByte();
+        String name = FileManifest.readString(in);
+        switch (type) {
+            case FILE_STARTED -> {
+                FileState state = new FileState(); // Starting again discards what was recorded before
+                state.fingerprint = new FileManifest.Fingerprint(in.readLong(), in.readLong(), in.readInt());
+                files.put(name, state);
+            }
+            case GAMES -> {
+                FileState state = files.get(name);
+                int count = in.readInt();
+                for (int i = 0; i < count && state != null; i++) {
+                    state.games.add(FileManifest.readGame(in));
+                }
+            }
+            case FILE_DONE -> {
+                FileState state = files.get(name);
+                if (state != null) {
+                    state.skippedGames = in.readInt();
+                }
+            }
+            default -> throw new IOException("Unknown journal record type " + type);
+        }
+    }
+
+    /**
+     * Fingerprints each source as it is drawn and passes on the ones not completed in the journaled run.
+     * Completed sources are answered from the journal and come back through {@link #merge}.
+     * hasNext/next are synchronized, so the iterator can be shared by several consumer threads.
+     */
+    public Iterator<PgnSource> remainingFiles(Iterator<PgnSource> sources) {
+        return new Iterator<>() {
+            private PgnSource lookahead;
+
+            @Override
+            public boolean hasNext() {
+                synchronized (this) {
+                    while (lookahead == null && sources.hasNext()) {
+                        PgnSource source = sources.next();
+                        if (!isDone(source)) {
+                            lookahead = source;
+                        }
+                    }
+                    return lookahead != null;
+                }
+            }
+
+            @Override
+            public PgnSource next() {
+                synchronized (this) {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    PgnSource source = lookahead;
+                    lookahead = null;
+                    return source;
+                }
+            }
+        };
+    }
+
+    private synchronized boolean isDone(PgnSource source) {
+        FileManifest.Fingerprint fingerprint;
+        try {
+            fingerprint = FileManifest.fingerprint(source.file());
+        } catch (IOException e) {
+            fingerprint = null; // Not journaled; validation reports the error
+        }
+        seen.put(source.name(), fingerprint);
+        FileState state = files.get(source.name());
+        if (state == null || !state.fingerprint.equals(fingerprint)) {
+            files.remove(source.name());
+            return false;
+        }
+        if (state.skippedGames < 0) {
+            return false;
+        }
+        FileValidationResult result = new FileValidationResult(source.name());
+        result.addSkippedGames(state.skippedGames);
+        state.games.forEach(result::addGameResult);
+        restored.put(source.name(), result);
+        files.remove(source.name()); // Not needed again; frees the games
+        return true;
+    }
+
+    /**
+     * Marks the start of a file's validation.
+     * @param name The name of a source handed out by {@link #remainingFiles}.
+     * @return The games of the file recorded before, in file order; validation continues after the last one.
+     * @throws UncheckedIOException if the journal cannot be written.
+     */
+    public synchronized List<GameValidationResult> startFile(String name) {
+        FileManifest.Fingerprint fingerprint = seen.get(name);
+        if (closed || fingerprint == null) {
+            return List.of();
+        }
+        FileState state = files.remove(name);
+        if (state != null && !state.games.isEmpty()) {
+            resumedCount++;
+            pending.put(name, new ArrayList<>());
+            return state.games; // The file-started record is still in the journal
+        }
+        write(record(FILE_STARTED, name, out -> {
+            out.writeLong(fingerprint.size());
+            out.writeLong(fingerprint.modifiedMillis());
+            out.writeInt(fingerprint.checksum());
+        }));
+        pending.put(name, new ArrayList<>());
+        return List.of();
+    }
+
+    /**
+     * Adds a validated game of a started file. Games must be recorded in file order.
+     * @throws UncheckedIOException if the journal cannot be written.
+     */
+    public synchronized void recordGame(String name, GameValidationResult game) {
+        List<GameValidationResult> games = pending.get(name);
+        if (closed || games == null) {
+            return;
+        }
+        games.add(game);
+        if (games.size() >= CHECKPOINT_GAMES) {
+            flushGames(name, games);
+            force();
+        }
+    }
+
+    /**
+     * Marks a started file as done, unless its validation failed with a file-level error.
+     * @throws UncheckedIOException if the journal cannot be written.
+     */
+    public synchronized void finishFile(FileValidationResult result) {
+        List<GameValidationResult> games = pending.remove(result.getFilePath());
+        if (closed || games == null) {
+            return;
+        }
+        flushGames(result.getFilePath(), games);
+        if (result.getFileLevelErrors().isEmpty()) {
+            write(record(FILE_DONE, result.getFilePath(), out -> out.writeInt(result.getSkippedGameCount())));
+        }
+        force();
+    }
+
+    /**
+     * Writes the games recorded since the last checkpoint and forces the journal to disk.
+     * @throws UncheckedIOException if the journal cannot be written.
+     */
+    public synchronized void checkpoint() {
+        if (closed) {
+            return;
+        }
+        pending.forEach(this::flushGames);
+        force();
+    }
+
+    /**
+     * Puts the fresh results and the restored ones together in discovery order.
+     * @param freshResults Results of the sources handed out by {@link #remainingFiles}.
+     * @return One result per source drawn, as if all had been validated in this run; failed sources are omitted.
+     */
+    public synchronized List<FileValidationResult> merge(List<FileValidationResult> freshResults) {
+        Map<String, FileValidationResult> fresh = new HashMap<>();
+        freshResults.forEach(result -> fresh.put(result.getFilePath(), result));
+        List<FileValidationResult> merged = new ArrayList<>(seen.size());
+        for (String name : seen.keySet()) {
+            FileValidationResult result = restored.containsKey(name) ? restored.get(name) : fresh.remove(name);
+            if (result != null) {
+                merged.add(result);
+            }
+        }
+        return merged;
+    }
+
+    private void flushGames(String name, List<GameValidationResult> games) {
+        if (!games.isEmpty()) {
+            write(record(GAMES, name, out -> {
+                out.writeInt(games.size());
+                for (GameValidationResult game : games) {
+                    FileManifest.writeGame(out, game);
+                }
+            }));
+            games.clear();
+        }
+    }
+
+    private interface Payload {
+        void writeTo(DataOutputStream out) throws IOException;
+    }
+
+    private static ByteBuffer record(byte type, String name, Payload payload) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(0); // Length and checksum, filled in below
+            out.writeInt(0);
+            out.writeByte(type);
+            FileManifest.writeString(out, name);
+            payload.writeTo(out);
+        } catch (IOException e) {
+            throw new IllegalStateException("Writing to memory cannot fail", e);
+        }
+        ByteBuffer record = ByteBuffer.wrap(bytes.toByteArray());
+        CRC32C checksum = new CRC32C();
+        checksum.update(record.array(), 8, record.capacity() - 8);
+        return record.putInt(0, record.capacity() - 8).putInt(4, (int) checksum.getValue());
+    }
+
+    private void write(ByteBuffer record) {
+        try {
+            while (record.hasRemaining()) {
+                channel.write(record);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write journal " + journalFile + ": " + e.getMessage(), e);
+        }
+    }
+
+    private void force() {
+        try {
+            channel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write journal " + journalFile + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static boolean readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public synchronized int getRestoredCount() { return restored.size(); }
+    public synchronized int getResumedCount() { return resumedCount; }
+
+    /** @return A one-line summary for the end of a run. */
+    public synchronized String format() {
+        return String.format("Journal: %d file(s) restored from %s, %d resumed partway, %d validated in this run.",
+                restored.size(), journalFile, resumedCount, seen.size() - restored.size());
+    }
+
+    /** Writes a final checkpoint and closes the journal; later calls do nothing. */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            checkpoint();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            closed = true;
+            channel.close();
+        }
+    }
+
+    /** Closes the journal and deletes it, once the run it belongs to has completed. */
+    public synchronized void delete() throws IOException {
+        closed = true;
+        channel.close();
+        Files.deleteIfExists(journalFile);
+    }
+}
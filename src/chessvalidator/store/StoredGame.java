@@ -0,0 +1,217 @@
+package chessvalidator.store;
+
+import chessvalidator.GameRecord;
+import chessvalidator.Variation;
+import chessvalidator.reports.PgnErrorInfo;
+
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+
+import static chessvalidator.store.OffHeapGameStore.*;
+
+/**
+ * Flyweight view of a game in an {@link OffHeapGameStore}: a slab reference and an offset.
+ * Every accessor decodes from the slab, so the view itself holds no game data.
+ * Views only use absolute reads and can be shared between threads.
+ */
+public final class StoredGame implements GameRecord {
+
+    private final ByteBuffer slab;
+    private final int base;
+
+    StoredGame(ByteBuffer slab, int base) {
+        this.slab = slab;
+        this.base = base;
+    }
+
+    @Override
+    public int getGameIndex() {
+        return slab.getInt(base);
+    }
+
+    /** @return A read-only view; values are decoded on each lookup. */
+    @Override
+    public Map<String, String> getHeaders() {
+        return new StoredHeaders(slab, base + HEADERS_POS);
+    }
+
+    @Override
+    public String getFenString() {
+        int fenPos = slab.getInt(base + FEN_POS);
+        return fenPos == 0 ? null : readString(slab, base + fenPos);
+    }
+
+    @Override
+    public List<CharSequence> getSanMoves() {
+        return new StoredMoves(base + slab.getInt(base + MOVES_POS));
+    }
+
+    /** @return The variation tree; its move lists are views into the slab like {@link #getSanMoves()}. */
+    @Override
+    public List<Variation> getVariations() {
+        return readVariations(base + slab.getInt(base + VARIATIONS_POS));
+    }
+
+    private List<Variation> readVariations(int position) {
+        int count = slab.getInt(position);
+        if (count == 0) {
+            return List.of();
+        }
+        List<Variation> variations = new ArrayList<>(count);
+        int entry = position + 4;
+        for (int i = 0; i < count; i++) {
+            int ply = slab.getInt(entry);
+            List<Variation> nested = readVariations(base + slab.getInt(entry + 4));
+            variations.add(new Variation(ply, new StoredMoves(entry + 12), nested));
+            entry = base + slab.getInt(entry + 8);
+        }
+        return variations;
+    }
+
+    @Override
+    public List<PgnErrorInfo> getSyntaxErrors() {
+        int position = base + slab.getInt(base + ERRORS_POS);
+        int count = slab.getInt(position);
+        if (count == 0) {
+            return List.of();
+        }
+        position += 4;
+        List<PgnErrorInfo> errors = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int gameIndex = slab.getInt(position);
+            int moveNumber = slab.getInt(position + 4);
+            PgnErrorInfo.Kind kind = PgnErrorInfo.Kind.values()[slab.get(position + 8)];
+            position += 9;
+            String moveText = readString(slab, position);
+            position += 4 + slab.getInt(position);
+            String message = readString(slab, position);
+            position += 4 + slab.getInt(position);
+            errors.add(new PgnErrorInfo(gameIndex, moveNumber, moveText, message, kind));
+        }
+        return errors;
+    }
+
+    private final class StoredMoves extends AbstractList<CharSequence> implements RandomAccess {
+        private final int movesPos;
+
+        StoredMoves(int movesPos) {
+            this.movesPos = movesPos;
+        }
+
+        @Override
+        public CharSequence get(int index) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            int tokenPos = base + slab.getInt(movesPos + 4 + 4 * index);
+            int header = slab.getChar(tokenPos);
+            return new Token(slab, tokenPos + 2, header & ~UTF16_FLAG, (header & UTF16_FLAG) != 0);
+        }
+
+        @Override
+        public int size() {
+            return slab.getInt(movesPos);
+        }
+    }
+
+    // One move token, read straight from the slab
+    private record Token(ByteBuffer slab, int position, int length, boolean utf16) implements CharSequence {
+        @Override
+        public char charAt(int index) {
+            if (index < 0 || index >= length) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return utf16 ? slab.getChar(position + 2 * index) : (char) (slab.get(position + index) & 0xFF);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return toString().subSequence(start, end);
+        }
+
+        @Override
+        public String toString() {
+            char[] chars = new char[length];
+            for (int i = 0; i < length; i++) {
+                chars[i] = charAt(i);
+            }
+            return new String(chars);
+        }
+    }
+
+    // Header map backed by the slab. Keys are ASCII tag names, so lookups compare bytes without decoding.
+    private static final class StoredHeaders extends AbstractMap<String, String> {
+        private final ByteBuffer slab;
+        private final int position;
+
+        StoredHeaders(ByteBuffer slab, int position) {
+            this.slab = slab;
+            this.position = position;
+        }
+
+        @Override
+        public String get(Object key) {
+            if (!(key instanceof String tag)) {
+                return null;
+            }
+            int count = slab.getInt(position);
+            int entry = position + 4;
+            for (int i = 0; i < count; i++) {
+                int valuePos = entry + 4 + slab.getInt(entry);
+                if (keyEquals(entry, tag)) {
+                    return readString(slab, valuePos);
+                }
+                entry = valuePos + 4 + slab.getInt(valuePos);
+            }
+            return null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public String getOrDefault(Object key, String defaultValue) {
+            String value = get(key);
+            return value != null ? value : defaultValue;
+        }
+
+        @Override
+        public int size() {
+            return slab.getInt(position);
+        }
+
+        @Override
+        public Set<Entry<String, String>> entrySet() {
+            Map<String, String> all = new LinkedHashMap<>();
+            int count = slab.getInt(position);
+            int entry = position + 4;
+            for (int i = 0; i < count; i++) {
+                int valuePos = entry + 4 + slab.getInt(entry);
+                all.put(readString(slab, entry), readString(slab, valuePos));
+                entry = valuePos + 4 + slab.getInt(valuePos);
+            }
+            return Collections.unmodifiableMap(all).entrySet();
+        }
+
+        private boolean keyEquals(int keyPos, String tag) {
+            int length = slab.getInt(keyPos);
+            if (length != tag.length()) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (slab.get(keyPos + 4 + i) != tag.charAt(i)) return false;
+            }
+            return true;
+        }
+    }
+}
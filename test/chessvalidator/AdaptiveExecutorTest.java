@@ -0,0 +1,35 @@
+package chessvalidator;
+
+import chessvalidator.concurrent.AdaptiveExecutor;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.TimeUnit;
+
+class AdaptiveExecutorTest {
+
+    @Test
+    void testPoolGrowsWhenTasksMostlyWait() throws InterruptedException {
+        AdaptiveExecutor executor = new AdaptiveExecutor(1, 1, 8, 20);
+        for (int i = 0; i < 200; i++) {
+            executor.submit(() -> {
+                Thread.sleep(5); // Stands in for a blocking read
+                return null;
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+        assertTrue(executor.getLargestPoolSize() > 1, executor.format());
+        assertTrue(executor.getLargestPoolSize() <= 8);
+    }
+
+    @Test
+    void testInitialSizeIsClampedToBounds() {
+        AdaptiveExecutor executor = new AdaptiveExecutor(64, 2, 4);
+        assertEquals(4, executor.getCorePoolSize());
+        executor.shutdown();
+
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveExecutor(1, 3, 2));
+    }
+}
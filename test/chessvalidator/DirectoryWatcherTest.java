@@ -0,0 +1,68 @@
+package chessvalidator;
+
+import chessvalidator.io.DirectoryWatcher;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+class DirectoryWatcherTest {
+
+    @TempDir
+    Path directory;
+
+    private static void awaitSize(List<?> list, int size) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(15);
+        while (list.size() < size && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+    }
+
+    @Test
+    void testBurstOfWritesIsReportedOnceAfterItSettles() throws Exception {
+        List<Path> reported = new CopyOnWriteArrayList<>();
+        Path upload = directory.resolve("upload.pgn");
+        Path subdirectory = directory.resolve("round2");
+        try (DirectoryWatcher watcher = new DirectoryWatcher(directory, Duration.ofMillis(300))) {
+            Thread watching = new Thread(() -> {
+                try {
+                    watcher.watch(reported::add);
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            watching.start();
+
+            for (int i = 0; i < 5; i++) {
+                Files.writeString(upload, "[Round \"" + i + "\"]\n\n1. e4 e5 *\n\n", Charset.defaultCharset(),
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                Thread.sleep(30);
+            }
+            Files.writeString(directory.resolve("notes.txt"), "not a PGN file", Charset.defaultCharset());
+            Files.createDirectory(subdirectory);
+            Thread.sleep(200); // Lets the new directory be registered before a file appears in it
+            Files.writeString(subdirectory.resolve("late.pgn"), "1. d4 d5 *\n", Charset.defaultCharset());
+
+            awaitSize(reported, 2);
+            Thread.sleep(600); // Anything reported twice would show up by now
+            watching.interrupt();
+            watching.join(5000);
+        }
+
+        assertEquals(List.of(upload, subdirectory.resolve("late.pgn")), reported);
+    }
+
+    @Test
+    void testNegativeDebounceIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new DirectoryWatcher(directory, Duration.ofMillis(-1)));
+    }
+}
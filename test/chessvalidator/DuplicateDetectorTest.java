@@ -0,0 +1,87 @@
+package chessvalidator;
+
+import chessvalidator.reports.FileValidationResult;
+import chessvalidator.store.DuplicateDetector;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
+
+class DuplicateDetectorTest {
+
+    private static List<PgnParser.ParsedGame> parse(String pgn) throws IOException {
+        return new PgnParser().parse(new StringReader(pgn), new FileValidationResult("test.pgn"));
+    }
+
+    @Test
+    void testCopiesThatDifferOnlyInAnnotationAreDuplicates() throws IOException {
+        List<PgnParser.ParsedGame> games = parse("""
+                [White "A"]
+                [Black "B"]
+                [Event "First source"]
+
+                1. e4 e5 2. Nf3 Nc6 3. Bc4 Nf6 4. O-O *
+
+                [White "A"]
+                [Black "B"]
+                [Event "Second source"]
+
+                1. e4! {best by test} e5 2. Nf3 (2. f4) Nc6 3. Bc4+ Nf6 4. O-O *
+
+                [White "A"]
+                [Black "C"]
+
+                1. e4 e5 2. Nf3 Nc6 3. Bc4 Nf6 4. O-O *
+                """);
+
+        assertArrayEquals(DuplicateDetector.fingerprint(games.get(0)), DuplicateDetector.fingerprint(games.get(1)));
+        assertFalse(Arrays.equals(DuplicateDetector.fingerprint(games.get(0)), DuplicateDetector.fingerprint(games.get(2))));
+    }
+
+    @Test
+    void testDuplicatesAreReportedWithTheirOriginal() throws IOException {
+        List<PgnParser.ParsedGame> first = parse("[White \"A\"]\n\n1. d4 d5 *\n\n[White \"B\"]\n\n1. c4 *\n");
+        List<PgnParser.ParsedGame> second = parse("[White \"B\"]\n\n1. c4 *\n\n[White \"A\"]\n\n1. d4 d5 *\n\n[White \"B\"]\n\n1. c4 *\n");
+        FileValidationResult a = new FileValidationResult("a.pgn");
+        FileValidationResult b = new FileValidationResult("b.pgn");
+
+        try (DuplicateDetector detector = DuplicateDetector.create(1000, true)) {
+            first.forEach(game -> assertTrue(detector.admit(game, a)));
+            second.forEach(game -> assertFalse(detector.admit(game, b)));
+
+            assertEquals(3, detector.getDuplicateCount());
+            assertEquals(2, detector.getDistinctCount());
+        }
+        assertEquals(0, a.getDuplicateGameCount());
+        assertEquals(3, b.getDuplicateGameCount());
+        assertTrue(b.toString().contains("Game 2 repeats game 1 of a.pgn"), b::toString);
+        assertTrue(b.toString().contains("Game 3 repeats game 2 of a.pgn"), b::toString);
+    }
+
+    @Test
+    void testExactAnswersBeyondTheExpectedNumberOfGames() throws IOException {
+        String[] moves = {"a3", "a4", "b3", "b4", "c3", "c4", "d3", "d4", "e3", "e4", "f3", "f4", "g3", "g4", "h3", "h4", "Nc3", "Nf3", "Na3", "Nh3"};
+        StringBuilder pgn = new StringBuilder();
+        for (int round = 1; round <= 100; round++) {
+            for (String move : moves) {
+                pgn.append("[Date \"").append(round).append("\"]\n\n1. ").append(move).append(" *\n\n");
+            }
+        }
+        List<PgnParser.ParsedGame> games = parse(pgn.toString());
+        FileValidationResult fileResult = new FileValidationResult("test.pgn");
+
+        try (DuplicateDetector detector = DuplicateDetector.create(10, false)) {
+            // Far more games than the filter is sized for, so most of them are probable hits
+            games.forEach(game -> assertTrue(detector.admit(game, fileResult)));
+            assertEquals(2000, detector.getDistinctCount());
+            assertTrue(detector.getFalsePositiveCount() > 0);
+
+            games.forEach(game -> assertTrue(detector.admit(game, fileResult))); // Reported, not skipped
+            assertEquals(2000, detector.getDuplicateCount());
+        }
+        assertEquals(2000, fileResult.getDuplicateGameCount());
+    }
+}
@@ -0,0 +1,95 @@
+package chessvalidator;
+
+import chessvalidator.io.PgnSource;
+import chessvalidator.reports.FileValidationResult;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Throughput comparison of the execution modes. Not a JUnit test; run it as a program:
+ * <pre>
+ *   java -cp out/production/PgnValidator:out/test/PgnValidator chessvalidator.ExecutionModeBenchmark [directory] [rounds]
+ * </pre>
+ * Without a directory, Tbilisi2015.pgn is split into one file per game and copied
+ * until there are 2000 small files, which mimics a directory of per-round broadcast files.
+ */
+public class ExecutionModeBenchmark {
+
+    private static final int SYNTHETIC_FILE_COUNT = 2000;
+
+    public static void main(String[] args) throws IOException {
+        Path directory = args.length > 0 ? Paths.get(args[0]) : createSyntheticCorpus();
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(directory)) {
+            files = walk.filter(PgnSource::isSupported).sorted().toList();
+        }
+        // Each source opens its file, or its archive, anew for every reader, so one list serves every run
+        List<PgnSource> sources = new ArrayList<>();
+        for (Path file : files) {
+            sources.addAll(PgnSource.expand(file));
+        }
+        System.out.println("Benchmarking " + files.size() + " files, " + rounds + " round(s) per mode, "
+                + Runtime.getRuntime().availableProcessors() + " processors.");
+
+        List<ValidationOptions.ExecutionMode> modes = List.of(
+                ValidationOptions.ExecutionMode.FIXED_POOL,
+                ValidationOptions.ExecutionMode.VIRTUAL_THREADS,
+                ValidationOptions.ExecutionMode.PIPELINE,
+                ValidationOptions.ExecutionMode.WORK_STEALING);
+
+        runMode(sources, ValidationOptions.ExecutionMode.FIXED_POOL); // Warm-up, not reported
+        for (ValidationOptions.ExecutionMode mode : modes) {
+            long bestNanos = Long.MAX_VALUE;
+            long games = 0;
+            for (int round = 0; round < rounds; round++) {
+                long start = System.nanoTime();
+                games = runMode(sources, mode);
+                bestNanos = Math.min(bestNanos, System.nanoTime() - start);
+            }
+            System.out.printf("%-16s %8d games  best %7d ms  %10.1f games/sec%n",
+                    mode, games, bestNanos / 1_000_000, games / (bestNanos / 1e9));
+        }
+    }
+
+    // Runs one mode with the validator's console output suppressed, returns the number of games seen
+    private static long runMode(List<PgnSource> sources, ValidationOptions.ExecutionMode mode) {
+        ValidationOptions options = ValidationOptions.parse(new String[]{sources.get(0).name()});
+        options.setExecutionMode(mode);
+        PrintStream originalOut = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            List<FileValidationResult> results = Main.runValidation(sources, options);
+            return results.stream().mapToLong(r -> r.getGameResults().size()).sum();
+        } finally {
+            System.setOut(originalOut);
+        }
+    }
+
+    private static Path createSyntheticCorpus() throws IOException {
+        String source = Files.readString(Paths.get("Tbilisi2015.pgn"), StandardCharsets.UTF_8);
+        List<String> games = new ArrayList<>();
+        for (String game : source.split("(?m)^(?=\\[Event )")) {
+            if (!game.isBlank()) games.add(game);
+        }
+        Path directory = Files.createTempDirectory("pgn-bench");
+        for (int i = 0; i < SYNTHETIC_FILE_COUNT; i++) {
+            Files.writeString(directory.resolve(String.format("round-%05d.pgn", i)), games.get(i % games.size()));
+        }
+        directory.toFile().deleteOnExit();
+        try (Stream<Path> created = Files.list(directory)) {
+            created.forEach(p -> p.toFile().deleteOnExit()); // Registered after the directory, so deleted before it
+        }
+        return directory;
+    }
+}
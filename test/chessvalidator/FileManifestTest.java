@@ -0,0 +1,94 @@
+package chessvalidator;
+
+import chessvalidator.io.PgnSource;
+import chessvalidator.reports.FileValidationResult;
+import chessvalidator.store.FileManifest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+class FileManifestTest {
+
+    @TempDir
+    Path directory;
+
+    private List<PgnSource> sources() throws IOException {
+        List<PgnSource> sources = new ArrayList<>();
+        try (var files = Files.list(directory)) {
+            files.filter(file -> file.toString().endsWith(".pgn")).sorted().forEach(file -> sources.add(PgnSource.of(file)));
+        }
+        return sources;
+    }
+
+    // One run as Main does it: validate what the manifest hands out, merge, save
+    private List<FileValidationResult> run(FileManifest manifest, List<String> validated) throws IOException {
+        Iterator<PgnSource> changed = manifest.changedFiles(sources().iterator());
+        List<PgnSource> toValidate = new ArrayList<>();
+        changed.forEachRemaining(toValidate::add);
+        toValidate.forEach(source -> validated.add(source.file().getFileName().toString()));
+        ValidationOptions options = ValidationOptions.parse(new String[]{"--mode", "single", directory.toString()});
+        List<FileValidationResult> results = manifest.merge(Main.runValidation(toValidate, options));
+        manifest.save();
+        return results;
+    }
+
+    @Test
+    void testUnchangedFilesAreReusedWithTheSameReport() throws IOException {
+        Files.writeString(directory.resolve("a.pgn"), "[Site \"X\"]\n[White \"A\"]\n\n1. e4 e5 *\n\n[Site \"Y\"]\n\n1. e4 Ke7 Ke3 *\n", Charset.defaultCharset());
+        Files.writeString(directory.resolve("b.pgn"), "[Black \"B\"]\n\n1. d4 d5 *\n", Charset.defaultCharset());
+        Path manifestFile = directory.resolve("manifest");
+
+        List<String> firstValidated = new ArrayList<>();
+        List<FileValidationResult> first = run(FileManifest.load(manifestFile, 1, null), firstValidated);
+        List<String> secondValidated = new ArrayList<>();
+        FileManifest manifest = FileManifest.load(manifestFile, 1, null);
+        List<FileValidationResult> second = run(manifest, secondValidated);
+
+        assertEquals(List.of("a.pgn", "b.pgn"), firstValidated);
+        assertEquals(List.of(), secondValidated);
+        assertEquals(2, manifest.getReusedCount());
+        assertEquals(first.toString(), second.toString());
+        assertEquals(1, second.get(0).getInvalidGameCount());
+    }
+
+    @Test
+    void testChangedFileIsValidatedAgain() throws IOException {
+        Path a = directory.resolve("a.pgn");
+        Files.writeString(a, "[Event \"1\"]\n\n1. e4 e5 *\n", Charset.defaultCharset());
+        Files.writeString(directory.resolve("b.pgn"), "[Event \"2\"]\n\n1. d4 d5 *\n", Charset.defaultCharset());
+        Path manifestFile = directory.resolve("manifest");
+        run(FileManifest.load(manifestFile, 1, null), new ArrayList<>());
+
+        Files.writeString(a, "[Event \"1\"]\n\n1. e4 e5 *\n\n[Event \"3\"]\n\n1. c4 *\n", Charset.defaultCharset());
+        List<String> validated = new ArrayList<>();
+        List<FileValidationResult> results = run(FileManifest.load(manifestFile, 1, null), validated);
+
+        assertEquals(List.of("a.pgn"), validated);
+        assertEquals(List.of(a.toString(), directory.resolve("b.pgn").toString()),
+                results.stream().map(FileValidationResult::getFilePath).toList());
+        assertEquals(2, results.get(0).getGameCount());
+    }
+
+    @Test
+    void testOtherRulesOrFilterValidatesEverything() throws IOException {
+        Files.writeString(directory.resolve("a.pgn"), "[Event \"1\"]\n\n1. e4 e5 *\n", Charset.defaultCharset());
+        Path manifestFile = directory.resolve("manifest");
+        run(FileManifest.load(manifestFile, 1, null), new ArrayList<>());
+
+        List<String> otherFilter = new ArrayList<>();
+        run(FileManifest.load(manifestFile, 1, "Event = 1"), otherFilter);
+        List<String> otherRules = new ArrayList<>();
+        run(FileManifest.load(manifestFile, 2, "Event = 1"), otherRules);
+
+        assertEquals(List.of("a.pgn"), otherFilter);
+        assertEquals(List.of("a.pgn"), otherRules);
+    }
+}
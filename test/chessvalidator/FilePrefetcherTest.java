@@ -0,0 +1,95 @@
+package chessvalidator;
+
+import chessvalidator.io.FilePrefetcher;
+import chessvalidator.io.PgnSource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+class FilePrefetcherTest {
+
+    @TempDir
+    Path directory;
+
+    private static String readAll(PgnSource source) throws IOException {
+        StringBuilder text = new StringBuilder();
+        try (Reader reader = source.openReader()) {
+            char[] buffer = new char[100];
+            int read;
+            while ((read = reader.read(buffer)) != -1) {
+                text.append(buffer, 0, read);
+            }
+        }
+        return text.toString();
+    }
+
+    @Test
+    void testPrefetchedFilesReadBackUnchangedAndInOrder() throws IOException {
+        List<PgnSource> sources = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Path file = directory.resolve("round" + i + ".pgn");
+            Files.writeString(file, "[Round \"" + i + "\"]\n\n1. e4 e5 *\n".repeat(i + 1), Charset.defaultCharset());
+            sources.add(PgnSource.of(file));
+        }
+
+        try (FilePrefetcher prefetcher = new FilePrefetcher(sources.iterator(), 2, 1)) {
+            for (int i = 0; i < 5; i++) {
+                assertTrue(prefetcher.hasNext());
+                PgnSource source = prefetcher.next();
+                assertEquals(sources.get(i).name(), source.name());
+                assertEquals(Files.readString(sources.get(i).file(), Charset.defaultCharset()), readAll(source));
+            }
+            assertFalse(prefetcher.hasNext());
+            assertEquals(5, prefetcher.getPrefetchedFiles());
+        }
+    }
+
+    @Test
+    void testBuffersAreBoundedByDepthWhenManyFilesAreHandedOutAtOnce() throws IOException {
+        List<PgnSource> sources = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            Path file = directory.resolve("round" + i + ".pgn");
+            Files.writeString(file, "[Round \"" + i + "\"]\n\n1. e4 e5 *\n", Charset.defaultCharset());
+            sources.add(PgnSource.of(file));
+        }
+
+        try (FilePrefetcher prefetcher = new FilePrefetcher(sources.iterator(), 2, 1)) {
+            // Handed out well before they are validated, as submitAll does with a discovery buffer
+            List<PgnSource> handedOut = new ArrayList<>();
+            prefetcher.forEachRemaining(handedOut::add);
+            assertEquals(40, handedOut.size());
+            assertTrue(prefetcher.getAllocatedBuffers() <= 2, () -> prefetcher.getAllocatedBuffers() + " buffers");
+
+            for (int i = 0; i < handedOut.size(); i++) {
+                assertEquals(Files.readString(sources.get(i).file(), Charset.defaultCharset()), readAll(handedOut.get(i)));
+            }
+            assertTrue(prefetcher.getAllocatedBuffers() <= 2, () -> prefetcher.getAllocatedBuffers() + " buffers");
+            assertEquals(40, prefetcher.getPrefetchedFiles()); // Each closed reader started the next read
+        }
+    }
+
+    @Test
+    void testCompressedFilesArePassedThrough() throws IOException {
+        Path file = directory.resolve("games.pgn.gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(file))) {
+            out.write("1. d4 d5 *\n".getBytes(Charset.defaultCharset()));
+        }
+
+        try (FilePrefetcher prefetcher = new FilePrefetcher(List.of(PgnSource.of(file)).iterator(), 1, 1)) {
+            PgnSource source = prefetcher.next();
+            assertInstanceOf(PgnSource.GzipFileSource.class, source);
+            assertEquals("1. d4 d5 *\n", readAll(source));
+            assertEquals(0, prefetcher.getPrefetchedFiles());
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package chessvalidator;
+
+import chessvalidator.reports.FileValidationResult;
+import chessvalidator.reports.GameValidationResult;
+import chessvalidator.reports.PgnErrorInfo;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+class FileValidationResultTest {
+
+    private static GameValidationResult game(int index, boolean valid) {
+        GameValidationResult result = new GameValidationResult(index, Map.of());
+        if (!valid) {
+            result.addError(new PgnErrorInfo(index, 1, "zz", "Unexpected token in move text section.", true));
+        }
+        return result;
+    }
+
+    @Test
+    void testKeptResultsAreCounted() {
+        FileValidationResult fileResult = new FileValidationResult("test.pgn");
+        fileResult.addGameResult(game(0, true));
+        fileResult.addGameResult(game(1, false));
+
+        assertEquals(2, fileResult.getGameResults().size());
+        assertEquals(2, fileResult.getGameCount());
+        assertEquals(1, fileResult.getInvalidGameCount());
+    }
+
+    @Test
+    void testStreamedResultsAreHandedOverNotKept() {
+        FileValidationResult fileResult = new FileValidationResult("<stdin>");
+        List<GameValidationResult> streamed = new ArrayList<>();
+        fileResult.streamGameResults(streamed::add);
+
+        fileResult.addGameResult(game(0, false));
+        fileResult.addGameResult(game(1, true));
+
+        assertEquals(2, streamed.size());
+        assertTrue(fileResult.getGameResults().isEmpty());
+        assertEquals(2, fileResult.getGameCount());
+        assertEquals(1, fileResult.getInvalidGameCount());
+        assertTrue(fileResult.hasErrors());
+        assertTrue(fileResult.toString().contains("2 games, 1 invalid"));
+    }
+}
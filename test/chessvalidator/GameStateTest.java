@@ -33,6 +33,24 @@ class GameStateTest {
         assertFalse(gameState.isStalemate());
     }
 
+    @Test
+    void testResetRestoresTheInitialPositionAndLeavesTheOldBoardAlone() {
+        applySanMove("e4");
+        applySanMove("e5");
+        applySanMove("Ke2");
+        Board played = gameState.getBoard();
+
+        gameState.reset();
+
+        assertEquals(Color.WHITE, gameState.getCurrentPlayer());
+        assertEquals(1, gameState.getFullMoveNumber());
+        assertTrue(gameState.canCastleKingSide(Color.WHITE));
+        assertNull(gameState.getEnPassantTargetSquare());
+        assertEquals(PieceType.KING, gameState.getBoard().getPiece(Square.fromAlgebraic("e1")).type());
+        assertNull(gameState.getBoard().getPiece(Square.fromAlgebraic("e4")));
+        assertEquals(PieceType.KING, played.getPiece(Square.fromAlgebraic("e2")).type()); // Still the played position
+    }
+
     @Test
     void testApplySimplePawnMove() {
         applySanMove("e4");
@@ -300,6 +318,57 @@ class GameStateTest {
     // --- Helper Methods for Tests ---
 
     /** Applies a move specified by SAN, asserting it's found and applied without error */
+    @Test
+    void testRestoreReturnsToSnapshot() {
+        applySanMove("e4");
+        GameState.Snapshot afterE4 = gameState.snapshot();
+        applySanMove("c5");
+        applySanMove("Nf3");
+
+        gameState.restore(afterE4);
+
+        assertEquals(Color.BLACK, gameState.getCurrentPlayer());
+        assertEquals(Square.fromAlgebraic("e3"), gameState.getEnPassantTargetSquare());
+        assertNull(gameState.getBoard().getPiece(Square.fromAlgebraic("c5")));
+        assertNotNull(gameState.getBoard().getPiece(Square.fromAlgebraic("g1")));
+        applySanMove("e5"); // The restored position is still playable
+    }
+
+    @Test
+    void testPositionKeyFollowsPositionNotMoveOrder() {
+        long initial = gameState.getPositionKey();
+        applySanMove("Nf3");
+        applySanMove("Nf6");
+        applySanMove("Nc3");
+        long viaNf3 = gameState.getPositionKey();
+
+        GameState other = new GameState();
+        for (String san : List.of("Nc3", "Nf6", "Nf3")) {
+            other.applyMove(SanHelper.sanToMove(san, other));
+        }
+        assertEquals(viaNf3, other.getPositionKey());
+        assertNotEquals(initial, viaNf3);
+    }
+
+    @Test
+    void testPositionKeyIncludesCastlingRights() {
+        GameState withRights = new GameState();
+        withRights.loadFromFen("r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1");
+        GameState withoutRights = new GameState();
+        withoutRights.loadFromFen("r3k2r/8/8/8/8/8/8/R3K2R w Qkq - 0 1");
+
+        assertEquals(withRights.getBoard().getPlacementKey(), withoutRights.getBoard().getPlacementKey());
+        assertNotEquals(withRights.getPositionKey(), withoutRights.getPositionKey());
+    }
+
+    @Test
+    void testPositionKeyOfFenMatchesReplayedPosition() {
+        applySanMove("e4");
+        GameState loaded = new GameState();
+        loaded.loadFromFen("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1");
+        assertEquals(gameState.getPositionKey(), loaded.getPositionKey());
+    }
+
     private void applySanMove(String san) {
         try {
             Move move = SanHelper.sanToMove(san, gameState);
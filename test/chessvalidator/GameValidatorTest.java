@@ -0,0 +1,159 @@
+package chessvalidator;
+
+import chessvalidator.reports.FileValidationResult;
+import chessvalidator.reports.GameValidationResult;
+import chessvalidator.reports.PgnErrorInfo;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import java.util.Map;
+
+class GameValidatorTest {
+
+    private static GameValidationResult validate(String pgn) throws IOException {
+        PgnParser.ParsedGame game = new PgnParser().parse(new StringReader(pgn), new FileValidationResult("test.pgn")).get(0);
+        return new GameValidator().validate(game);
+    }
+
+    @Test
+    void testLegalVariationsKeepGameValid() throws IOException {
+        GameValidationResult result = validate("""
+                [Event "A"]
+
+                1. e4 e5 2. Nf3 (2. f4 exf4 (2... d5 3. exd5) 3. Nf3) Nc6 (2... d6 3. d4) 3. Bb5 1-0
+                """);
+
+        assertTrue(result.isValid(), () -> result.getErrors().toString());
+    }
+
+    @Test
+    void testIllegalVariationIsReportedAndMainLineContinues() throws IOException {
+        GameValidationResult result = validate("""
+                [Event "A"]
+
+                1. e4 (1. d4 Nf3) e5 2. Nf3 Ke3 *
+                """);
+
+        assertEquals(2, result.getErrors().size());
+        PgnErrorInfo variationError = result.getErrors().get(0);
+        assertEquals("Nf3", variationError.moveText());
+        assertTrue(variationError.message().startsWith("Logical error in variation"));
+        assertEquals("Ke3", result.getErrors().get(1).moveText()); // Main line was still replayed after the variation
+    }
+
+    @Test
+    void testUnexpectedErrorInVariationFlagsOnlyThatVariation() {
+        CharSequence broken = new CharSequence() {
+            @Override public int length() { throw new UnsupportedOperationException("unreadable move"); }
+            @Override public char charAt(int index) { throw new UnsupportedOperationException("unreadable move"); }
+            @Override public CharSequence subSequence(int start, int end) { throw new UnsupportedOperationException("unreadable move"); }
+            @Override public String toString() { return "Nf6"; }
+        };
+        PgnParser.ParsedGame game = new PgnParser.ParsedGame(0, Map.of("Event", "A"), null, List.of("e4", "e5", "Nf3"),
+                List.of(), List.of(new Variation(1, List.of(broken), List.of())));
+
+        GameValidationResult result = new GameValidator().validate(game);
+
+        assertEquals(1, result.getErrors().size(), () -> result.getErrors().toString());
+        assertTrue(result.getErrors().get(0).message().startsWith("Unexpected error during validation of variation"));
+        assertEquals("Nf6", result.getErrors().get(0).moveText());
+    }
+
+    @Test
+    void testBatchMatchesGameByGameAndReplaysSharedPrefixesOnce() throws IOException {
+        List<PgnParser.ParsedGame> games = new PgnParser().parse(new StringReader("""
+                [Event "A"]
+
+                1. e4 e5 2. Nf3 Nc6 3. Bb5 *
+
+                [Event "B"]
+
+                1. e4 e5 2. Nf3 Nf6 *
+
+                [Event "C"]
+
+                1. e4 e5 2. Ke3 Nc6 *
+
+                [Event "D"]
+
+                1. e4 e5 2. Ke3 Nf6 3. Nf3 *
+
+                [Event "E"]
+
+                1. e4 (1. d4 Nf3) e5 *
+
+                [Event "F"]
+                [FEN "4k3/8/8/8/8/8/8/4K3 w - - 0 40"]
+
+                40. Kd2 Kd8 *
+
+                [Event "G"]
+
+                1. e4 e5 *
+                """), new FileValidationResult("test.pgn"));
+        GameValidator oneByOne = new GameValidator();
+        GameValidator batch = new GameValidator();
+
+        List<GameValidationResult> results = batch.validateBatch(games);
+
+        assertEquals(games.size(), results.size());
+        for (int i = 0; i < games.size(); i++) {
+            assertEquals(oneByOne.validate(games.get(i)).toString(), results.get(i).toString());
+        }
+        PgnErrorInfo error = results.get(3).getErrors().get(0);
+        assertEquals(2, error.moveNumber());
+        assertEquals("Ke3", error.moveText());
+        assertEquals(1, results.get(3).getErrors().size()); // Nothing after the illegal move is replayed
+        // e4 e5 Nf3 {Nc6 Bb5, Nf6} Ke3 + Kd2 Kd8; game E and its variation are replayed on their own
+        assertEquals(9, batch.getReplayedPlyCount());
+        assertEquals(5 + 4 + 4 + 5 + 2 + 2, batch.getPlyCount());
+    }
+
+    @Test
+    void testTiersDecideWhichGamesAreReplayed() throws IOException {
+        List<PgnParser.ParsedGame> games = new PgnParser().parse(new StringReader("""
+                [Event "A"]
+
+                1. e4 e5 2. Ke3 *
+
+                [Event "B"]
+
+                1. e4 e5 2. Nf3 Castle Nc6 3. Ke3 *
+                """), new FileValidationResult("test.pgn"));
+        int syntaxErrors = games.get(1).getSyntaxErrors().size();
+        assertTrue(syntaxErrors > 0);
+
+        GameValidator syntax = new GameValidator(null, null, ValidationTier.SYNTAX);
+        assertTrue(syntax.validate(games.get(0)).isValid()); // The illegal king move is never replayed
+        assertEquals(syntaxErrors, syntax.validate(games.get(1)).getErrors().size());
+
+        GameValidator clean = new GameValidator(null, null, ValidationTier.CLEAN);
+        assertEquals("Ke3", clean.validate(games.get(0)).getErrors().get(0).moveText());
+        assertEquals(syntaxErrors, clean.validate(games.get(1)).getErrors().size());
+        assertEquals(syntax.validateBatch(games).toString(), List.of(syntax.validate(games.get(0)), syntax.validate(games.get(1))).toString());
+
+        assertTrue(new GameValidator().validate(games.get(1)).getErrors().size() > syntaxErrors);
+    }
+
+    @Test
+    void testPlyBudgetCancelsTheGameAndCountsVariations() throws IOException {
+        PgnParser.ParsedGame game = new PgnParser().parse(new StringReader("""
+                [Event "A"]
+
+                1. e4 (1. d4 d5 2. c4) e5 2. Nf3 Nc6 3. Bb5 *
+                """), new FileValidationResult("test.pgn")).get(0);
+        GameValidator validator = new GameValidator(null, null, ValidationTier.FULL, new ValidationBudget(5, 0, 0, 0));
+
+        GameValidationResult result = validator.validate(game);
+
+        assertEquals(1, result.getErrors().size());
+        PgnErrorInfo error = result.getErrors().get(0);
+        assertEquals(PgnErrorInfo.Kind.BUDGET, error.kind());
+        assertEquals("Nf3", error.moveText()); // d4 d5 c4 e4 e5 used up the budget
+        assertTrue(error.toString().startsWith("[Budget Error | Game 1 | Move 2 ('Nf3')]"), error::toString);
+        assertTrue(new GameValidator().validate(game).isValid());
+    }
+}
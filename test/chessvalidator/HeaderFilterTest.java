@@ -0,0 +1,56 @@
+package chessvalidator;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Map;
+
+class HeaderFilterTest {
+
+    private static final Map<String, String> GAME = Map.of(
+            "Event", "Tbilisi FIDE Grand Prix", "Date", "2015.02.21", "Round", "6",
+            "White", "Giri,A", "Black", "Jobava,Ba", "WhiteElo", "2797");
+
+    @Test
+    void testEqualityAndContains() {
+        assertTrue(HeaderFilter.parse("Event = \"Tbilisi FIDE Grand Prix\"").matches(GAME));
+        assertFalse(HeaderFilter.parse("Event = Tbilisi").matches(GAME));
+        assertTrue(HeaderFilter.parse("Event ~ \"grand prix\"").matches(GAME));
+        assertTrue(HeaderFilter.parse("Round != 5").matches(GAME));
+    }
+
+    @Test
+    void testComparisonsAreNumericForNumbersAndTextualForDates() {
+        assertTrue(HeaderFilter.parse("Round >= 5").matches(GAME));
+        assertFalse(HeaderFilter.parse("Round > 10").matches(GAME)); // "6" > "10" as text, but not as a number
+        assertTrue(HeaderFilter.parse("Date >= 2015.02.20 && Date < 2015.03.01").matches(GAME));
+    }
+
+    @Test
+    void testPlayerPseudoTagMatchesEitherSide() {
+        assertTrue(HeaderFilter.parse("Player ~ jobava").matches(GAME));
+        assertTrue(HeaderFilter.parse("Player ~ giri").matches(GAME));
+        assertFalse(HeaderFilter.parse("Player ~ carlsen").matches(GAME));
+        assertFalse(HeaderFilter.parse("Player != Giri,A").matches(GAME));
+    }
+
+    @Test
+    void testAndBindsTighterThanOr() {
+        assertTrue(HeaderFilter.parse("Player ~ carlsen || White ~ giri && Round = 6").matches(GAME));
+        assertFalse(HeaderFilter.parse("(Player ~ carlsen || White ~ giri) && Round = 7").matches(GAME));
+    }
+
+    @Test
+    void testMissingTagOnlyMatchesNotEquals() {
+        assertFalse(HeaderFilter.parse("ECO = B90").matches(GAME));
+        assertTrue(HeaderFilter.parse("ECO != B90").matches(GAME));
+    }
+
+    @Test
+    void testMalformedExpressionsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> HeaderFilter.parse("White ="));
+        assertThrows(IllegalArgumentException.class, () -> HeaderFilter.parse("(White = Giri"));
+        assertThrows(IllegalArgumentException.class, () -> HeaderFilter.parse("White Giri"));
+        assertThrows(IllegalArgumentException.class, () -> HeaderFilter.parse(" "));
+    }
+}
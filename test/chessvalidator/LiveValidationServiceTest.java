@@ -0,0 +1,53 @@
+package chessvalidator;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+
+class LiveValidationServiceTest {
+
+    @Test
+    void testMovesAreCheckedAgainstTheRetainedPosition() {
+        try (LiveValidationService service = new LiveValidationService(Duration.ZERO)) {
+            service.open("board-1", null);
+
+            assertTrue(service.submit("board-1", "e4").accepted());
+            assertTrue(service.submit("board-1", "e5").accepted());
+            LiveValidationService.MoveVerdict illegal = service.submit("board-1", "Ke3");
+            assertFalse(illegal.accepted());
+            assertEquals(2, illegal.ply());
+            assertNotNull(illegal.message());
+            // The rejected move left the position alone
+            assertEquals(3, service.submit("board-1", "Nf3").ply());
+        }
+    }
+
+    @Test
+    void testSessionsAreIndependentAndCanStartFromFen() {
+        try (LiveValidationService service = new LiveValidationService(Duration.ZERO)) {
+            service.open("a", null);
+            service.open("b", "8/8/8/8/8/8/8/K6k w - - 0 1");
+
+            assertTrue(service.submit("a", "d4").accepted());
+            assertFalse(service.submit("b", "d4").accepted());
+            assertTrue(service.submit("b", "Kb2").accepted());
+            assertEquals(2, service.getSessionCount());
+            assertTrue(service.close("a"));
+            assertFalse(service.submit("a", "d5").accepted());
+        }
+    }
+
+    @Test
+    void testIdleSessionsAreEvicted() throws InterruptedException {
+        try (LiveValidationService service = new LiveValidationService(Duration.ofMillis(20))) {
+            service.open("idle", null);
+            Thread.sleep(60);
+
+            service.evictIdle();
+
+            assertEquals(0, service.getSessionCount());
+            assertEquals(-1, service.getPly("idle"));
+        }
+    }
+}
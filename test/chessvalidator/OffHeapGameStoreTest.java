@@ -0,0 +1,79 @@
+package chessvalidator;
+
+import chessvalidator.reports.PgnErrorInfo;
+import chessvalidator.store.OffHeapGameStore;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.Map;
+
+class OffHeapGameStoreTest {
+
+    private static PgnParser.ParsedGame sampleGame(int index) {
+        PgnHeaders headers = new PgnHeaders();
+        headers.putRaw("White", "[White \"M\u00fcller, T\"]");
+        headers.putRaw("ECO", "[ECO \"C65\"]");
+        List<PgnErrorInfo> errors = List.of(new PgnErrorInfo(index, 2, "zz", "Unexpected token in move text section.", true));
+        return new PgnParser.ParsedGame(index, headers, "8/8/8/8/8/8/8/K6k w - - 0 1", List.of("Ka2", "Kg1", "Kb3\u265e"), errors);
+    }
+
+    @Test
+    void testStoredGameReadsBackEveryField() {
+        try (OffHeapGameStore store = new OffHeapGameStore()) {
+            PgnParser.ParsedGame game = sampleGame(7);
+            GameRecord stored = store.add(game);
+
+            assertEquals(7, stored.getGameIndex());
+            assertEquals(game.getFenString(), stored.getFenString());
+            assertEquals(Map.of("White", "M\u00fcller, T", "ECO", "C65"), stored.getHeaders());
+            assertEquals("C65", stored.getHeaders().get("ECO"));
+            assertNull(stored.getHeaders().get("Black"));
+            assertEquals(List.of("Ka2", "Kg1", "Kb3\u265e"), stored.getSanMoves().stream().map(CharSequence::toString).toList());
+            assertEquals('\u265e', stored.getSanMoves().get(2).charAt(3));
+            assertEquals(game.getSyntaxErrors(), stored.getSyntaxErrors());
+        }
+    }
+
+    @Test
+    void testGamesSpillIntoNewSlabsWhenFull() {
+        try (OffHeapGameStore store = new OffHeapGameStore(1024)) {
+            for (int i = 0; i < 50; i++) {
+                store.add(sampleGame(i));
+            }
+
+            assertEquals(50, store.getGameCount());
+            assertTrue(store.getSlabCount() > 1);
+        }
+    }
+
+    @Test
+    void testGameWithoutFenOrMoves() {
+        try (OffHeapGameStore store = new OffHeapGameStore()) {
+            GameRecord stored = store.add(new PgnParser.ParsedGame(0, Map.of(), null, List.of(), List.of()));
+
+            assertNull(stored.getFenString());
+            assertTrue(stored.getSanMoves().isEmpty());
+            assertTrue(stored.getHeaders().isEmpty());
+            assertTrue(stored.getSyntaxErrors().isEmpty());
+        }
+    }
+
+    @Test
+    void testVariationsReadBack() {
+        try (OffHeapGameStore store = new OffHeapGameStore()) {
+            Variation nested = new Variation(0, List.of("d5"), List.of());
+            Variation variation = new Variation(1, List.of("c5", "Nf3"), List.of(nested));
+            GameRecord stored = store.add(new PgnParser.ParsedGame(0, Map.of(), null, List.of("e4", "e5"), List.of(),
+                    List.of(variation, new Variation(1, List.of("e6"), List.of()))));
+
+            List<Variation> variations = stored.getVariations();
+            assertEquals(2, variations.size());
+            assertEquals(1, variations.get(0).ply());
+            assertEquals(List.of("c5", "Nf3"), variations.get(0).moves().stream().map(CharSequence::toString).toList());
+            assertEquals("d5", variations.get(0).variations().get(0).moves().get(0).toString());
+            assertEquals("e6", variations.get(1).moves().get(0).toString());
+            assertEquals(List.of("e4", "e5"), stored.getSanMoves().stream().map(CharSequence::toString).toList());
+        }
+    }
+}
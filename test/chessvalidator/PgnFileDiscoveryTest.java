@@ -0,0 +1,79 @@
+package chessvalidator;
+
+import chessvalidator.io.PgnFileDiscovery;
+import chessvalidator.io.PgnSource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+class PgnFileDiscoveryTest {
+
+    @TempDir
+    Path directory;
+
+    private static void awaitDiscovered(PgnFileDiscovery discovery, int count) throws InterruptedException {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (discovery.getDiscoveredCount() < count) {
+            assertTrue(System.nanoTime() < deadline, () -> "Only " + discovery.getDiscoveredCount() + " files discovered");
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    void testWalkPausesWhileTheBufferIsFull() throws Exception {
+        Set<String> expected = new HashSet<>();
+        for (int i = 0; i < 10; i++) {
+            Path file = directory.resolve("round" + i + ".pgn");
+            Files.writeString(file, "[Round \"" + i + "\"]\n\n1. e4 e5 *\n", Charset.defaultCharset());
+            expected.add(file.toString());
+        }
+
+        try (PgnFileDiscovery discovery = new PgnFileDiscovery(directory, 2).start()) {
+            awaitDiscovered(discovery, 2);
+            Thread.sleep(200);
+            assertEquals(2, discovery.getDiscoveredCount(), "The walk should wait for the consumer");
+
+            Set<String> found = new HashSet<>();
+            while (discovery.hasNext()) {
+                found.add(discovery.next().name());
+            }
+            assertEquals(expected, found);
+            assertEquals(10, discovery.getDiscoveredCount());
+            assertNull(discovery.nextOrNull());
+        }
+    }
+
+    @Test
+    void testArchiveEntriesAreHandedOutAndOtherFilesAreSkipped() throws Exception {
+        Files.writeString(directory.resolve("notes.txt"), "not a game", Charset.defaultCharset());
+        Files.writeString(directory.resolve("single.pgn"), "[White \"A\"]\n\n1. e4 e5 *\n", Charset.defaultCharset());
+        try (OutputStream out = Files.newOutputStream(directory.resolve("rounds.zip"));
+             ZipOutputStream zip = new ZipOutputStream(out)) {
+            for (String entry : new String[]{"round1.pgn", "round2.pgn"}) {
+                zip.putNextEntry(new ZipEntry(entry));
+                zip.write("[White \"B\"]\n\n1. d4 d5 *\n".getBytes(Charset.defaultCharset()));
+                zip.closeEntry();
+            }
+        }
+
+        Set<String> found = new HashSet<>();
+        try (PgnFileDiscovery discovery = new PgnFileDiscovery(directory, 1).start()) {
+            for (PgnSource source = discovery.nextOrNull(); source != null; source = discovery.nextOrNull()) {
+                found.add(source.name());
+            }
+        }
+
+        Path archive = directory.resolve("rounds.zip");
+        assertEquals(Set.of(directory.resolve("single.pgn").toString(), archive + "!/round1.pgn", archive + "!/round2.pgn"), found);
+    }
+}
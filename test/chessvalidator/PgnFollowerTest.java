@@ -0,0 +1,66 @@
+package chessvalidator;
+
+import chessvalidator.reports.FileValidationResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+class PgnFollowerTest {
+
+    private static final String GAME_A = "[Event \"A\"]\n\n1. e4 e5 2. Nf3 1-0\n\n";
+    private static final String GAME_B = "[Event \"B\"]\n\n1. d4 d5 *\n\n";
+
+    @TempDir
+    Path directory;
+
+    private static void append(Path file, String text) throws IOException {
+        Files.writeString(file, text, StandardCharsets.US_ASCII, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    @Test
+    void testOnlyAppendedCompleteGamesAreValidated() throws IOException {
+        Path file = directory.resolve("live.pgn");
+        append(file, GAME_A + "[Event \"B\"]\n\n1. d4 ");
+        PgnFollower follower = new PgnFollower(file, HeaderFilter.ACCEPT_ALL);
+
+        FileValidationResult first = follower.update();
+        assertEquals(1, first.getGameCount());
+        assertNull(follower.update()); // Game B is not finished yet
+
+        append(file, "d5 *\n\n");
+        FileValidationResult second = follower.update();
+        assertEquals(1, second.getGameCount());
+        assertEquals(1, second.getGameResults().get(0).getGameIndex()); // Numbered from the start of the file
+        assertEquals("B", second.getGameResults().get(0).getHeaders().get("Event"));
+        assertEquals(Files.size(file) - 1, follower.getOffset()); // Just past the result line, before the blank line
+        assertEquals(2, follower.getGameCount());
+    }
+
+    @Test
+    void testTruncatedFileIsFollowedFromTheStart() throws IOException {
+        Path file = directory.resolve("live.pgn");
+        append(file, GAME_A + GAME_A);
+        PgnFollower follower = new PgnFollower(file, HeaderFilter.ACCEPT_ALL);
+        assertEquals(2, follower.update().getGameCount());
+
+        Files.writeString(file, GAME_B, StandardCharsets.US_ASCII); // Shorter than before
+        FileValidationResult restarted = follower.update();
+
+        assertEquals(1, restarted.getGameCount());
+        assertEquals(0, restarted.getGameResults().get(0).getGameIndex());
+    }
+
+    @Test
+    void testEndOfLastCompleteGameIgnoresUnfinishedLines() {
+        byte[] text = (GAME_A + "[Event \"B\"]\n\n1. d4 d5 *").getBytes(StandardCharsets.US_ASCII);
+
+        assertEquals(GAME_A.length() - 1, PgnParser.endOfLastCompleteGame(text, text.length));
+        assertEquals(0, PgnParser.endOfLastCompleteGame(text, 10));
+    }
+}
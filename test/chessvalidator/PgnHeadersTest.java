@@ -0,0 +1,61 @@
+package chessvalidator;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.Map;
+
+class PgnHeadersTest {
+
+    @Test
+    void testRosterValueParsedFromRawLine() {
+        PgnHeaders headers = new PgnHeaders();
+        headers.putRaw("White", "[White \"Carlsen, M\"]");
+        headers.putRaw("Event", "[Event \"\"]");
+
+        assertEquals("Carlsen, M", headers.get("White"));
+        assertEquals("", headers.get("Event"));
+        assertNull(headers.get("Black"));
+        assertEquals("?", headers.getOrDefault("Black", "?"));
+        assertEquals(2, headers.size());
+    }
+
+    @Test
+    void testValueWithQuotesKeepsEverythingBetweenOuterQuotes() {
+        PgnHeaders headers = new PgnHeaders();
+        headers.putRaw("Event", "[Event \"The \"Big\" Open\"]");
+
+        assertEquals("The \"Big\" Open", headers.get("Event"));
+    }
+
+    @Test
+    void testOverflowTagsKeepInsertionOrderAfterRoster() {
+        PgnHeaders headers = new PgnHeaders();
+        headers.putRaw("ECO", "[ECO \"B90\"]");
+        headers.putRaw("Result", "[Result \"1-0\"]");
+        headers.putRaw("FEN", "[FEN \"8/8/8/8/8/8/8/K6k w - - 0 1\"]");
+
+        assertEquals(List.of("Result", "ECO", "FEN"), List.copyOf(headers.keySet()));
+        assertEquals(Map.of("Result", "1-0", "ECO", "B90", "FEN", "8/8/8/8/8/8/8/K6k w - - 0 1"), headers);
+    }
+
+    @Test
+    void testPutReplacesRawValue() {
+        PgnHeaders headers = new PgnHeaders();
+        headers.putRaw("Site", "[Site \"Tbilisi GEO\"]");
+
+        assertEquals("Tbilisi GEO", headers.put("Site", "Berlin"));
+        assertEquals("Berlin", headers.get("Site"));
+    }
+
+    @Test
+    void testRepeatedValuesShareOneInstance() {
+        PgnHeaders first = new PgnHeaders();
+        PgnHeaders second = new PgnHeaders();
+        first.putRaw("Site", "[Site \"Tbilisi GEO\"]");
+        second.putRaw("Site", "[Site  \"Tbilisi GEO\" ]");
+
+        assertSame(first.get("Site"), second.get("Site"));
+    }
+}
@@ -0,0 +1,132 @@
+package chessvalidator;
+
+import chessvalidator.reports.FileValidationResult;
+import chessvalidator.reports.PgnErrorInfo;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+class PgnParserTest {
+
+    private static List<PgnParser.ParsedGame> parse(String pgn) throws IOException {
+        return new PgnParser().parse(new StringReader(pgn), new FileValidationResult("test.pgn"));
+    }
+
+    private static List<String> moves(PgnParser.ParsedGame game) {
+        return game.getSanMoves().stream().map(CharSequence::toString).toList();
+    }
+
+    @Test
+    void testCommentsNestedVariationsAndNagsAreSkipped() throws IOException {
+        List<PgnParser.ParsedGame> games = parse("""
+                [Event "A"]
+
+                1. e4 {best (by test)} e5 $1 2. Nf3 (2. f4 exf4 (2... d5 {x}) 3. Nf3) Nc6$2 3. Bb5 1-0
+                """);
+
+        assertEquals(1, games.size());
+        assertEquals(List.of("e4", "e5", "Nf3", "Nc6", "Bb5"), moves(games.get(0)));
+        assertTrue(games.get(0).getSyntaxErrors().isEmpty());
+    }
+
+    @Test
+    void testGamesInOneFileKeepTheirOwnMoves() throws IOException {
+        List<PgnParser.ParsedGame> games = parse("""
+                [Event "A"]
+
+                1. e4 e5 1-0
+
+                [Event "B"]
+
+                1. d4 d5 2. c4 *
+                """);
+
+        assertEquals(List.of("e4", "e5"), moves(games.get(0)));
+        assertEquals(List.of("d4", "d5", "c4"), moves(games.get(1)));
+    }
+
+    @Test
+    void testUnexpectedTokenIsReported() throws IOException {
+        PgnParser.ParsedGame game = parse("[Event \"A\"]\n\n1. e4 zz e5 *\n").get(0);
+
+        assertEquals(List.of("e4", "e5"), moves(game));
+        assertEquals(1, game.getSyntaxErrors().size());
+        assertEquals("zz", game.getSyntaxErrors().get(0).moveText());
+    }
+
+    @Test
+    void testUnterminatedCommentRunsToEndOfGame() throws IOException {
+        PgnParser.ParsedGame game = parse("[Event \"A\"]\n\n1. e4 e5 {never closed 2. Nf3 *\n").get(0);
+
+        assertEquals(List.of("e4", "e5"), moves(game));
+    }
+
+    @Test
+    void testHeaderFilterSkipsGamesButKeepsNumbering() throws IOException {
+        FileValidationResult fileResult = new FileValidationResult("test.pgn");
+        List<PgnParser.ParsedGame> games = new PgnParser(HeaderFilter.parse("Event = B")).parse(new StringReader("""
+                [Event "A"]
+
+                1. e4 e5 1-0
+
+                [Event "B"]
+
+                1. d4 d5 *
+                """), fileResult);
+
+        assertEquals(1, games.size());
+        assertEquals(1, games.get(0).getGameIndex());
+        assertEquals(1, fileResult.getSkippedGameCount());
+    }
+
+    @Test
+    void testVariationsAreCollectedAsTree() throws IOException {
+        PgnParser.ParsedGame game = parse("""
+                [Event "A"]
+
+                1. e4 e5 2. Nf3 (2. f4 exf4 (2... d5 {x}) 3. Nf3) (2. Nc3) Nc6 1-0
+                """).get(0);
+
+        assertEquals(List.of("e4", "e5", "Nf3", "Nc6"), moves(game));
+        List<Variation> variations = game.getVariations();
+        assertEquals(2, variations.size());
+        assertEquals(2, variations.get(0).ply());
+        assertEquals(List.of("f4", "exf4", "Nf3"), variations.get(0).moves().stream().map(CharSequence::toString).toList());
+        assertEquals(1, variations.get(0).variations().get(0).ply());
+        assertEquals("Nc3", variations.get(1).moves().get(0).toString());
+        assertTrue(game.getSyntaxErrors().isEmpty());
+    }
+
+    @Test
+    void testUnterminatedVariationIsReported() throws IOException {
+        PgnParser.ParsedGame game = parse("[Event \"A\"]\n\n1. e4 (1. d4 d5 2. c4 *\n").get(0);
+
+        assertEquals(List.of("e4"), moves(game));
+        assertEquals(1, game.getVariations().size());
+        assertEquals("Unterminated variation.", game.getSyntaxErrors().get(0).message());
+    }
+
+    @Test
+    void testMoveTextOverBudgetIsDroppedAndTheNextGameParsed() throws IOException {
+        String blob = "x".repeat(500);
+        List<PgnParser.ParsedGame> games = new PgnParser(HeaderFilter.ACCEPT_ALL, new ValidationBudget(0, 100, 0, 0)).parse(new StringReader("""
+                [Event "A"]
+
+                1. e4 {%s}
+                e5 2. Nf3 *
+
+                [Event "B"]
+
+                1. d4 d5 *
+                """.formatted(blob)), new FileValidationResult("test.pgn"));
+
+        assertEquals(2, games.size());
+        assertEquals(List.of(), moves(games.get(0)));
+        assertEquals(PgnErrorInfo.Kind.BUDGET, games.get(0).getSyntaxErrors().get(0).kind());
+        assertEquals(List.of("d4", "d5"), moves(games.get(1)));
+        assertTrue(games.get(1).getSyntaxErrors().isEmpty());
+    }
+}
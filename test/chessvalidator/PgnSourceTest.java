@@ -0,0 +1,82 @@
+package chessvalidator;
+
+import chessvalidator.io.PgnSource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+class PgnSourceTest {
+
+    @TempDir
+    Path directory;
+
+    private static String readAll(PgnSource source) throws IOException {
+        StringBuilder text = new StringBuilder();
+        try (Reader reader = source.openReader()) {
+            char[] buffer = new char[100];
+            int read;
+            while ((read = reader.read(buffer)) != -1) {
+                text.append(buffer, 0, read);
+            }
+        }
+        return text.toString();
+    }
+
+    // Whether this process has the file open; Linux only
+    private static boolean isOpen(Path file) throws IOException {
+        Path target = file.toRealPath();
+        try (Stream<Path> descriptors = Files.list(Paths.get("/proc/self/fd"))) {
+            return descriptors.anyMatch(descriptor -> {
+                try {
+                    return Files.readSymbolicLink(descriptor).equals(target);
+                } catch (IOException e) {
+                    return false; // Closed while listing
+                }
+            });
+        }
+    }
+
+    // The read-ahead thread closes the source after the reader, so this waits a little for it
+    private static void assertReleased(Path file) throws Exception {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (isOpen(file) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertFalse(isOpen(file), file + " is still open");
+    }
+
+    @Test
+    void testZipEntriesThatAreSkippedDoNotKeepTheArchiveOpen() throws Exception {
+        assumeTrue(Files.isDirectory(Paths.get("/proc/self/fd")));
+        Path archive = directory.resolve("rounds.zip");
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(archive))) {
+            for (int round = 1; round <= 3; round++) {
+                out.putNextEntry(new ZipEntry("round" + round + ".pgn"));
+                out.write(("[Round \"" + round + "\"]\n\n1. e4 e5 *\n").getBytes(Charset.defaultCharset()));
+                out.closeEntry();
+            }
+        }
+
+        List<PgnSource> entries = PgnSource.expand(archive);
+        assertEquals(3, entries.size());
+        assertFalse(isOpen(archive));
+
+        // Only the second entry is read, as when a resumed run skips the others
+        assertTrue(readAll(entries.get(1)).startsWith("[Round \"2\"]"));
+        assertReleased(archive);
+        assertEquals(readAll(entries.get(1)), readAll(entries.get(1)));
+        assertReleased(archive);
+    }
+}
@@ -0,0 +1,88 @@
+package chessvalidator;
+
+import chessvalidator.io.ReadAheadInputStream;
+import chessvalidator.reports.FileValidationResult;
+import chessvalidator.reports.GameValidationResult;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class ReadAheadInputStreamTest {
+
+    @Test
+    void testGameIsValidatedBeforeTheWriterCloses() throws Exception {
+        PipedOutputStream writer = new PipedOutputStream();
+        PipedInputStream pipe = new PipedInputStream(writer, 64 * 1024);
+        List<GameValidationResult> results = new CopyOnWriteArrayList<>();
+        CountDownLatch firstGame = new CountDownLatch(1);
+        FileValidationResult fileResult = new FileValidationResult("<pipe>");
+
+        Thread consumer = new Thread(() -> {
+            GameValidator validator = new GameValidator();
+            try (Reader reader = new InputStreamReader(new ReadAheadInputStream(pipe), StandardCharsets.US_ASCII)) {
+                new PgnParser().parse(reader, fileResult, game -> {
+                    results.add(validator.validate(game));
+                    firstGame.countDown();
+                }, 0);
+            } catch (Exception e) {
+                fail(e);
+            }
+        });
+        consumer.start();
+
+        // Far less than a read-ahead chunk, and the next game's headers show this one is complete
+        writer.write("[White \"A\"]\n\n1. e4 e5 2. Nf3 *\n\n[White \"B\"]\n".getBytes(StandardCharsets.US_ASCII));
+        writer.flush();
+        assertTrue(firstGame.await(10, TimeUnit.SECONDS), "The first game waited for more input");
+        assertEquals(1, results.size());
+        assertTrue(results.get(0).isValid());
+
+        writer.write("\n1. d4 Ke3 *\n".getBytes(StandardCharsets.US_ASCII));
+        writer.close();
+        consumer.join(10_000);
+        assertEquals(2, results.size());
+        assertFalse(results.get(1).isValid());
+    }
+
+    @Test
+    void testRuntimeExceptionFromTheSourceEndsTheStream() {
+        InputStream failing = new InputStream() {
+            @Override public int read() { throw new IllegalStateException("archive was closed"); }
+        };
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            try (ReadAheadInputStream in = new ReadAheadInputStream(failing)) {
+                IOException e = assertThrows(IOException.class, in::read);
+                assertInstanceOf(IllegalStateException.class, e.getCause());
+            }
+        });
+    }
+
+    @Test
+    void testSourceIsClosedEvenIfClosedBeforeReadingStarts() throws InterruptedException {
+        AtomicInteger closedSources = new AtomicInteger();
+        for (int i = 0; i < 500; i++) {
+            new ReadAheadInputStream(new InputStream() {
+                @Override public int read() { return -1; }
+                @Override public void close() { closedSources.incrementAndGet(); }
+            }).close();
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (closedSources.get() < 500 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(500, closedSources.get());
+    }
+}
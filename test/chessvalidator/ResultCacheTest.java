@@ -0,0 +1,117 @@
+package chessvalidator;
+
+import chessvalidator.reports.FileValidationResult;
+import chessvalidator.reports.GameValidationResult;
+import chessvalidator.reports.PgnErrorInfo;
+import chessvalidator.store.ResultCache;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+class ResultCacheTest {
+
+    @TempDir
+    Path directory;
+
+    private static PgnParser.ParsedGame parse(String pgn) throws IOException {
+        return new PgnParser().parse(new StringReader(pgn), new FileValidationResult("test.pgn")).get(0);
+    }
+
+    private static byte[] key(int i) {
+        byte[] key = new byte[16];
+        for (int b = 0; b < 4; b++) {
+            key[b] = (byte) (i >>> (8 * b));
+        }
+        key[15] = 1;
+        return key;
+    }
+
+    @Test
+    void testKeyIgnoresLayoutAndHeaderOrderButNotMoves() throws IOException {
+        byte[] key = ResultCache.contentHash(parse("[White \"A\"]\n[Black \"B\"]\n\n1. e4 e5 {opening} 2. Nf3 *\n"));
+
+        assertArrayEquals(key, ResultCache.contentHash(parse("[Black \"B\"]\n[White \"A\"]\n\n1. e4   e5\n2. Nf3 $1 *\n")));
+        assertFalse(Arrays.equals(key, ResultCache.contentHash(parse("[White \"A\"]\n[Black \"B\"]\n\n1. e4 e5 2. Nc3 *\n"))));
+        assertFalse(Arrays.equals(key, ResultCache.contentHash(parse("[White \"A\"]\n[Black \"B\"]\n\n1. e4 e5 (1... c5) 2. Nf3 *\n"))));
+    }
+
+    @Test
+    void testOutcomesSurviveReopening() throws IOException {
+        PgnErrorInfo error = new PgnErrorInfo(0, 2, "Ke3", "Logical error: no such move", false);
+        try (ResultCache cache = ResultCache.open(directory, 1)) {
+            assertNull(cache.lookup(key(1), 0));
+            cache.store(key(1), List.of());
+            cache.store(key(2), List.of(new PgnErrorInfo(0, 0, "[Event", "Syntax error", true), error));
+        }
+
+        try (ResultCache cache = ResultCache.open(directory, 1)) {
+            assertEquals(2, cache.getEntryCount());
+            assertEquals(List.of(), cache.lookup(key(1), 5));
+            // Only the logical error is cached, and it takes the game index of the lookup
+            assertEquals(List.of(new PgnErrorInfo(7, 2, "Ke3", "Logical error: no such move", false)), cache.lookup(key(2), 7));
+            assertEquals(2, cache.getHits());
+        }
+    }
+
+    @Test
+    void testOtherRulesVersionDiscardsCache() throws IOException {
+        try (ResultCache cache = ResultCache.open(directory, 1)) {
+            cache.store(key(1), List.of());
+        }
+
+        try (ResultCache cache = ResultCache.open(directory, 2)) {
+            assertEquals(0, cache.getEntryCount());
+            assertNull(cache.lookup(key(1), 0));
+        }
+    }
+
+    @Test
+    void testTableGrowsAndKeepsEntries() throws IOException {
+        try (ResultCache cache = ResultCache.open(directory, 1, 16)) {
+            for (int i = 0; i < 1000; i++) {
+                cache.store(key(i), i % 10 == 0 ? List.of(new PgnErrorInfo(0, i, "e4", "Logical error " + i, false)) : List.of());
+            }
+        }
+
+        try (ResultCache cache = ResultCache.open(directory, 1)) {
+            assertEquals(1000, cache.getEntryCount());
+            for (int i = 0; i < 1000; i++) {
+                List<PgnErrorInfo> errors = cache.lookup(key(i), 0);
+                assertNotNull(errors, "entry " + i);
+                assertEquals(i % 10 == 0 ? 1 : 0, errors.size());
+            }
+            assertEquals("Logical error 30", cache.lookup(key(30), 0).get(0).message());
+        }
+    }
+
+    @Test
+    void testSecondOpenOfSameDirectoryIsRefused() throws IOException {
+        try (ResultCache cache = ResultCache.open(directory, 1)) {
+            assertThrows(IOException.class, () -> ResultCache.open(directory, 1));
+            assertNull(cache.lookup(key(1), 0)); // The first one is still usable
+        }
+    }
+
+    @Test
+    void testValidatorAnswersRepeatedGamesFromCache() throws IOException {
+        String pgn = "[Event \"A\"]\n\n1. e4 e5 2. Nf3 Ke3 *\n";
+        List<GameValidationResult> results = new ArrayList<>();
+        try (ResultCache cache = ResultCache.open(directory, GameValidator.RULES_VERSION)) {
+            GameValidator validator = new GameValidator(cache, null);
+            results.add(validator.validate(parse(pgn)));
+            results.add(validator.validate(parse(pgn)));
+            assertEquals(1, cache.getHits());
+            assertEquals(1, cache.getMisses());
+        }
+
+        assertFalse(results.get(1).isValid());
+        assertEquals(results.get(0).getErrors(), results.get(1).getErrors());
+    }
+}
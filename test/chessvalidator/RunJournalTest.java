@@ -0,0 +1,114 @@
+package chessvalidator;
+
+import chessvalidator.io.PgnSource;
+import chessvalidator.reports.FileValidationResult;
+import chessvalidator.reports.GameValidationResult;
+import chessvalidator.store.RunJournal;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+class RunJournalTest {
+
+    @TempDir
+    Path directory;
+
+    private List<PgnSource> sources(String... names) {
+        List<PgnSource> sources = new ArrayList<>();
+        for (String name : names) {
+            sources.add(PgnSource.of(directory.resolve(name)));
+        }
+        return sources;
+    }
+
+    private static List<String> drain(RunJournal journal, List<PgnSource> sources) {
+        List<String> remaining = new ArrayList<>();
+        journal.remainingFiles(sources.iterator()).forEachRemaining(source -> remaining.add(source.name()));
+        return remaining;
+    }
+
+    private static GameValidationResult game(int index) {
+        return new GameValidationResult(index, Map.of("White", "Player " + index));
+    }
+
+    @Test
+    void testResumeRestoresDoneFilesAndContinuesPartialOnes() throws IOException {
+        Files.writeString(directory.resolve("a.pgn"), "1. e4 *\n", Charset.defaultCharset());
+        Files.writeString(directory.resolve("b.pgn"), "1. d4 *\n", Charset.defaultCharset());
+        Files.writeString(directory.resolve("c.pgn"), "1. c4 *\n", Charset.defaultCharset());
+        Path journalFile = directory.resolve("run.journal");
+        String a = directory.resolve("a.pgn").toString();
+        String b = directory.resolve("b.pgn").toString();
+
+        try (RunJournal journal = RunJournal.create(journalFile, 1, null, directory.toString())) {
+            drain(journal, sources("a.pgn", "b.pgn", "c.pgn"));
+            journal.startFile(a);
+            FileValidationResult aResult = new FileValidationResult(a);
+            aResult.addSkippedGames(2);
+            for (int i = 0; i < 3; i++) {
+                aResult.addGameResult(game(i));
+                journal.recordGame(a, game(i));
+            }
+            journal.finishFile(aResult);
+            journal.startFile(b);
+            journal.recordGame(b, game(0));
+            journal.recordGame(b, game(1));
+        } // Stopped here: closing writes the pending games of b
+
+        try (RunJournal journal = RunJournal.resume(journalFile, 1, null, directory.toString())) {
+            assertEquals(List.of(b, directory.resolve("c.pgn").toString()), drain(journal, sources("a.pgn", "b.pgn", "c.pgn")));
+            List<GameValidationResult> restored = journal.startFile(b);
+            assertEquals(List.of(0, 1), restored.stream().map(GameValidationResult::getGameIndex).toList());
+            assertEquals("Player 1", restored.get(1).getHeaders().get("White"));
+
+            FileValidationResult bResult = new FileValidationResult(b);
+            List<FileValidationResult> merged = journal.merge(List.of(bResult));
+            assertEquals(List.of(a, b), merged.stream().map(FileValidationResult::getFilePath).toList());
+            assertEquals(3, merged.get(0).getGameCount());
+            assertEquals(2, merged.get(0).getSkippedGameCount());
+            assertEquals(1, journal.getRestoredCount());
+            assertEquals(1, journal.getResumedCount());
+        }
+    }
+
+    @Test
+    void testIncompleteRecordAtTheEndIsDropped() throws IOException {
+        Files.writeString(directory.resolve("a.pgn"), "1. e4 *\n", Charset.defaultCharset());
+        Path journalFile = directory.resolve("run.journal");
+        String a = directory.resolve("a.pgn").toString();
+        try (RunJournal journal = RunJournal.create(journalFile, 1, "Event = X", directory.toString())) {
+            drain(journal, sources("a.pgn"));
+            journal.startFile(a);
+            journal.recordGame(a, game(0));
+            journal.checkpoint();
+        }
+        // A crash in the middle of writing the next record
+        Files.write(journalFile, new byte[]{0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        try (RunJournal journal = RunJournal.resume(journalFile, 1, "Event = X", directory.toString())) {
+            assertEquals(List.of(a), drain(journal, sources("a.pgn")));
+            assertEquals(1, journal.startFile(a).size());
+        }
+    }
+
+    @Test
+    void testJournalOfAnotherRunIsNotTakenOver() throws IOException {
+        Path journalFile = directory.resolve("run.journal");
+        RunJournal.create(journalFile, 1, null, "games").close();
+
+        assertThrows(FileAlreadyExistsException.class, () -> RunJournal.create(journalFile, 1, null, "games"));
+        assertThrows(IOException.class, () -> RunJournal.resume(journalFile, 1, null, "other games"));
+        assertThrows(IOException.class, () -> RunJournal.resume(journalFile, 2, null, "games"));
+        assertThrows(IOException.class, () -> RunJournal.resume(journalFile, 1, "Event = X", "games"));
+    }
+}
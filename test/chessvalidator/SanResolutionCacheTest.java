@@ -0,0 +1,91 @@
+package chessvalidator;
+
+import chessvalidator.model.GameState;
+import chessvalidator.model.Move;
+import chessvalidator.model.SanHelper;
+import chessvalidator.model.SanResolutionCache;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+class SanResolutionCacheTest {
+
+    private static final List<String> OPENING = List.of("e4", "e5", "Nf3", "Nc6", "Bb5", "a6", "Ba4", "Nf6", "O-O", "Be7");
+
+    private static void play(SanResolutionCache cache, GameState gameState, List<String> moves) {
+        for (String san : moves) {
+            Move expected = SanHelper.sanToMove(san, gameState);
+            assertEquals(expected, cache.resolve(san, gameState), san);
+            gameState.applyMove(expected);
+        }
+    }
+
+    @Test
+    void testRepeatedOpeningIsAnsweredFromCache() {
+        SanResolutionCache cache = new SanResolutionCache(1024);
+        play(cache, new GameState(), OPENING);
+        play(cache, new GameState(), OPENING);
+
+        assertEquals(OPENING.size(), cache.getMisses());
+        assertEquals(OPENING.size(), cache.getHits());
+        assertEquals(0.5, cache.getHitRatio());
+    }
+
+    @Test
+    void testTranspositionHitsAcrossMoveOrders() {
+        SanResolutionCache cache = new SanResolutionCache(1024);
+        play(cache, new GameState(), List.of("Nf3", "Nf6", "Nc3", "d5"));
+        play(cache, new GameState(), List.of("Nc3", "Nf6", "Nf3", "d5"));
+
+        assertEquals(1, cache.getHits()); // Only d5 is played in a position seen before
+    }
+
+    @Test
+    void testIllegalMoveIsNotCachedAndStillRejected() {
+        SanResolutionCache cache = new SanResolutionCache(1024);
+        for (int i = 0; i < 2; i++) {
+            GameState gameState = new GameState();
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> cache.resolve("Ke2", gameState));
+            assertTrue(e.getMessage().contains("Ke2"));
+        }
+        assertEquals(0, cache.getHits());
+    }
+
+    @Test
+    void testTinyCacheStaysCorrectUnderEviction() {
+        SanResolutionCache cache = new SanResolutionCache(2);
+        for (int i = 0; i < 3; i++) {
+            play(cache, new GameState(), OPENING);
+            play(cache, new GameState(), List.of("d4", "d5", "c4", "e6", "Nc3", "Nf6"));
+        }
+        assertEquals(2, cache.getCapacity());
+    }
+
+    @Test
+    void testSharedBetweenThreads() throws Exception {
+        SanResolutionCache cache = new SanResolutionCache(64);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 50; i++) {
+                        play(cache, new GameState(), OPENING);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(8 * 50 * OPENING.size(), cache.getHits() + cache.getMisses());
+        assertTrue(cache.getHitRatio() > 0.9, cache.format());
+    }
+}
@@ -0,0 +1,75 @@
+package chessvalidator;
+
+import chessvalidator.reports.FileValidationResult;
+import chessvalidator.reports.GameValidationResult;
+import chessvalidator.reports.PgnErrorInfo;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+class TriagePolicyTest {
+
+    private static GameValidationResult game(int index, int errors) {
+        GameValidationResult result = new GameValidationResult(index, Map.of());
+        for (int i = 0; i < errors; i++) {
+            result.addError(new PgnErrorInfo(index, 1, "Ke3", "Logical error: King cannot move there", false));
+        }
+        return result;
+    }
+
+    private static void add(TriagePolicy policy, FileValidationResult fileResult, GameValidationResult gameResult) {
+        fileResult.addGameResult(gameResult);
+        policy.record(fileResult, gameResult);
+    }
+
+    @Test
+    void testErrorCapStopsOnlyTheFileThatReachedIt() {
+        TriagePolicy policy = new TriagePolicy(ValidationTier.FULL, false, 3);
+        FileValidationResult a = new FileValidationResult("a.pgn");
+        FileValidationResult b = new FileValidationResult("b.pgn");
+
+        add(policy, a, game(0, 2));
+        assertTrue(policy.allows(a));
+        add(policy, a, game(1, 1));
+        assertFalse(policy.allows(a));
+        assertTrue(policy.allows(b));
+        assertFalse(policy.isStopped());
+
+        a.addUnvalidatedGames(5);
+        assertTrue(a.toString().contains("Games not validated after reaching an error limit: 5"), a::toString);
+    }
+
+    @Test
+    void testFailFastStopsAtTheFirstInvalidGame() {
+        TriagePolicy policy = new TriagePolicy(ValidationTier.CLEAN, true, 0);
+        FileValidationResult a = new FileValidationResult("a.pgn");
+        FileValidationResult b = new FileValidationResult("b.pgn");
+        Iterator<String> files = policy.untilStopped(List.of("a.pgn", "b.pgn", "c.pgn").iterator());
+        List<String> started = new ArrayList<>();
+
+        started.add(files.next());
+        add(policy, a, game(0, 0));
+        assertTrue(policy.allows(a));
+        started.add(files.next());
+        add(policy, b, game(4, 1));
+        add(policy, a, game(1, 1)); // Only the first failure is kept
+
+        assertTrue(policy.isStopped());
+        assertFalse(policy.allows(a));
+        assertFalse(files.hasNext());
+        assertEquals(List.of("a.pgn", "b.pgn"), started);
+        assertTrue(policy.format().contains("fail-fast stopped the run at game 5 of b.pgn"), policy::format);
+    }
+
+    @Test
+    void testDefaultPolicyHasNoLimits() {
+        assertTrue(TriagePolicy.FULL.isDefault());
+        assertFalse(TriagePolicy.FULL.hasLimits());
+        assertFalse(new TriagePolicy(ValidationTier.SYNTAX, false, 0).isDefault());
+        assertThrows(IllegalArgumentException.class, () -> new TriagePolicy(ValidationTier.FULL, false, -1));
+    }
+}
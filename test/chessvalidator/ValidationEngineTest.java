@@ -0,0 +1,64 @@
+package chessvalidator;
+
+import chessvalidator.reports.FileValidationResult;
+import chessvalidator.reports.GameValidationResult;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+class ValidationEngineTest {
+
+    private static final String PGN = """
+            [White "A"]
+
+            1. e4 e5 2. Nf3 Nc6 3. Bb5 a6 *
+
+            [White "B"]
+
+            1. d4 d5 2. Ke3 *
+
+            [White "C"]
+
+            1. c4 e5 2. Nc3 Nf6 *
+            """;
+
+    @Test
+    void testReusedWorkerStartsEachGameFromTheInitialPosition() throws IOException {
+        ValidationEngine engine = new ValidationEngine();
+
+        for (int run = 0; run < 3; run++) {
+            FileValidationResult fileResult = engine.validate("test.pgn", new StringReader(PGN));
+            assertEquals(3, fileResult.getGameCount());
+            assertEquals(1, fileResult.getErrorCount(), fileResult::toString);
+            assertTrue(fileResult.toString().contains("Ke3"), fileResult::toString);
+        }
+        assertEquals(1, engine.getWorkerCount());
+    }
+
+    @Test
+    void testConcurrentCallsGetTheirOwnWorkers() throws Exception {
+        ValidationEngine engine = new ValidationEngine();
+        List<PgnParser.ParsedGame> games = new PgnParser().parse(new StringReader(PGN), new FileValidationResult("test.pgn"));
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<GameValidationResult>> results = new ArrayList<>();
+            for (int i = 0; i < 300; i++) {
+                GameRecord game = games.get(i % games.size());
+                results.add(executor.submit(() -> engine.validateGame(game)));
+            }
+            for (int i = 0; i < results.size(); i++) {
+                assertEquals(i % games.size() != 1, results.get(i).get().isValid(), "Game " + i);
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertTrue(engine.getWorkerCount() <= 4, () -> engine.getWorkerCount() + " workers");
+    }
+}
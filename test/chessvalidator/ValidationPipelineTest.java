@@ -0,0 +1,105 @@
+package chessvalidator;
+
+import chessvalidator.concurrent.ValidationPipeline;
+import chessvalidator.io.PgnSource;
+import chessvalidator.reports.FileValidationResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+class ValidationPipelineTest {
+
+    @TempDir
+    Path directory;
+
+    // A source whose reader fails on the first read, as if the parser hit a bug or the disk went away
+    private static PgnSource failingSource(String name) {
+        return new PgnSource() {
+            @Override public String name() { return name; }
+            @Override public Path file() { return Paths.get(name); }
+            @Override public long size() { return 0; }
+            @Override public Reader openReader() {
+                return new Reader() {
+                    @Override public int read(char[] buffer, int offset, int length) {
+                        throw new IllegalStateException("Parser failed");
+                    }
+                    @Override public void close() {}
+                };
+            }
+        };
+    }
+
+    private PgnSource writeFile(String name, String text) throws IOException {
+        Path file = directory.resolve(name);
+        Files.writeString(file, text, Charset.defaultCharset());
+        return PgnSource.of(file);
+    }
+
+    @Test
+    void testResultsMatchSingleThreadedValidation() throws Exception {
+        Path tbilisi = Paths.get("Tbilisi2015.pgn");
+        assumeTrue(Files.isRegularFile(tbilisi));
+        List<PgnSource> sources = List.of(
+                PgnSource.of(tbilisi),
+                writeFile("illegal.pgn", "[White \"A\"]\n\n1. e4 e5 2. Ke3 *\n\n[White \"B\"]\n\n1. d4 d5 *\n"));
+
+        ValidationPipeline pipeline = new ValidationPipeline(2, 3, 4);
+        List<FileValidationResult> results = pipeline.run(sources.iterator());
+
+        ValidationEngine engine = new ValidationEngine();
+        assertEquals(sources.size(), results.size());
+        for (int i = 0; i < sources.size(); i++) {
+            assertEquals(engine.validate(sources.get(i)).toString(), results.get(i).toString());
+        }
+        assertEquals(70, results.get(0).getGameCount());
+        assertEquals(1, results.get(1).getInvalidGameCount());
+    }
+
+    @Test
+    void testFileResultsComeOutInInputOrder() throws Exception {
+        List<PgnSource> sources = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            // Earlier files are longer, so later ones tend to finish first
+            sources.add(writeFile("round" + i + ".pgn", "[Round \"" + i + "\"]\n\n1. e4 e5 2. Nf3 Nc6 *\n\n".repeat(20 - i)));
+        }
+
+        List<FileValidationResult> results = new ValidationPipeline(4, 2, 2).run(sources.iterator());
+
+        assertEquals(sources.size(), results.size());
+        for (int i = 0; i < sources.size(); i++) {
+            assertEquals(sources.get(i).name(), results.get(i).getFilePath());
+            assertEquals(20 - i, results.get(i).getGameCount());
+            for (int game = 0; game < results.get(i).getGameResults().size(); game++) {
+                assertEquals(game, results.get(i).getGameResults().get(game).getGameIndex());
+            }
+        }
+    }
+
+    @Test
+    void testParserFailureIsReportedAndThePipelineShutsDown() throws Exception {
+        List<PgnSource> sources = List.of(
+                writeFile("before.pgn", "[White \"A\"]\n\n1. e4 e5 *\n"),
+                failingSource("broken.pgn"),
+                writeFile("after.pgn", "[White \"B\"]\n\n1. d4 d5 *\n"));
+
+        List<FileValidationResult> results = assertTimeoutPreemptively(Duration.ofSeconds(10),
+                () -> new ValidationPipeline(1, 2, 1).run(sources.iterator()));
+
+        assertEquals(3, results.size());
+        assertEquals(1, results.get(0).getGameCount());
+        assertEquals(List.of("Unexpected validation error: Parser failed"), results.get(1).getFileLevelErrors());
+        assertEquals(1, results.get(2).getGameCount());
+        assertFalse(results.get(2).hasErrors());
+    }
+}
@@ -0,0 +1,87 @@
+package chessvalidator;
+
+import chessvalidator.concurrent.WorkStealingScheduler;
+import chessvalidator.io.PgnSource;
+import chessvalidator.reports.FileValidationResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+class WorkStealingSchedulerTest {
+
+    @TempDir
+    Path directory;
+
+    private PgnSource writeFile(String name, String text) throws IOException {
+        Path file = directory.resolve(name);
+        Files.writeString(file, text, Charset.defaultCharset());
+        return PgnSource.of(file);
+    }
+
+    @Test
+    void testSplitFilesMatchSingleThreadedValidation() throws IOException {
+        Path tbilisi = Paths.get("Tbilisi2015.pgn");
+        assumeTrue(Files.isRegularFile(tbilisi));
+        List<PgnSource> sources = List.of(
+                PgnSource.of(tbilisi),
+                writeFile("illegal.pgn", ("[White \"A\"]\n\n1. e4 e5 2. Ke3 *\n\n[White \"B\"]\n\n1. d4 d5 *\n\n").repeat(5)));
+
+        // Every file is over the threshold, so each is split into ranges of at most 3 games
+        List<FileValidationResult> results = new WorkStealingScheduler(4, 1, 3).run(sources);
+
+        ValidationEngine engine = new ValidationEngine();
+        assertEquals(sources.size(), results.size());
+        for (int i = 0; i < sources.size(); i++) {
+            assertEquals(engine.validate(sources.get(i)).toString(), results.get(i).toString());
+        }
+        assertEquals(70, results.get(0).getGameCount());
+        assertEquals(5, results.get(1).getInvalidGameCount());
+    }
+
+    @Test
+    void testFileResultsComeOutInInputOrderAndGamesInFileOrder() throws IOException {
+        List<PgnSource> sources = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            // Later files are larger, so they are scheduled first
+            sources.add(writeFile("round" + i + ".pgn", "[Round \"" + i + "\"]\n\n1. e4 e5 2. Nf3 Nc6 *\n\n".repeat(i + 1)));
+        }
+
+        List<FileValidationResult> results = new WorkStealingScheduler(3, 200, 2).run(sources);
+
+        assertEquals(sources.size(), results.size());
+        for (int i = 0; i < sources.size(); i++) {
+            assertEquals(sources.get(i).name(), results.get(i).getFilePath());
+            assertEquals(i + 1, results.get(i).getGameCount());
+            for (int game = 0; game < results.get(i).getGameResults().size(); game++) {
+                assertEquals(game, results.get(i).getGameResults().get(game).getGameIndex());
+            }
+        }
+    }
+
+    @Test
+    void testUnreadableFileIsReportedAndOthersAreValidated() throws IOException {
+        PgnSource unreadable = new PgnSource() {
+            @Override public String name() { return "gone.pgn"; }
+            @Override public Path file() { return Paths.get("gone.pgn"); }
+            @Override public long size() { return 1000; }
+            @Override public Reader openReader() throws IOException { throw new IOException("No such file"); }
+        };
+        List<PgnSource> sources = List.of(writeFile("first.pgn", "[White \"A\"]\n\n1. e4 e5 *\n"), unreadable);
+
+        List<FileValidationResult> results = new WorkStealingScheduler(2, 1, 1).run(sources);
+
+        assertEquals(2, results.size());
+        assertEquals(1, results.get(0).getGameCount());
+        assertEquals(List.of("Failed to read file: No such file"), results.get(1).getFileLevelErrors());
+    }
+}